@@ -0,0 +1,357 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Кодек выбирается на каждый блок: образец блока пробно сжимается кандидатами, политика выбирает по степени
+// сжатия образца и сглаженной скорости кандидата. Формат: блоки подряд, у каждого [метод][varint исходная длина]
+// [varint длина данных][данные], метод 0 - блок как есть, иначе (Codec.id() << 2) | Preset.ordinal();
+// в конце CRC32 всех исходных данных (4 байта LE): она покрывает и несжатые блоки, и заголовки блоков.
+// Блоки с энтропией нулевого порядка около 8 бит/байт и блоки, которые никто не сжал, пишутся как есть
+public class AdaptiveCompression implements Compressor {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    public static final int SAMPLE_SIZE = 16 << 10;
+    // Скорость сжатия, ниже которой политика по умолчанию не опускается
+    public static final double DEFAULT_MIN_SPEED = 10;
+
+    static final int STORED = 0;
+
+    private static final double STORED_ENTROPY_BITS = 7.9;
+    private static final double MIN_RATIO = 1.03;
+    private static final int SAMPLE_SLICES = 4;
+    // Кандидаты, заведомо медленнее порога, пробуются заново только раз в REPROBE_INTERVAL блоков
+    private static final int REPROBE_INTERVAL = 16;
+    private static final double SPEED_SMOOTHING = 0.25;
+    // Предел степени сжатия блока у кандидатов: ZSTD - 8 (Хаффман) * 65536 (LZ77)
+    private static final long MAX_BLOCK_RATIO = 8L * Lz77Encoder.MAX_MATCH;
+    // Выход сначала выделяется на такую степень сжатия и растёт по мере распаковки блоков
+    private static final int INITIAL_RATIO = 16;
+
+    private final Policy policy;
+    private final List<Candidate> candidates;
+    private final int blockSize;
+    private final AtomicInteger blocks = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, Compressor> decoders = new ConcurrentHashMap<>();
+
+    public AdaptiveCompression() {
+        this(Policy.maxRatio(DEFAULT_MIN_SPEED));
+    }
+
+    public AdaptiveCompression(Policy policy) {
+        this(policy, defaultCandidates(), DEFAULT_BLOCK_SIZE);
+    }
+
+    public AdaptiveCompression(Policy policy, List<Candidate> candidates, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("At least one candidate codec is required");
+        }
+        this.policy = policy;
+        this.candidates = new ArrayList<>(candidates);
+        this.blockSize = blockSize;
+    }
+
+    // Каждый кодек с уровнем по умолчанию и самый быстрый уровень ZSTD
+    public static List<Candidate> defaultCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(new Candidate(Codec.ZSTD, Codec.Preset.FASTEST));
+        for (Codec codec : Codec.values()) {
+            if (codec != Codec.ADAPTIVE) {
+                candidates.add(new Candidate(codec, Codec.Preset.DEFAULT));
+            }
+        }
+        return Collections.unmodifiableList(candidates);
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+        for (int pos = offset; pos < offset + length; pos += blockSize) {
+            int n = Math.min(blockSize, offset + length - pos);
+            compressBlock(input, pos, n, out);
+        }
+        int crc = Crc32.compute(input, offset, length);
+        for (int i = 0; i < 4; i++) {
+            out.write(crc >>> 8 * i);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) throws IOException {
+        if (length < 4) {
+            throw new IOException("Truncated adaptive stream");
+        }
+        // Первый проход только по заголовкам: он проверяет длины блоков и даёт размер результата
+        int[] cursor = {offset};
+        int end = offset + length - 4;
+        long total = 0;
+        while (cursor[0] < end) {
+            int method = input[cursor[0]++] & 0xFF;
+            int rawLength = readVarInt(input, cursor, end);
+            int payloadLength = readVarInt(input, cursor, end);
+            if (payloadLength > end - cursor[0]) {
+                throw new IOException("Truncated adaptive block");
+            }
+            if (method == STORED ? rawLength != payloadLength : rawLength > payloadLength * MAX_BLOCK_RATIO) {
+                throw new IOException("Corrupt adaptive block length: " + rawLength + " from " + payloadLength);
+            }
+            total += rawLength;
+            cursor[0] += payloadLength;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IOException("Decompressed size too large: " + total);
+        }
+
+        byte[] output = new byte[(int) Math.min(total, (long) length * INITIAL_RATIO)];
+        int outputPos = 0;
+        cursor[0] = offset;
+        while (cursor[0] < end) {
+            int method = input[cursor[0]++] & 0xFF;
+            int rawLength = readVarInt(input, cursor, end);
+            int payloadLength = readVarInt(input, cursor, end);
+            int payload = cursor[0];
+            cursor[0] += payloadLength;
+            byte[] block = input;
+            if (method != STORED) {
+                block = decoder(method).decompress(input, payload, payloadLength);
+                if (block.length != rawLength) {
+                    throw new IOException("Block length mismatch: expected " + rawLength + ", got " + block.length);
+                }
+                payload = 0;
+            }
+            if (outputPos + rawLength > output.length) {
+                output = Arrays.copyOf(output, (int) Math.min(total, Math.max(outputPos + rawLength, 2L * output.length)));
+            }
+            System.arraycopy(block, payload, output, outputPos, rawLength);
+            outputPos += rawLength;
+        }
+        int expected = (input[end] & 0xFF) | (input[end + 1] & 0xFF) << 8
+                | (input[end + 2] & 0xFF) << 16 | (input[end + 3] & 0xFF) << 24;
+        if (Crc32.compute(output, 0, outputPos) != expected) {
+            throw new IOException("Adaptive stream checksum mismatch");
+        }
+        return output;
+    }
+
+    private void compressBlock(byte[] input, int offset, int length, ByteArrayOutputStream out) throws IOException {
+        Candidate chosen = null;
+        byte[] payload = null;
+        if (entropyBits(input, offset, length) < STORED_ENTROPY_BITS) {
+            // Блок не больше образца сжимается целиком, и пробный результат выбранного кандидата идёт в выход
+            boolean whole = length <= SAMPLE_SIZE;
+            byte[] sample = whole ? input : sample(input, offset, length);
+            int sampleOffset = whole ? offset : 0;
+            int sampleLength = whole ? length : sample.length;
+            boolean reprobe = blocks.getAndIncrement() % REPROBE_INTERVAL == 0;
+            double fastest = 0;
+            for (Candidate candidate : candidates) {
+                fastest = Math.max(fastest, candidate.speed);
+            }
+
+            double bestScore = 0;
+            Candidate fallback = null;
+            byte[] fallbackOutput = null;
+            for (Candidate candidate : candidates) {
+                if (!reprobe && !policy.worthTrying(candidate.speed, fastest)) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                byte[] trial = candidate.compressor.compress(sample, sampleOffset, sampleLength);
+                candidate.recordSpeed(sampleLength, System.nanoTime() - start);
+                double ratio = (double) sampleLength / Math.max(1, trial.length);
+                if (ratio < MIN_RATIO) {
+                    continue;
+                }
+                if (fallback == null || candidate.speed > fallback.speed) {
+                    fallback = candidate;
+                    fallbackOutput = trial;
+                }
+                if (!policy.accepts(candidate.speed)) {
+                    continue;
+                }
+                double score = policy.score(ratio, candidate.speed);
+                if (chosen == null || score > bestScore) {
+                    chosen = candidate;
+                    bestScore = score;
+                    payload = whole ? trial : null;
+                }
+            }
+            // Порог скорости не выполним ни одним кандидатом: берётся самый быстрый из сжимающих
+            if (chosen == null && fallback != null) {
+                chosen = fallback;
+                payload = whole ? fallbackOutput : null;
+            }
+            if (chosen != null && payload == null) {
+                payload = chosen.compressor.compress(input, offset, length);
+            }
+        }
+        if (chosen == null || payload.length >= length) {
+            out.write(STORED);
+            writeVarInt(out, length);
+            writeVarInt(out, length);
+            out.write(input, offset, length);
+        } else {
+            out.write(chosen.method);
+            writeVarInt(out, length);
+            writeVarInt(out, payload.length);
+            out.write(payload, 0, payload.length);
+        }
+    }
+
+    // SAMPLE_SLICES равномерно разнесённых кусков блока подряд
+    private static byte[] sample(byte[] input, int offset, int length) {
+        byte[] sample = new byte[SAMPLE_SIZE];
+        int slice = SAMPLE_SIZE / SAMPLE_SLICES;
+        long stride = (length - slice) / (SAMPLE_SLICES - 1);
+        for (int i = 0; i < SAMPLE_SLICES; i++) {
+            System.arraycopy(input, offset + (int) (i * stride), sample, i * slice, slice);
+        }
+        return sample;
+    }
+
+    // Энтропия нулевого порядка в битах на байт по гистограмме блока
+    static double entropyBits(byte[] input, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int[] histogram = new int[256];
+        ByteKernels.INSTANCE.histogram(input, offset, length, histogram);
+        double bits = 0;
+        for (int count : histogram) {
+            if (count != 0) {
+                double p = (double) count / length;
+                bits -= p * Math.log(p);
+            }
+        }
+        return bits / Math.log(2);
+    }
+
+    private Compressor decoder(int method) throws IOException {
+        Codec codec = Codec.forId(method >>> 2);
+        int preset = method & 3;
+        if (codec == null || codec == Codec.ADAPTIVE || preset >= Codec.Preset.values().length) {
+            throw new IOException("Unknown adaptive block method: " + method);
+        }
+        return decoders.computeIfAbsent(method, m -> codec.create(Codec.Preset.values()[preset]));
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] input, int[] cursor, int end) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (cursor[0] >= end) {
+                throw new IOException("Truncated adaptive block header");
+            }
+            int b = input[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new IOException("Adaptive block length overflow");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    // Кодек с пресетом; сглаженная скорость сжатия (MB/s) обновляется без синхронизации - это только оценка
+    public static final class Candidate {
+        private final Codec codec;
+        private final Codec.Preset preset;
+        private final Compressor compressor;
+        private final int method;
+        private volatile double speed;
+
+        public Candidate(Codec codec, Codec.Preset preset) {
+            if (codec == Codec.ADAPTIVE) {
+                throw new IllegalArgumentException("Adaptive compression cannot be its own candidate");
+            }
+            this.codec = codec;
+            this.preset = preset;
+            this.compressor = codec.create(preset);
+            this.method = codec.id() << 2 | preset.ordinal();
+        }
+
+        public Codec codec() {
+            return codec;
+        }
+
+        public Codec.Preset preset() {
+            return preset;
+        }
+
+        void recordSpeed(int bytes, long nanos) {
+            double measured = bytes * 1e3 / Math.max(1, nanos);
+            double current = speed;
+            speed = current == 0 ? measured : current + SPEED_SMOOTHING * (measured - current);
+        }
+
+        @Override
+        public String toString() {
+            return codec + "/" + preset;
+        }
+    }
+
+    // Политика выбора: лучшее сжатие не медленнее порога либо самое быстрое из сжимающих
+    public static final class Policy {
+        private final boolean maximizeRatio;
+        private final double minSpeed;
+
+        private Policy(boolean maximizeRatio, double minSpeed) {
+            this.maximizeRatio = maximizeRatio;
+            this.minSpeed = minSpeed;
+        }
+
+        public static Policy maxRatio() {
+            return new Policy(true, 0);
+        }
+
+        // Наибольшая степень сжатия среди кандидатов, сжимающих не медленнее minMegabytesPerSecond
+        public static Policy maxRatio(double minMegabytesPerSecond) {
+            if (!(minMegabytesPerSecond >= 0)) {
+                throw new IllegalArgumentException("Speed must not be negative: " + minMegabytesPerSecond);
+            }
+            return new Policy(true, minMegabytesPerSecond);
+        }
+
+        public static Policy minLatency() {
+            return new Policy(false, 0);
+        }
+
+        boolean accepts(double speed) {
+            return speed >= minSpeed;
+        }
+
+        double score(double ratio, double speed) {
+            return maximizeRatio ? ratio : speed;
+        }
+
+        // Неизмеренный кандидат пробуется всегда; измеренный - если он не вдвое медленнее порога
+        // (или самого быстрого кандидата, когда важна задержка)
+        boolean worthTrying(double speed, double fastest) {
+            return speed == 0 || speed * 2 >= (maximizeRatio ? minSpeed : fastest);
+        }
+
+        @Override
+        public String toString() {
+            return maximizeRatio ? "maxRatio(" + minSpeed + " MB/s)" : "minLatency";
+        }
+    }
+}
\ No newline at end of file
@@ -1,105 +1,218 @@
 package org.example;
 
 import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
 import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
 import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.concurrent.TimeUnit;
 
-@BenchmarkMode(Mode.AverageTime)
-@OutputTimeUnit(TimeUnit.MILLISECONDS)
+// Матрица кодек x корпус x пресет x размер блока: все кодеки сжимают одни и те же входы.
+// blockSize = 0 - весь файл одним вызовом, иначе файл режется на независимые блоки.
+// Пропускная способность в MB/s - счётчик megabytes (ops/s в нём = MB/s). Вторичные метрики - размер сжатых
+// данных, степень сжатия, пик кучи за итерацию и (в однопоточных compress/decompress) выделенные байты
+// на операцию - отдаёт SecondaryMetricsProfiler, усреднёнными по итерациям.
+// По умолчанию 6 кодеков x 3 корпуса x 3 пресета, blockSize = 0: 54 конфигурации на каждый из шести методов,
+// по 50 секунд на запуск - около 4.5 часов. Полная матрица (10 корпусов, два размера блока) - 360 конфигураций,
+// это больше суток; включается явно:
+//   -p corpus=test1.txt,test2.txt,test3.txt,test4.txt,test5.txt,random:1m,low_entropy:1m,logs:1m,json:1m,binary:1m
+//   -p blockSize=0,1048576
+// Для быстрого прогона стоит сузить и кодеки/методы, например -p codec=ZSTD,GZIP -p level=DEFAULT 'org.example.Benchmark.compress$'
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
 @State(Scope.Benchmark)
 @Fork(1)
 @Warmup(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
 @Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
 public class Benchmark {
 
-    private String text1;
-    private String text2;
-    private String text3;
-    private String text4;
-    private String text5;
+    // Имя из CodecRegistry: кодеки сторонних провайдеров подключаются через -p codec=...
+    @Param({"BZIP2", "GZIP", "ZSTD", "XZ", "PPMD", "ADAPTIVE"})
+    private String codec;
 
-    private Bzip2Compression bzip2Compressor;
-    private GzipCompression gzipCompressor;
-    private ZstdCompression zstdCompressor;
-    private XzCompression xzCompressor;
-    private PpmdCompression ppmdCompressor;
+    // Спецификация Corpus: путь к файлу/каталогу или сгенерированный вход "shape:size[:seed]";
+    // масштабирование - например, -p corpus=json:1k,json:1m,json:1g. По умолчанию - текст, структурированные
+    // данные и несжимаемый вход примерно по мегабайту
+    @Param({"test3.txt", "json:1m", "random:1m"})
+    private String corpus;
 
-    @Setup
+    @Param({"FASTEST", "DEFAULT", "BEST"})
+    private Codec.Preset level;
+
+    // 1048576 - независимые блоки по мегабайту: -p blockSize=0,1048576
+    @Param("0")
+    private int blockSize;
+
+    private byte[] data;
+    private int[] blockOffsets;
+    private byte[][] compressedBlocks;
+    private long compressedLength;
+    private CodecProvider provider;
+
+    // Кодек, который не восстанавливает данные, не измеряется: сначала быстрый набор RoundTripVerifier,
+    // затем распаковка тех самых блоков, на которых пойдёт бенчмарк
+    @Setup(Level.Trial)
     public void setup() throws IOException {
-        text1 = new String(Files.readAllBytes(Paths.get("test1.txt")));
-        text2 = new String(Files.readAllBytes(Paths.get("test2.txt")));
-        text3 = new String(Files.readAllBytes(Paths.get("test3.txt")));
-        text4 = new String(Files.readAllBytes(Paths.get("test4.txt")));
-        text5 = new String(Files.readAllBytes(Paths.get("test5.txt")));
-
-        bzip2Compressor = new Bzip2Compression();
-        gzipCompressor = new GzipCompression();
-        zstdCompressor = new ZstdCompression();
-        xzCompressor = new XzCompression();
-        ppmdCompressor = new PpmdCompression();
+        data = Corpus.load(corpus);
+        int size = blockSize > 0 ? blockSize : Math.max(1, data.length);
+        int blockCount = Math.max(1, (data.length + size - 1) / size);
+        blockOffsets = new int[blockCount + 1];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = i * size;
+        }
+        blockOffsets[blockCount] = data.length;
+
+        provider = CodecRegistry.forName(codec);
+        Compressor compressor = provider.create(level);
+        compressedBlocks = new byte[blockCount][];
+        for (int i = 0; i < blockCount; i++) {
+            compressedBlocks[i] = compressor.compress(data, blockOffsets[i], blockOffsets[i + 1] - blockOffsets[i]);
+            compressedLength += compressedBlocks[i].length;
+        }
+        try {
+            RoundTripVerifier.verifyQuick(compressor, corpus.hashCode());
+            for (int i = 0; i < blockCount; i++) {
+                RoundTripVerifier.check(corpus + " block " + i, Arrays.copyOfRange(data, blockOffsets[i], blockOffsets[i + 1]),
+                        compressor.decompressBytes(compressedBlocks[i]));
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException(codec + " " + level + " fails round-trip verification, refusing to benchmark", e);
+        }
+        // Размер и степень сжатия не меняются от итерации к итерации: публикуются один раз на trial
+        SecondaryMetricsProfiler.publish("compressedBytes", compressedLength, "B");
+        SecondaryMetricsProfiler.publish("ratio", compressedLength == 0 ? 0 : (double) data.length / compressedLength, "");
     }
 
-    @org.openjdk.jmh.annotations.Benchmark
-    public byte[] benchmarkBzip2Compression() throws IOException {
-        return bzip2Compressor.compress(text1);
+    // Экземпляр кодека на поток: многопоточные варианты не делят внутренние буферы и пулы
+    @State(Scope.Thread)
+    public static class Worker {
+        private Compressor compressor;
+
+        @Setup
+        public void setup(Benchmark benchmark) {
+            compressor = benchmark.provider.create(benchmark.level);
+        }
     }
 
-    @org.openjdk.jmh.annotations.Benchmark
-    public double benchmarkBzip2CompressionRatio() throws IOException {
-        byte[] compressedData = bzip2Compressor.compress(text1);
-        return ((double) text1.getBytes().length) / compressedData.length;
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
     }
 
-    @org.openjdk.jmh.annotations.Benchmark
-    public byte[] benchmarkGzipCompression() throws IOException {
-        return gzipCompressor.compress(text2);
+    // Выделения потока за итерацию снимаются в setup/teardown итерации, вне замеряемого метода, и делятся
+    // на число операций в SecondaryMetricsProfiler; только в однопоточных методах
+    @State(Scope.Thread)
+    public static class Allocations {
+        private long allocatedBefore;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            allocatedBefore = MemoryMetrics.threadAllocatedBytes();
+        }
+
+        @TearDown(Level.Iteration)
+        public void stop() {
+            long allocatedAfter = MemoryMetrics.threadAllocatedBytes();
+            if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+                SecondaryMetricsProfiler.addAllocated(allocatedAfter - allocatedBefore);
+            }
+        }
     }
 
     @org.openjdk.jmh.annotations.Benchmark
-    public double benchmarkGzipCompressionRatio() throws IOException {
-        byte[] compressedData = gzipCompressor.compress(text2);
-        return ((double) text2.getBytes().length) / compressedData.length;
+    public void compress(Worker worker, Throughput throughput, Allocations allocations, Blackhole blackhole)
+            throws IOException {
+        compressAll(worker, throughput, blackhole);
     }
 
     @org.openjdk.jmh.annotations.Benchmark
-    public byte[] benchmarkZstdCompression() throws IOException {
-        return zstdCompressor.compress(text3);
+    public void decompress(Worker worker, Throughput throughput, Allocations allocations, Blackhole blackhole)
+            throws IOException {
+        decompressAll(worker, throughput, blackhole);
     }
 
     @org.openjdk.jmh.annotations.Benchmark
-    public double benchmarkZstdCompressionRatio() throws IOException {
-        byte[] compressedData = zstdCompressor.compress(text3);
-        return ((double) text3.getBytes().length) / compressedData.length;
+    @Threads(2)
+    public void compress2Threads(Worker worker, Throughput throughput, Blackhole blackhole) throws IOException {
+        compressAll(worker, throughput, blackhole);
     }
 
     @org.openjdk.jmh.annotations.Benchmark
-    public byte[] benchmarkXzCompression() throws IOException {
-        return xzCompressor.compress(text4);
+    @Threads(4)
+    public void compress4Threads(Worker worker, Throughput throughput, Blackhole blackhole) throws IOException {
+        compressAll(worker, throughput, blackhole);
     }
 
     @org.openjdk.jmh.annotations.Benchmark
-    public double benchmarkXzCompressionRatio() throws IOException {
-        byte[] compressedData = xzCompressor.compress(text4);
-        return ((double) text4.getBytes().length) / compressedData.length;
+    @Threads(4)
+    public void decompress4Threads(Worker worker, Throughput throughput, Blackhole blackhole) throws IOException {
+        decompressAll(worker, throughput, blackhole);
     }
 
+    // Смешанная нагрузка: два потока сжимают, два распаковывают одновременно
     @org.openjdk.jmh.annotations.Benchmark
-    public byte[] benchmarkPpmdCompression() {
-        return ppmdCompressor.compress(text5);
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedCompress(Worker worker, Throughput throughput, Blackhole blackhole) throws IOException {
+        compressAll(worker, throughput, blackhole);
     }
 
     @org.openjdk.jmh.annotations.Benchmark
-    public double benchmarkPpmdCompressionRatio() {
-        byte[] compressedData = ppmdCompressor.compress(text5);
-        return ((double) text5.getBytes().length) / compressedData.length;
+    @Group("mixed")
+    @GroupThreads(2)
+    public void mixedDecompress(Worker worker, Throughput throughput, Blackhole blackhole) throws IOException {
+        decompressAll(worker, throughput, blackhole);
+    }
+
+    private void compressAll(Worker worker, Throughput throughput, Blackhole blackhole) throws IOException {
+        for (int i = 0; i + 1 < blockOffsets.length; i++) {
+            blackhole.consume(worker.compressor.compress(data, blockOffsets[i], blockOffsets[i + 1] - blockOffsets[i]));
+        }
+        throughput.megabytes += data.length / 1e6;
+    }
+
+    private void decompressAll(Worker worker, Throughput throughput, Blackhole blackhole) throws IOException {
+        for (byte[] block : compressedBlocks) {
+            blackhole.consume(worker.compressor.decompressBytes(block));
+        }
+        throughput.megabytes += data.length / 1e6;
     }
 
+    // Принимает обычные аргументы JMH; по умолчанию запускает этот класс с GCProfiler и SecondaryMetricsProfiler
+    // и пишет результаты в benchmark-results.json (если не задан -rf) и benchmark-results.csv
     public static void main(String[] args) throws Exception {
-        org.openjdk.jmh.Main.main(args);
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+                || commandLine.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .addProfiler(SecondaryMetricsProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(Benchmark.class.getName() + "\\.");
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON).result("benchmark-results.json");
+        }
+        Collection<RunResult> results = new Runner(builder.build()).run();
+        ResultFormatFactory.getInstance(ResultFormatType.CSV, "benchmark-results.csv").writeOut(results);
     }
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Двоичное дерево суффиксов окна (как BT4 в LZMA): у каждой позиции два потомка в son[],
+// поэтому поиск выдаёт все улучшающие совпадения за один спуск и сразу перестраивает дерево
+final class BinaryTreeMatchFinder implements MatchFinder {
+
+    private final int windowLog;
+    private final int hashLog;
+    private final int searchDepth;
+    private final int niceLength;
+
+    private int[] head;
+    private int[] son;
+    private int windowMask;
+    private int hashShift;
+    private byte[] data;
+    private int start;
+    private int end;
+
+    BinaryTreeMatchFinder(int windowLog, int hashLog, int searchDepth, int niceLength) {
+        this.windowLog = windowLog;
+        this.hashLog = hashLog;
+        this.searchDepth = searchDepth;
+        this.niceLength = niceLength;
+    }
+
+    @Override
+    public void reset(byte[] data, int start, int end) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+        int windowBits = Math.min(windowLog, HashChainMatchFinder.tableBits(end - start));
+        int hashBits = Math.min(hashLog, windowBits + 1);
+        if (son == null || son.length < 2 << windowBits) {
+            son = new int[2 << windowBits];
+        }
+        if (head == null || head.length < 1 << hashBits) {
+            head = new int[1 << hashBits];
+        }
+        Arrays.fill(head, 0, 1 << hashBits, -1);
+        windowMask = (1 << windowBits) - 1;
+        hashShift = 32 - hashBits;
+    }
+
+    @Override
+    public int findMatches(int pos, int[] matches) {
+        return search(pos, matches);
+    }
+
+    @Override
+    public void skip(int pos) {
+        search(pos, null);
+    }
+
+    @Override
+    public int maxMatches() {
+        return niceLength + 1;
+    }
+
+    private int search(int pos, int[] matches) {
+        if (pos + MIN_MATCH > end) {
+            return 0;
+        }
+        byte[] in = data;
+        int h = hash(pos);
+        int candidate = head[h];
+        head[h] = pos;
+
+        int lengthLimit = Math.min(niceLength, end - pos);
+        int windowStart = Math.max(start, pos - windowMask);
+        int ptr0 = ((pos & windowMask) << 1) + 1;
+        int ptr1 = (pos & windowMask) << 1;
+        int len0 = 0;
+        int len1 = 0;
+        int best = MIN_MATCH - 1;
+        int count = 0;
+
+        for (int depth = searchDepth; ; depth--) {
+            if (depth == 0 || candidate < windowStart) {
+                son[ptr0] = -1;
+                son[ptr1] = -1;
+                break;
+            }
+            int pair = (candidate & windowMask) << 1;
+            int length = Math.min(len0, len1);
+            if (in[candidate + length] == in[pos + length]) {
+                length += MatchFinder.matchLength(in, candidate + length, pos + length, lengthLimit - length);
+                if (length > best) {
+                    best = length;
+                    if (matches != null) {
+                        matches[count * 2] = length;
+                        matches[count * 2 + 1] = pos - candidate;
+                        count++;
+                    }
+                    if (length == lengthLimit) {
+                        son[ptr1] = son[pair];
+                        son[ptr0] = son[pair + 1];
+                        break;
+                    }
+                }
+            }
+            if ((in[candidate + length] & 0xFF) < (in[pos + length] & 0xFF)) {
+                son[ptr1] = candidate;
+                ptr1 = pair + 1;
+                candidate = son[ptr1];
+                len1 = length;
+            } else {
+                son[ptr0] = candidate;
+                ptr0 = pair;
+                candidate = son[ptr0];
+                len0 = length;
+            }
+        }
+        return count;
+    }
+
+    private int hash(int pos) {
+        byte[] in = data;
+        int v = (in[pos] & 0xFF) | (in[pos + 1] & 0xFF) << 8 | (in[pos + 2] & 0xFF) << 16 | (in[pos + 3] & 0xFF) << 24;
+        return (v * 0x9E3779B1) >>> hashShift;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+// Чтение битов младшим битом вперёд; за концом данных подставляются нули, а их потребление ловит checkOverrun().
+// Его же вызывает каждая подкачка: на обрезанном потоке цикл декодирования падает не позже чем через 64 бита
+final class BitReader {
+
+    private final byte[] buffer;
+    private final int end;
+    private int position;
+    private long bitBuffer;
+    private int bitCount;
+    private int paddingBytes;
+
+    BitReader(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    private void refill() throws IOException {
+        checkOverrun();
+        while (bitCount <= 56) {
+            if (position < end) {
+                bitBuffer |= (long) (buffer[position++] & 0xFF) << bitCount;
+            } else {
+                paddingBytes++;
+            }
+            bitCount += 8;
+        }
+    }
+
+    int peekBits(int count) throws IOException {
+        if (bitCount < count) {
+            refill();
+        }
+        return (int) (bitBuffer & ((1L << count) - 1));
+    }
+
+    void skipBits(int count) {
+        bitBuffer >>>= count;
+        bitCount -= count;
+    }
+
+    int readBits(int count) throws IOException {
+        int value = peekBits(count);
+        skipBits(count);
+        return value;
+    }
+
+    void checkOverrun() throws IOException {
+        if (paddingBytes * 8 > bitCount) {
+            throw new EOFException("Unexpected end of bit stream");
+        }
+    }
+
+    // Отбрасывает биты до границы байта и возвращает позицию следующего непрочитанного байта
+    int alignToByte() throws IOException {
+        skipBits(bitCount & 7);
+        checkOverrun();
+        int bytePosition = position - (bitCount >>> 3) + paddingBytes;
+        bitBuffer = 0;
+        bitCount = 0;
+        paddingBytes = 0;
+        position = bytePosition;
+        return bytePosition;
+    }
+
+    void setBytePosition(int bytePosition) {
+        position = bytePosition;
+        bitBuffer = 0;
+        bitCount = 0;
+        paddingBytes = 0;
+    }
+
+    int limit() {
+        return end;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Запись битов младшим битом вперёд (порядок DEFLATE) через 64-битный аккумулятор
+final class BitWriter {
+
+    private byte[] buffer;
+    private int position;
+    private long bitBuffer;
+    private int bitCount;
+
+    BitWriter(int initialCapacity) {
+        buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    void reset() {
+        position = 0;
+        bitBuffer = 0;
+        bitCount = 0;
+    }
+
+    void writeBits(int value, int count) {
+        bitBuffer |= ((long) value & ((1L << count) - 1)) << bitCount;
+        bitCount += count;
+        if (bitCount >= 32) {
+            ensureCapacity(4);
+            buffer[position++] = (byte) bitBuffer;
+            buffer[position++] = (byte) (bitBuffer >>> 8);
+            buffer[position++] = (byte) (bitBuffer >>> 16);
+            buffer[position++] = (byte) (bitBuffer >>> 24);
+            bitBuffer >>>= 32;
+            bitCount -= 32;
+        }
+    }
+
+    void alignToByte() {
+        ensureCapacity(8);
+        while (bitCount > 0) {
+            buffer[position++] = (byte) bitBuffer;
+            bitBuffer >>>= 8;
+            bitCount -= 8;
+        }
+        bitBuffer = 0;
+        bitCount = 0;
+    }
+
+    // Только после alignToByte()
+    void writeBytes(byte[] src, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(src, offset, buffer, position, length);
+        position += length;
+    }
+
+    long bitLength() {
+        return (long) position * 8 + bitCount;
+    }
+
+    byte[] toByteArray() {
+        alignToByte();
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+}
\ No newline at end of file
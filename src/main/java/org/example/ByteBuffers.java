@@ -0,0 +1,56 @@
+package org.example;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+final class ByteBuffers {
+
+    private ByteBuffers() {
+    }
+
+    static byte[] toArray(ByteBuffer buffer) {
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+
+    static ByteBuffer wrap(byte[] data, boolean direct) {
+        if (!direct) {
+            return ByteBuffer.wrap(data);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
+    // Немедленно освобождает прямой или отображённый буфер, не дожидаясь GC: иначе при обходе файла
+    // в несколько ГБ отображения копятся до сборки мусора. Java 9+ - Unsafe.invokeCleaner, Java 8 - Cleaner;
+    // если ни то ни другое недоступно, буфер просто остаётся на GC. После вызова буфер использовать нельзя
+    static void release(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8: метода invokeCleaner нет
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Освободится при сборке мусора
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// Внутренние циклы по байтам: длина общего префикса (продление совпадений LZ77, сравнение памяти) и гистограмма.
+// Здесь скалярные версии для Java 8; профиль jdk17 добавляет SwarByteKernels (по 8 байт словом через VarHandle)
+// и VectorByteKernels (jdk.incubator.vector, нужен --add-modules jdk.incubator.vector). INSTANCE выбирается
+// при загрузке: -Dorg.example.kernels=scalar|swar|vector, иначе самая быстрая из доступных.
+// INSTANCE - static final, так что JIT знает точный класс и встраивает методы
+class ByteKernels {
+
+    static final String PROPERTY = "org.example.kernels";
+    static final String[] NAMES = {"vector", "swar", "scalar"};
+    // Ниже этой длины лишние таблицы гистограммы не окупают своё выделение и сложение
+    static final int MULTI_TABLE_MIN_LENGTH = 1 << 16;
+
+    static final ByteKernels INSTANCE = select();
+
+    ByteKernels() {
+    }
+
+    String name() {
+        return "scalar";
+    }
+
+    // Длина общего префикса a[aOffset..] и b[bOffset..], не больше length
+    int mismatch(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int i = 0;
+        while (i < length && a[aOffset + i] == b[bOffset + i]) {
+            i++;
+        }
+        return i;
+    }
+
+    boolean equals(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        return mismatch(a, aOffset, b, bOffset, length) == length;
+    }
+
+    // Добавляет частоты байтов data[offset, offset + length) к counts[0..256). Четыре таблицы по очереди:
+    // подряд идущие одинаковые байты не ждут друг друга на инкременте одной ячейки
+    void histogram(byte[] data, int offset, int length, int[] counts) {
+        if (length < MULTI_TABLE_MIN_LENGTH) {
+            for (int i = offset; i < offset + length; i++) {
+                counts[data[i] & 0xFF]++;
+            }
+            return;
+        }
+        int[] tables = new int[4 * 256];
+        int i = offset;
+        for (int end = offset + (length & ~3); i < end; i += 4) {
+            tables[data[i] & 0xFF]++;
+            tables[256 + (data[i + 1] & 0xFF)]++;
+            tables[512 + (data[i + 2] & 0xFF)]++;
+            tables[768 + (data[i + 3] & 0xFF)]++;
+        }
+        for (; i < offset + length; i++) {
+            tables[data[i] & 0xFF]++;
+        }
+        for (int c = 0; c < 256; c++) {
+            counts[c] += tables[c] + tables[256 + c] + tables[512 + c] + tables[768 + c];
+        }
+    }
+
+    // null, если реализация не собрана или не поддерживается этой JVM
+    static ByteKernels forName(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "scalar":
+                return new ByteKernels();
+            case "swar":
+                return load("org.example.SwarByteKernels");
+            case "vector":
+                return load("org.example.VectorByteKernels");
+            default:
+                throw new IllegalArgumentException("Unknown kernels " + name + ", expected scalar, swar or vector");
+        }
+    }
+
+    private static ByteKernels select() {
+        String requested = System.getProperty(PROPERTY);
+        if (requested != null) {
+            ByteKernels kernels = forName(requested);
+            return kernels != null ? kernels : new ByteKernels();
+        }
+        for (String name : NAMES) {
+            ByteKernels kernels = forName(name);
+            if (kernels != null) {
+                return kernels;
+            }
+        }
+        return new ByteKernels();
+    }
+
+    // Классы из src/main/java17 на Java 8 не загрузятся (версия class-файла), векторные - без модуля incubator
+    private static ByteKernels load(String className) {
+        try {
+            ByteKernels kernels = (ByteKernels) Class.forName(className).getDeclaredConstructor().newInstance();
+            kernels.selfTest();
+            return kernels;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Быстрая проверка на краях слов и векторов: неисправная реализация не выбирается
+    private void selfTest() {
+        byte[] a = new byte[200];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = (byte) (i * 31);
+        }
+        byte[] b = a.clone();
+        ByteKernels scalar = new ByteKernels();
+        for (int at = 0; at < 100; at += 7) {
+            b[at + 50]++;
+            for (int length = 0; length <= 150; length += 13) {
+                if (mismatch(a, at, b, at, length) != scalar.mismatch(a, at, b, at, length)) {
+                    throw new IllegalStateException(name() + " mismatch() disagrees with the scalar kernel");
+                }
+            }
+            b[at + 50]--;
+        }
+        byte[] large = new byte[MULTI_TABLE_MIN_LENGTH + 11];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) (i * i >>> 3);
+        }
+        for (byte[] data : new byte[][]{a, large}) {
+            int[] expected = new int[256];
+            int[] actual = new int[256];
+            scalar.histogram(data, 3, data.length - 3, expected);
+            histogram(data, 3, data.length - 3, actual);
+            if (!Arrays.equals(expected, actual)) {
+                throw new IllegalStateException(name() + " histogram() disagrees with the scalar kernel");
+            }
+        }
+    }
+}
\ No newline at end of file
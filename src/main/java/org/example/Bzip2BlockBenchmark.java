@@ -0,0 +1,55 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+public class Bzip2BlockBenchmark {
+
+    @Param({"100000", "900000"})
+    private int blockSize;
+
+    @Param({"1", "2", "4"})
+    private int threads;
+
+    private byte[] data;
+    private byte[] compressed;
+    private ExecutorService executor;
+    private Bzip2Compression bzip2Compressor;
+
+    @Setup
+    public void setup() throws IOException {
+        data = Files.readAllBytes(Paths.get("test1.txt"));
+        executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        bzip2Compressor = new Bzip2Compression(blockSize, executor);
+        compressed = bzip2Compressor.compress(data);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] benchmarkBzip2Compression() throws IOException {
+        return bzip2Compressor.compress(data);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] benchmarkBzip2Decompression() throws IOException {
+        return bzip2Compressor.decompressBytes(compressed);
+    }
+}
\ No newline at end of file
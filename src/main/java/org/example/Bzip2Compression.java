@@ -1,180 +1,440 @@
 package org.example;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
-public class Bzip2Compression {
+public class Bzip2Compression implements Compressor {
 
-    public byte[] compress(String input) throws IOException {
-        String bwt = burrowsWheelerTransform(input);
-        int[] mtf = moveToFrontEncode(bwt);
-        ByteArrayOutputStream rle = runLengthEncode(mtf);
-        return rle.toByteArray();
+    public static final int MIN_BLOCK_SIZE = 100_000;
+    public static final int MAX_BLOCK_SIZE = 900_000;
+    // Блок делится на столько участков, обратное BWT идёт по всем сразу: промахи кэша соседних участков
+    // перекрываются. Для каждого участка в заголовке блока хранится стартовая строка
+    public static final int DEFAULT_BWT_STREAMS = 8;
+    public static final int MAX_BWT_STREAMS = 16;
+
+    private static final byte[] STREAM_MAGIC = {'B', 'Z', 'c'};
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_OF_STREAM_MAGIC = 0x177245385090L;
+    // Магия, длина, primary index, число участков, CRC и длина данных блока с одним участком
+    private static final int MIN_BLOCK_HEADER_SIZE = 6 + 4 + 4 + 1 + 4 + 4;
+
+    private final SuffixArrayAlgorithm suffixArrayAlgorithm;
+    private final int blockSize;
+    private final ExecutorService executor;
+    private final int bwtStreams;
+    // Буферы блока, рабочие массивы SA-IS и Хаффмана переиспользуются между вызовами
+    private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<>();
+
+    public Bzip2Compression() {
+        this(SuffixArrayAlgorithm.SAIS);
     }
 
-    public String decompress(byte[] compressedData) throws IOException {
-        int[] rld = runLengthDecode(compressedData);
-        String mtfd = moveToFrontDecode(rld);
-        return inverseBurrowsWheelerTransform(mtfd);
+    public Bzip2Compression(SuffixArrayAlgorithm suffixArrayAlgorithm) {
+        this(suffixArrayAlgorithm, MAX_BLOCK_SIZE, null);
     }
 
-    private String burrowsWheelerTransform(String input) {
-        int len = input.length();
-        StringBuilder bwt = new StringBuilder(len);
-        int[] suffixArray = buildSuffixArray(input);
+    public Bzip2Compression(int blockSize) {
+        this(SuffixArrayAlgorithm.SAIS, blockSize, null);
+    }
 
-        for (int i = 0; i < len; i++) {
-            int suffixIndex = suffixArray[i];
-            char bwtChar = suffixIndex == 0 ? input.charAt(len - 1) : input.charAt(suffixIndex - 1);
-            bwt.append(bwtChar);
-        }
-        return bwt.toString();
+    public Bzip2Compression(int blockSize, ExecutorService executor) {
+        this(SuffixArrayAlgorithm.SAIS, blockSize, executor);
     }
 
-    private int[] moveToFrontEncode(String input) {
-        List<Character> symbols = new ArrayList<>();
-        for (int i = 0; i < 256; i++) {
-            symbols.add((char) i);
+    // executor == null: все блоки обрабатываются в вызывающем потоке
+    public Bzip2Compression(SuffixArrayAlgorithm suffixArrayAlgorithm, int blockSize, ExecutorService executor) {
+        this(suffixArrayAlgorithm, blockSize, executor, DEFAULT_BWT_STREAMS);
+    }
+
+    // bwtStreams = 1 - обратное BWT одной цепочкой, как в классическом bzip2
+    public Bzip2Compression(SuffixArrayAlgorithm suffixArrayAlgorithm, int blockSize, ExecutorService executor,
+                            int bwtStreams) {
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between " + MIN_BLOCK_SIZE
+                    + " and " + MAX_BLOCK_SIZE + ": " + blockSize);
         }
-        int[] mtf = new int[input.length()];
-        for (int i = 0; i < input.length(); i++) {
-            char curr = input.charAt(i);
-            int index = symbols.indexOf(curr);
-            mtf[i] = index;
-            symbols.remove(index);
-            symbols.add(0, curr);
+        if (bwtStreams < 1 || bwtStreams > MAX_BWT_STREAMS) {
+            throw new IllegalArgumentException("BWT stream count must be between 1 and " + MAX_BWT_STREAMS + ": " + bwtStreams);
         }
-        return mtf;
+        this.suffixArrayAlgorithm = suffixArrayAlgorithm;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.bwtStreams = bwtStreams;
     }
 
-    private ByteArrayOutputStream runLengthEncode(int[] input) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        int count = 1;
-        for (int i = 1; i < input.length; i++) {
-            if (input[i] == input[i - 1]) {
-                count++;
-            } else {
-                bos.write(input[i - 1]);
-                bos.write(count);
-                count = 1;
-            }
-        }
-        bos.write(input[input.length - 1]);
-        bos.write(count);
-        return bos;
+    public byte[] compress(String input) throws IOException {
+        return compress(input.getBytes(StandardCharsets.UTF_8));
     }
 
-    private int[] runLengthDecode(byte[] input) {
-        List<Integer> decodedList = new ArrayList<>();
-        for (int i = 0; i < input.length; i += 2) {
-            int symbol = input[i] & 0xFF;
-            int count = input[i + 1] & 0xFF;
-            for (int j = 0; j < count; j++) {
-                decodedList.add(symbol);
-            }
-        }
-        return decodedList.stream().mapToInt(i -> i).toArray();
+    public String decompress(byte[] compressedData) throws IOException {
+        return new String(decompressBytes(compressedData), StandardCharsets.UTF_8);
     }
 
-    private String moveToFrontDecode(int[] input) {
-        List<Character> symbols = new ArrayList<>();
-        for (int i = 0; i < 256; i++) {
-            symbols.add((char) i);
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) throws IOException {
+        int blockCount = (length + blockSize - 1) / blockSize;
+        List<Callable<Block>> tasks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            final int blockOffset = offset + i * blockSize;
+            final int blockLength = Math.min(blockSize, length - i * blockSize);
+            tasks.add(() -> compressBlock(input, blockOffset, blockLength));
         }
-        StringBuilder decoded = new StringBuilder(input.length);
-        for (int index : input) {
-            char curr = symbols.get(index);
-            decoded.append(curr);
-            symbols.remove(index);
-            symbols.add(0, curr);
+        List<Block> blocks = runAll(tasks);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(length / 2 + 64);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.write(STREAM_MAGIC);
+        out.writeInt(blockSize);
+        out.writeInt(blockCount);
+        int combinedCrc = 0;
+        for (Block block : blocks) {
+            writeMagic(out, BLOCK_MAGIC);
+            out.writeInt(block.originalLength);
+            out.writeInt(block.primaryIndex);
+            out.writeByte(block.streamStarts.length);
+            for (int s = 1; s < block.streamStarts.length; s++) {
+                out.writeInt(block.streamStarts[s]);
+            }
+            out.writeInt(block.crc);
+            out.writeInt(block.payload.length);
+            out.write(block.payload);
+            combinedCrc = (combinedCrc << 1 | combinedCrc >>> 31) ^ block.crc;
         }
-        return decoded.toString();
+        writeMagic(out, END_OF_STREAM_MAGIC);
+        out.writeInt(combinedCrc);
+        out.flush();
+        return bos.toByteArray();
     }
 
-    private String inverseBurrowsWheelerTransform(String input) {
-        int n = input.length();
-        int[] count = new int[256];
-        int[] next = new int[n];
+    @Override
+    public byte[] decompress(byte[] compressedData, int offset, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(compressedData, offset, length));
+        byte[] magic = new byte[STREAM_MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, STREAM_MAGIC)) {
+            throw new IOException("Not a Bzip2Compression stream");
+        }
+        in.readInt();
+        int blockCount = in.readInt();
+        if (blockCount < 0 || blockCount > in.available() / MIN_BLOCK_HEADER_SIZE) {
+            throw new IOException("Bad block count: " + blockCount);
+        }
 
-        for (int i = 0; i < n; i++) {
-            count[input.charAt(i)]++;
+        List<Block> blocks = new ArrayList<>(blockCount);
+        long totalLength = 0;
+        for (int i = 0; i < blockCount; i++) {
+            if (readMagic(in) != BLOCK_MAGIC) {
+                throw new IOException("Bad block magic in block " + i);
+            }
+            Block block = new Block();
+            block.originalLength = in.readInt();
+            if (block.originalLength < 0 || block.originalLength > MAX_BLOCK_SIZE) {
+                throw new IOException("Bad block length in block " + i);
+            }
+            int n = block.originalLength;
+            block.primaryIndex = in.readInt();
+            if (block.primaryIndex < 0 || (n > 0 && block.primaryIndex >= n)) {
+                throw new IOException("Bad primary index in block " + i);
+            }
+            int streams = in.readUnsignedByte();
+            if (streams < 1 || streams > MAX_BWT_STREAMS || (streams - 1) * 4 > in.available()) {
+                throw new IOException("Bad BWT stream count in block " + i);
+            }
+            // Участок s начинается с позиции s * stride в BWT, то есть со строки из [1, n]. У участков
+            // за концом короткого блока старта нет, кодер пишет 0
+            int stride = streamStride(n, streams);
+            block.streamStarts = new int[streams];
+            block.streamStarts[0] = block.primaryIndex + 1;
+            for (int s = 1; s < streams; s++) {
+                int start = in.readInt();
+                if ((long) s * stride < n ? start < 1 || start > n : start != 0) {
+                    throw new IOException("Bad BWT stream start in block " + i);
+                }
+                block.streamStarts[s] = start;
+            }
+            block.crc = in.readInt();
+            int payloadLength = in.readInt();
+            if (payloadLength < 0 || payloadLength > in.available()) {
+                throw new IOException("Bad payload length in block " + i + ": " + payloadLength);
+            }
+            block.payload = new byte[payloadLength];
+            in.readFully(block.payload);
+            blocks.add(block);
+            totalLength += block.originalLength;
+        }
+        if (readMagic(in) != END_OF_STREAM_MAGIC) {
+            throw new IOException("Bad end of stream magic");
+        }
+        int expectedCombinedCrc = in.readInt();
+        if (totalLength > Integer.MAX_VALUE) {
+            throw new IOException("Decompressed size too large: " + totalLength);
         }
 
-        int[] cumulative = new int[256];
-        for (int i = 1; i < 256; i++) {
-            cumulative[i] = cumulative[i - 1] + count[i - 1];
+        byte[] output = new byte[(int) totalLength];
+        List<Callable<Block>> tasks = new ArrayList<>(blockCount);
+        int outputOffset = 0;
+        for (Block block : blocks) {
+            final int blockOffset = outputOffset;
+            tasks.add(() -> decompressBlock(block, output, blockOffset));
+            outputOffset += block.originalLength;
         }
+        runAll(tasks);
 
-        for (int i = 0; i < n; i++) {
-            next[cumulative[input.charAt(i)]++] = i;
+        int combinedCrc = 0;
+        for (Block block : blocks) {
+            combinedCrc = (combinedCrc << 1 | combinedCrc >>> 31) ^ block.crc;
+        }
+        if (combinedCrc != expectedCombinedCrc) {
+            throw new IOException("Combined CRC mismatch");
         }
+        return output;
+    }
 
-        StringBuilder orig = new StringBuilder(n);
-        int ptr = next[0];
-        for (int i = 0; i < n; i++) {
-            orig.append(input.charAt(ptr));
-            ptr = next[ptr];
+    private Block compressBlock(byte[] input, int offset, int length) {
+        Block block = new Block();
+        block.originalLength = length;
+        block.crc = crc(input, offset, length);
+        Context context = acquire();
+        try {
+            byte[] bwt = context.block(length);
+            block.streamStarts = new int[bwtStreams];
+            long start = CodecMetrics.start();
+            block.primaryIndex = burrowsWheelerTransform(input, offset, length, bwt, block.streamStarts, context.suffixArrays);
+            CodecMetrics.record(CodecMetrics.Stage.SUFFIX_SORT, start, length);
+            start = CodecMetrics.start();
+            context.moveToFront.encode(bwt, 0, length, bwt, 0);
+            CodecMetrics.record(CodecMetrics.Stage.MTF_ENCODE, start, length);
+            start = CodecMetrics.start();
+            byte[] rle = context.rle(RunLengthCodec.maxEncodedLength(length));
+            int rleLength = RunLengthCodec.encode(bwt, 0, length, rle, 0);
+            CodecMetrics.record(CodecMetrics.Stage.RLE_ENCODE, start, length);
+            start = CodecMetrics.start();
+            block.payload = CanonicalHuffman.encode(rle, 0, rleLength, context.huffman);
+            CodecMetrics.record(CodecMetrics.Stage.HUFFMAN_ENCODE, start, length);
+        } finally {
+            contexts.offer(context);
         }
+        return block;
+    }
 
-        return orig.toString();
+    private Block decompressBlock(Block block, byte[] output, int offset) throws IOException {
+        int n = block.originalLength;
+        Context context = acquire();
+        try {
+            long start = CodecMetrics.start();
+            int rleLength = CanonicalHuffman.decode(block.payload, 0, block.payload.length, context.huffman);
+            CodecMetrics.record(CodecMetrics.Stage.HUFFMAN_DECODE, start, n);
+            start = CodecMetrics.start();
+            byte[] mtfd = context.block(n);
+            int decoded = RunLengthCodec.decode(context.huffman.decoded(rleLength), 0, rleLength, mtfd, 0, n);
+            if (decoded != n) {
+                throw new IOException("Corrupt block header");
+            }
+            CodecMetrics.record(CodecMetrics.Stage.RLE_DECODE, start, n);
+            start = CodecMetrics.start();
+            context.moveToFront.decode(mtfd, 0, n, mtfd, 0);
+            CodecMetrics.record(CodecMetrics.Stage.MTF_DECODE, start, n);
+            start = CodecMetrics.start();
+            inverseBurrowsWheelerTransform(mtfd, n, block.primaryIndex, block.streamStarts, output, offset,
+                    context.cumulative, context.tt(n + 1));
+            CodecMetrics.record(CodecMetrics.Stage.INVERSE_BWT, start, n);
+        } finally {
+            contexts.offer(context);
+        }
+        if (crc(output, offset, n) != block.crc) {
+            throw new IOException("Block CRC mismatch");
+        }
+        return block;
     }
 
-    private int[] buildSuffixArray(String text) {
-        int n = text.length();
-        Suffix[] suffixes = new Suffix[n];
+    // Блоки из разных потоков executor берут разные контексты
+    private Context acquire() {
+        Context context = contexts.poll();
+        return context != null ? context : new Context();
+    }
 
-        for (int i = 0; i < n; i++) {
-            suffixes[i] = new Suffix();
-            suffixes[i].index = i;
-            suffixes[i].rank = text.charAt(i);
-            suffixes[i].nextRank = (i + 1 < n) ? text.charAt(i + 1) : -1;
+    private <T> List<T> runAll(List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (executor == null || tasks.size() < 2) {
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException(e);
+                }
+            }
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
         }
+        return results;
+    }
 
-        Arrays.sort(suffixes);
+    private static int crc(byte[] data, int offset, int length) {
+        return Crc32.compute(data, offset, length);
+    }
 
-        int[] ind = new int[n];
-        for (int length = 4; length < 2 * n; length *= 2) {
-            int rank = 0, prevRank = suffixes[0].rank;
-            suffixes[0].rank = rank;
-            ind[suffixes[0].index] = 0;
+    private static void writeMagic(DataOutputStream out, long magic) throws IOException {
+        out.writeShort((int) (magic >>> 32));
+        out.writeInt((int) magic);
+    }
 
-            for (int i = 1; i < n; i++) {
-                if (suffixes[i].rank == prevRank && suffixes[i].nextRank == suffixes[i - 1].nextRank) {
-                    prevRank = suffixes[i].rank;
-                    suffixes[i].rank = rank;
-                } else {
-                    prevRank = suffixes[i].rank;
-                    suffixes[i].rank = ++rank;
+    private static long readMagic(DataInputStream in) throws IOException {
+        return ((long) in.readUnsignedShort() << 32) | (in.readInt() & 0xFFFFFFFFL);
+    }
+
+    // Возвращает номер строки, в которой стоит суффикс 0 (primary index)
+    int burrowsWheelerTransform(byte[] input, int offset, int len, byte[] bwt) {
+        return burrowsWheelerTransform(input, offset, len, bwt, null, new SuffixArrays.Workspace());
+    }
+
+    // streamStarts[s] получает строку полной матрицы (см. обратное преобразование), с которой начинается
+    // участок s: его суффикс s * streamStride
+    int burrowsWheelerTransform(byte[] input, int offset, int len, byte[] bwt, int[] streamStarts,
+                                SuffixArrays.Workspace workspace) {
+        int[] suffixArray = suffixArrayAlgorithm.build(input, offset, len, workspace);
+        int primaryIndex = 0;
+
+        for (int i = 0; i < len; i++) {
+            int suffixIndex = suffixArray[i];
+            if (suffixIndex == 0) {
+                primaryIndex = i;
+                bwt[i] = input[offset + len - 1];
+            } else {
+                bwt[i] = input[offset + suffixIndex - 1];
+            }
+        }
+        if (streamStarts != null) {
+            int stride = streamStride(len, streamStarts.length);
+            for (int i = 0; i < len; i++) {
+                int suffixIndex = suffixArray[i];
+                if (suffixIndex % stride == 0) {
+                    streamStarts[suffixIndex / stride] = i + 1;
                 }
-                ind[suffixes[i].index] = i;
             }
+        }
+        return primaryIndex;
+    }
 
-            for (int i = 0; i < n; i++) {
-                int nextIndex = suffixes[i].index + length / 2;
-                suffixes[i].nextRank = (nextIndex < n) ? suffixes[ind[nextIndex]].rank : -1;
-            }
+    static int streamStride(int n, int streams) {
+        return Math.max(1, (n + streams - 1) / streams);
+    }
 
-            Arrays.sort(suffixes);
+    // Полная матрица поворотов T$ имеет n + 1 строку: строка 0 ("$T") хранится в bwt[primaryIndex],
+    // а строка primaryIndex + 1 заканчивается сентинелом. Как в быстром декодере bzip2, tt[row] упаковывает
+    // следующую строку (старшие 24 бита) и её выходной байт, так что на байт приходится одно случайное
+    // чтение вместо двух. Участки streamStarts декодируются вперемешку: их цепочки независимы,
+    // и процессор держит в полёте несколько промахов кэша одновременно
+    static void inverseBurrowsWheelerTransform(byte[] bwt, int n, int primaryIndex, int[] streamStarts,
+                                               byte[] output, int offset, int[] cumulative, int[] tt) {
+        Arrays.fill(cumulative, 0);
+        ByteKernels.INSTANCE.histogram(bwt, 0, n, cumulative);
+        System.arraycopy(cumulative, 0, cumulative, 1, 256);
+        cumulative[0] = 1;
+        for (int i = 1; i < 257; i++) {
+            cumulative[i] += cumulative[i - 1];
         }
 
-        int[] suffixArr = new int[n];
-        for (int i = 0; i < n; i++) {
-            suffixArr[i] = suffixes[i].index;
+        tt[0] = (primaryIndex + 1) << 8;
+        for (int row = 0; row <= n; row++) {
+            if (row == primaryIndex + 1) {
+                continue;
+            }
+            int c = (row == 0 ? bwt[primaryIndex] : bwt[row - 1]) & 0xFF;
+            tt[cumulative[c]++] = row << 8 | c;
         }
 
-        return suffixArr;
+        int streams = streamStarts.length;
+        if (streams == 1) {
+            int ptr = primaryIndex + 1;
+            for (int i = offset, end = offset + n; i < end; i++) {
+                int entry = tt[ptr];
+                output[i] = (byte) entry;
+                ptr = entry >>> 8;
+            }
+            return;
+        }
+        int stride = streamStride(n, streams);
+        int[] ptr = streamStarts.clone();
+        // Все участки, кроме, возможно, последних, длиной stride; хвосты дописываются по одному
+        int full = n / stride;
+        for (int j = 0; j < stride; j++) {
+            for (int s = 0; s < full; s++) {
+                int entry = tt[ptr[s]];
+                output[offset + s * stride + j] = (byte) entry;
+                ptr[s] = entry >>> 8;
+            }
+        }
+        for (int i = offset + full * stride, end = offset + n; i < end; i++) {
+            int entry = tt[ptr[full]];
+            output[i] = (byte) entry;
+            ptr[full] = entry >>> 8;
+        }
     }
 
-    private static class Suffix implements Comparable<Suffix> {
-        int index;
-        int rank;
-        int nextRank;
+    private static final class Context {
+        final MoveToFront moveToFront = new MoveToFront();
+        final CanonicalHuffman.Workspace huffman = new CanonicalHuffman.Workspace();
+        final SuffixArrays.Workspace suffixArrays = new SuffixArrays.Workspace();
+        final int[] cumulative = new int[257];
+        private byte[] block = new byte[0];
+        private byte[] rle = new byte[0];
+        private int[] tt = new int[0];
 
-        public int compareTo(Suffix s) {
-            if (rank != s.rank) {
-                return Integer.compare(rank, s.rank);
+        byte[] block(int length) {
+            if (block.length < length) {
+                block = new byte[length];
             }
-            return Integer.compare(nextRank, s.nextRank);
+            return block;
         }
+
+        byte[] rle(int length) {
+            if (rle.length < length) {
+                rle = new byte[length];
+            }
+            return rle;
+        }
+
+        int[] tt(int length) {
+            if (tt.length < length) {
+                tt = new int[length];
+            }
+            return tt;
+        }
+    }
+
+    private static class Block {
+        int originalLength;
+        int primaryIndex;
+        int[] streamStarts;
+        int crc;
+        byte[] payload;
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Каждая операция обрабатывает ровно 1 МиБ, поэтому ops/s в отчёте JMH равны МиБ/с
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+public class Bzip2StageBenchmark {
+
+    private static final int STAGE_INPUT_SIZE = 1 << 20;
+
+    private byte[] bwt;
+    private byte[] mtf;
+    private byte[] rle;
+    private int rleLength;
+    private byte[] output;
+    private MoveToFront moveToFront;
+    private int primaryIndex;
+    private int[] singleStream;
+    private int[] interleavedStreams;
+    private int[] cumulative;
+    private int[] tt;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] text = Arrays.copyOf(Files.readAllBytes(Paths.get("test1.txt")), STAGE_INPUT_SIZE);
+        bwt = new byte[STAGE_INPUT_SIZE];
+        Bzip2Compression bzip2 = new Bzip2Compression();
+        interleavedStreams = new int[Bzip2Compression.DEFAULT_BWT_STREAMS];
+        primaryIndex = bzip2.burrowsWheelerTransform(text, 0, STAGE_INPUT_SIZE, bwt, interleavedStreams,
+                new SuffixArrays.Workspace());
+        singleStream = new int[]{primaryIndex + 1};
+        cumulative = new int[257];
+        tt = new int[STAGE_INPUT_SIZE + 1];
+
+        moveToFront = new MoveToFront();
+        mtf = new byte[STAGE_INPUT_SIZE];
+        moveToFront.encode(bwt, 0, STAGE_INPUT_SIZE, mtf, 0);
+        rle = new byte[RunLengthCodec.maxEncodedLength(STAGE_INPUT_SIZE)];
+        rleLength = RunLengthCodec.encode(mtf, 0, STAGE_INPUT_SIZE, rle, 0);
+        output = new byte[RunLengthCodec.maxEncodedLength(STAGE_INPUT_SIZE)];
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] benchmarkMoveToFrontEncode() {
+        moveToFront.encode(bwt, 0, STAGE_INPUT_SIZE, output, 0);
+        return output;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] benchmarkMoveToFrontDecode() {
+        moveToFront.decode(mtf, 0, STAGE_INPUT_SIZE, output, 0);
+        return output;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int benchmarkRunLengthEncode() {
+        return RunLengthCodec.encode(mtf, 0, STAGE_INPUT_SIZE, output, 0);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int benchmarkRunLengthDecode() throws IOException {
+        return RunLengthCodec.decode(rle, 0, rleLength, output, 0, STAGE_INPUT_SIZE);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] benchmarkInverseBwt() {
+        Bzip2Compression.inverseBurrowsWheelerTransform(bwt, STAGE_INPUT_SIZE, primaryIndex, singleStream, output, 0,
+                cumulative, tt);
+        return output;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] benchmarkInverseBwtInterleaved() {
+        Bzip2Compression.inverseBurrowsWheelerTransform(bwt, STAGE_INPUT_SIZE, primaryIndex, interleavedStreams, output, 0,
+                cumulative, tt);
+        return output;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,355 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Канонический код Хаффмана с ограничением длины кода: построение длин, коды для записи
+// младшим битом вперёд, компактный заголовок таблицы и табличное декодирование.
+// Запись таблицы декодирования = (символ << 4) | длина кода, 0 - недопустимый код
+final class CanonicalHuffman {
+
+    static final int MAX_CODE_LENGTH = 15;
+
+    private CanonicalHuffman() {
+    }
+
+    // Кодирует байты одной таблицей: 32 бита длины, заголовок таблицы, коды
+    static byte[] encode(byte[] input, int offset, int length) {
+        return encode(input, offset, length, new Workspace());
+    }
+
+    static byte[] encode(byte[] input, int offset, int length, Workspace workspace) {
+        return encode(input, offset, length, null, workspace);
+    }
+
+    // С заранее известной таблицей (preset != null) после длины идёт бит выбора: 1 - коды preset без заголовка,
+    // 0 - своя таблица. Берётся то, что короче вместе с заголовком
+    static byte[] encode(byte[] input, int offset, int length, Table preset, Workspace workspace) {
+        BitWriter out = workspace.writer(length / 2 + 64);
+        encode(input, offset, length, preset, workspace, out);
+        return out.toByteArray();
+    }
+
+    // Дописывает закодированный блок в out, например после заголовка кадра
+    static void encode(byte[] input, int offset, int length, Table preset, Workspace workspace, BitWriter out) {
+        int[] freq = workspace.freq;
+        Arrays.fill(freq, 0, 256, 0);
+        ByteKernels.INSTANCE.histogram(input, offset, length, freq);
+        int[] lengths = workspace.lengths;
+        buildLengths(freq, 256, MAX_CODE_LENGTH, lengths, workspace);
+        boolean usePreset = preset != null
+                && preset.cost(freq) <= cost(freq, lengths, 256) + lengthsCost(lengths, 256);
+        int[] codes = usePreset ? preset.codes : canonicalCodes(lengths, 256, workspace.codes);
+        if (usePreset) {
+            lengths = preset.lengths;
+        }
+
+        out.writeBits(length, 32);
+        if (length > 0) {
+            if (preset != null) {
+                out.writeBits(usePreset ? 1 : 0, 1);
+            }
+            if (!usePreset) {
+                writeLengths(out, lengths, 256);
+            }
+            for (int i = offset; i < offset + length; i++) {
+                int symbol = input[i] & 0xFF;
+                out.writeBits(codes[symbol], lengths[symbol]);
+            }
+        }
+    }
+
+    static byte[] decode(byte[] input, int offset, int length) throws IOException {
+        Workspace workspace = new Workspace();
+        int outputLength = decode(input, offset, length, workspace);
+        byte[] output = workspace.decoded(outputLength);
+        return output.length == outputLength ? output : Arrays.copyOf(output, outputLength);
+    }
+
+    // Результат - первые возвращённые байты workspace.decoded(): буфер переиспользуется следующим вызовом
+    static int decode(byte[] input, int offset, int length, Workspace workspace) throws IOException {
+        return decode(input, offset, length, null, workspace);
+    }
+
+    static int decode(byte[] input, int offset, int length, Table preset, Workspace workspace) throws IOException {
+        BitReader in = new BitReader(input, offset, length);
+        int outputLength = in.readBits(32);
+        in.checkOverrun();
+        // Код символа не короче бита: длина сверх 8 бит на байт входа - порча, а не повод выделять гигабайты
+        if (outputLength < 0 || outputLength > 8L * length) {
+            throw new IOException("Corrupt Huffman block length: " + outputLength);
+        }
+        byte[] output = workspace.decoded(outputLength);
+        if (outputLength == 0) {
+            return 0;
+        }
+        int[] table;
+        if (preset != null && in.readBits(1) == 1) {
+            table = preset.decodeTable;
+        } else {
+            int[] lengths = workspace.lengths;
+            readLengths(in, lengths, 256);
+            table = buildDecodeTable(lengths, 256, workspace.tables);
+        }
+        int bits = tableBits(table);
+        for (int i = 0; i < outputLength; i++) {
+            output[i] = (byte) decodeSymbol(in, table, bits);
+        }
+        in.checkOverrun();
+        return outputLength;
+    }
+
+    // Длина каждого символа: бит 0 - как у предыдущего, иначе бит 1 и 4 бита новой длины
+    static void writeLengths(BitWriter out, int[] lengths, int n) {
+        int previous = 0;
+        for (int i = 0; i < n; i++) {
+            if (lengths[i] == previous) {
+                out.writeBits(0, 1);
+            } else {
+                out.writeBits(1 | lengths[i] << 1, 5);
+                previous = lengths[i];
+            }
+        }
+    }
+
+    static int lengthsCost(int[] lengths, int n) {
+        int bits = 0;
+        int previous = 0;
+        for (int i = 0; i < n; i++) {
+            bits += lengths[i] == previous ? 1 : 5;
+            previous = lengths[i];
+        }
+        return bits;
+    }
+
+    static void readLengths(BitReader in, int[] lengths, int n) throws IOException {
+        int previous = 0;
+        for (int i = 0; i < n; i++) {
+            if (in.readBits(1) == 1) {
+                previous = in.readBits(4);
+            }
+            lengths[i] = previous;
+        }
+        in.checkOverrun();
+    }
+
+    // Хаффман двумя очередями по отсортированным листьям; при превышении maxBits частоты огрубляются
+    static void buildLengths(int[] freq, int n, int maxBits, int[] lengths, Workspace workspace) {
+        int[] scaled = workspace.scaled;
+        System.arraycopy(freq, 0, scaled, 0, n);
+        long[] leaves = workspace.leaves;
+        long[] nodeWeight = workspace.nodeWeight;
+        int[] parent = workspace.parent;
+        int[] depth = workspace.depth;
+        while (true) {
+            Arrays.fill(lengths, 0, n, 0);
+            int used = 0;
+            for (int i = 0; i < n; i++) {
+                if (scaled[i] > 0) {
+                    leaves[used++] = ((long) scaled[i] << 16) | i;
+                }
+            }
+            if (used == 0) {
+                return;
+            }
+            if (used == 1) {
+                lengths[(int) (leaves[0] & 0xFFFF)] = 1;
+                return;
+            }
+            Arrays.sort(leaves, 0, used);
+
+            int leafIndex = 0;
+            int nodeHead = 0;
+            for (int node = 0; node < used - 1; node++) {
+                long weight = 0;
+                for (int k = 0; k < 2; k++) {
+                    if (leafIndex < used && (nodeHead >= node || (leaves[leafIndex] >>> 16) <= nodeWeight[nodeHead])) {
+                        weight += leaves[leafIndex] >>> 16;
+                        parent[leafIndex++] = used + node;
+                    } else {
+                        weight += nodeWeight[nodeHead];
+                        parent[used + nodeHead++] = used + node;
+                    }
+                }
+                nodeWeight[node] = weight;
+            }
+
+            depth[used + used - 2] = 0;
+            int maxDepth = 0;
+            for (int node = used + used - 3; node >= 0; node--) {
+                depth[node] = depth[parent[node]] + 1;
+                if (node < used) {
+                    lengths[(int) (leaves[node] & 0xFFFF)] = depth[node];
+                    maxDepth = Math.max(maxDepth, depth[node]);
+                }
+            }
+            if (maxDepth <= maxBits) {
+                return;
+            }
+            for (int i = 0; i < n; i++) {
+                if (scaled[i] > 0) {
+                    scaled[i] = (scaled[i] + 1) >>> 1;
+                }
+            }
+        }
+    }
+
+    // Канонические коды, развёрнутые для записи младшим битом вперёд
+    static int[] canonicalCodes(int[] lengths, int n) {
+        return canonicalCodes(lengths, n, new int[n]);
+    }
+
+    static int[] canonicalCodes(int[] lengths, int n, int[] codes) {
+        int[] lengthCount = new int[MAX_CODE_LENGTH + 1];
+        for (int i = 0; i < n; i++) {
+            lengthCount[lengths[i]]++;
+        }
+        lengthCount[0] = 0;
+        int[] nextCode = new int[MAX_CODE_LENGTH + 1];
+        int code = 0;
+        for (int bits = 1; bits <= MAX_CODE_LENGTH; bits++) {
+            code = (code + lengthCount[bits - 1]) << 1;
+            nextCode[bits] = code;
+        }
+        for (int i = 0; i < n; i++) {
+            int length = lengths[i];
+            codes[i] = 0;
+            if (length != 0) {
+                codes[i] = Integer.reverse(nextCode[length]++) >>> (32 - length);
+            }
+        }
+        return codes;
+    }
+
+    // Одна таблица на 2^maxLength записей: каждый код повторяется во всех индексах с его префиксом
+    static int[] buildDecodeTable(int[] lengths, int n) throws IOException {
+        return buildDecodeTable(lengths, n, new int[MAX_CODE_LENGTH + 1][]);
+    }
+
+    // tables[bits] кэширует таблицу каждого размера: повторные вызовы не выделяют память
+    static int[] buildDecodeTable(int[] lengths, int n, int[][] tables) throws IOException {
+        int maxLength = 0;
+        int[] lengthCount = new int[MAX_CODE_LENGTH + 1];
+        for (int i = 0; i < n; i++) {
+            if (lengths[i] > MAX_CODE_LENGTH) {
+                throw new IOException("Huffman code length too large: " + lengths[i]);
+            }
+            lengthCount[lengths[i]]++;
+            maxLength = Math.max(maxLength, lengths[i]);
+        }
+        lengthCount[0] = 0;
+        int left = 1;
+        for (int bits = 1; bits <= MAX_CODE_LENGTH; bits++) {
+            left = (left << 1) - lengthCount[bits];
+            if (left < 0) {
+                throw new IOException("Over-subscribed Huffman code");
+            }
+        }
+        int bits = Math.max(1, maxLength);
+        int[] table = tables[bits];
+        if (table == null) {
+            table = new int[1 << bits];
+            tables[bits] = table;
+        } else {
+            Arrays.fill(table, 0);
+        }
+        int[] nextCode = new int[MAX_CODE_LENGTH + 1];
+        int code = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH; length++) {
+            code = (code + lengthCount[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+        for (int symbol = 0; symbol < n; symbol++) {
+            int length = lengths[symbol];
+            if (length == 0) {
+                continue;
+            }
+            int entry = (symbol << 4) | length;
+            int reversed = Integer.reverse(nextCode[length]++) >>> (32 - length);
+            for (int index = reversed; index < table.length; index += 1 << length) {
+                table[index] = entry;
+            }
+        }
+        return table;
+    }
+
+    static int tableBits(int[] table) {
+        return Integer.numberOfTrailingZeros(table.length);
+    }
+
+    static int decodeSymbol(BitReader in, int[] table, int bits) throws IOException {
+        int entry = table[in.peekBits(bits)];
+        if (entry == 0) {
+            in.checkOverrun();
+            throw new IOException("Invalid Huffman code");
+        }
+        in.skipBits(entry & 15);
+        return entry >>> 4;
+    }
+
+    // Размер кодов в битах; Long.MAX_VALUE, если встреченному символу не досталось кода
+    static long cost(int[] freq, int[] lengths, int n) {
+        long bits = 0;
+        for (int i = 0; i < n; i++) {
+            if (freq[i] != 0) {
+                if (lengths[i] == 0) {
+                    return Long.MAX_VALUE;
+                }
+                bits += (long) freq[i] * lengths[i];
+            }
+        }
+        return bits;
+    }
+
+    // Готовая неизменяемая таблица (например, из словаря): коды и таблица декодирования строятся один раз,
+    // экземпляр можно делить между потоками
+    static final class Table {
+        final int[] lengths;
+        final int[] codes;
+        final int[] decodeTable;
+
+        Table(int[] lengths, int n) throws IOException {
+            this.lengths = Arrays.copyOf(lengths, n);
+            this.codes = canonicalCodes(this.lengths, n);
+            this.decodeTable = buildDecodeTable(this.lengths, n);
+        }
+
+        long cost(int[] freq) {
+            return CanonicalHuffman.cost(freq, lengths, lengths.length);
+        }
+    }
+
+    // Рабочие массивы для повторных вызовов без выделений; экземпляр используется одним потоком за раз
+    static final class Workspace {
+        static final int MAX_SYMBOLS = 288;
+
+        final int[] freq = new int[MAX_SYMBOLS];
+        final int[] lengths = new int[MAX_SYMBOLS];
+        final int[] codes = new int[MAX_SYMBOLS];
+        final int[][] tables = new int[MAX_CODE_LENGTH + 1][];
+
+        private final int[] scaled = new int[MAX_SYMBOLS];
+        private final long[] leaves = new long[MAX_SYMBOLS];
+        private final long[] nodeWeight = new long[MAX_SYMBOLS];
+        private final int[] parent = new int[2 * MAX_SYMBOLS];
+        private final int[] depth = new int[2 * MAX_SYMBOLS];
+        private BitWriter writer;
+        private byte[] decoded;
+
+        BitWriter writer(int initialCapacity) {
+            if (writer == null) {
+                writer = new BitWriter(initialCapacity);
+            } else {
+                writer.reset();
+            }
+            return writer;
+        }
+
+        byte[] decoded(int length) {
+            if (decoded == null || decoded.length < length) {
+                decoded = new byte[length];
+            }
+            return decoded;
+        }
+    }
+}
\ No newline at end of file
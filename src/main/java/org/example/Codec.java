@@ -0,0 +1,87 @@
+package org.example;
+
+// Фабрика кодеков для бенчмарков: одинаковые пресеты FASTEST/DEFAULT/BEST переводятся
+// в собственные уровни каждого кодека (для bzip2 уровень - это размер блока, как у bzip2 -1/-9).
+// id - постоянный номер кодека в заголовках блоков и кадров, в отличие от ordinal не зависит от порядка констант
+public enum Codec implements CodecProvider {
+    BZIP2(1) {
+        @Override
+        public Compressor create(Preset preset) {
+            return new Bzip2Compression(preset == Preset.FASTEST ? Bzip2Compression.MIN_BLOCK_SIZE : Bzip2Compression.MAX_BLOCK_SIZE);
+        }
+    },
+    GZIP(2) {
+        @Override
+        public Compressor create(Preset preset) {
+            return new GzipCompression(preset.pick(1, GzipCompression.DEFAULT_LEVEL, 9));
+        }
+    },
+    ZSTD(3) {
+        @Override
+        public Compressor create(Preset preset) {
+            return new ZstdCompression(preset.pick(ZstdCompression.MIN_LEVEL, ZstdCompression.DEFAULT_LEVEL, ZstdCompression.MAX_LEVEL));
+        }
+    },
+    XZ(4) {
+        @Override
+        public Compressor create(Preset preset) {
+            return new XzCompression(preset.pick(XzCompression.MIN_PRESET, XzCompression.DEFAULT_PRESET, XzCompression.MAX_PRESET));
+        }
+    },
+    PPMD(5) {
+        @Override
+        public Compressor create(Preset preset) {
+            return new PpmdCompression(preset.pick(2, PpmdCompression.DEFAULT_ORDER, 6),
+                    preset == Preset.BEST ? 1 << 26 : PpmdCompression.DEFAULT_MEMORY_SIZE);
+        }
+    },
+    // Выбор кодека на каждый блок: FASTEST - минимальная задержка, DEFAULT - лучшее сжатие не медленнее
+    // DEFAULT_MIN_SPEED, BEST - лучшее сжатие без ограничения скорости
+    ADAPTIVE(6) {
+        @Override
+        public Compressor create(Preset preset) {
+            AdaptiveCompression.Policy policy = preset == Preset.FASTEST ? AdaptiveCompression.Policy.minLatency()
+                    : preset == Preset.DEFAULT ? AdaptiveCompression.Policy.maxRatio(AdaptiveCompression.DEFAULT_MIN_SPEED)
+                    : AdaptiveCompression.Policy.maxRatio();
+            return new AdaptiveCompression(policy);
+        }
+    };
+
+    private final int id;
+
+    Codec(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public abstract Compressor create(Preset preset);
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    public static Codec forId(int id) {
+        for (Codec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Compressor create() {
+        return create(Preset.DEFAULT);
+    }
+
+    public enum Preset {
+        FASTEST,
+        DEFAULT,
+        BEST;
+
+        int pick(int fastest, int defaultLevel, int best) {
+            return this == FASTEST ? fastest : this == DEFAULT ? defaultLevel : best;
+        }
+    }
+}
\ No newline at end of file
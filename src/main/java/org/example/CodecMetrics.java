@@ -0,0 +1,231 @@
+package org.example;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Счётчики этапов кодеков: время, байты и число вызовов по каждому Stage плюс статистика совпадений LZ77.
+// Включаются -Dorg.example.metrics=true; ENABLED - static final, поэтому при выключенных метриках JIT
+// выбрасывает и замеры времени, и проверки, и вызовы ничего не стоят. Счётчики - LongAdder: потоки
+// пишут в разные ячейки и не спорят за одну линию кэша. При включении регистрируется MXBean OBJECT_NAME
+public final class CodecMetrics {
+
+    public static final String PROPERTY = "org.example.metrics";
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+    public static final String OBJECT_NAME = "org.example:type=CodecMetrics";
+
+    // Байты этапа - его вход при сжатии и выход при распаковке, то есть всегда исходные данные
+    public enum Stage {
+        SUFFIX_SORT,
+        INVERSE_BWT,
+        MTF_ENCODE,
+        MTF_DECODE,
+        RLE_ENCODE,
+        RLE_DECODE,
+        LZ77_PARSE,
+        LZ77_DECODE,
+        HUFFMAN_ENCODE,
+        HUFFMAN_DECODE,
+        INFLATE,
+        LZMA_ENCODE,
+        LZMA_DECODE,
+        PPM_ENCODE,
+        PPM_DECODE
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final LongAdder[] NANOS = adders(STAGES.length);
+    private static final LongAdder[] BYTES = adders(STAGES.length);
+    private static final LongAdder[] CALLS = adders(STAGES.length);
+    private static final LongAdder MATCHES = new LongAdder();
+    private static final LongAdder MATCH_BYTES = new LongAdder();
+    private static final LongAdder LITERAL_BYTES = new LongAdder();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException | SecurityException e) {
+                // Метрики остаются доступны через snapshot()
+            }
+        }
+    }
+
+    private CodecMetrics() {
+    }
+
+    // Начало замера: 0, если метрики выключены
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void record(Stage stage, long start, long bytes) {
+        if (ENABLED) {
+            record(stage, start, System.nanoTime(), bytes);
+        }
+    }
+
+    // Для этапа, число байт которого известно только после следующего этапа
+    public static void record(Stage stage, long start, long end, long bytes) {
+        if (ENABLED) {
+            int i = stage.ordinal();
+            NANOS[i].add(end - start);
+            BYTES[i].add(bytes);
+            CALLS[i].increment();
+        }
+    }
+
+    // Итог одного разбора LZ77: число совпадений, покрытые ими байты и байты литералов
+    public static void recordMatches(long matches, long matchBytes, long literalBytes) {
+        if (ENABLED) {
+            MATCHES.add(matches);
+            MATCH_BYTES.add(matchBytes);
+            LITERAL_BYTES.add(literalBytes);
+        }
+    }
+
+    public static Snapshot snapshot() {
+        long[] values = new long[3 * STAGES.length + 3];
+        for (int i = 0; i < STAGES.length; i++) {
+            values[3 * i] = NANOS[i].sum();
+            values[3 * i + 1] = BYTES[i].sum();
+            values[3 * i + 2] = CALLS[i].sum();
+        }
+        values[3 * STAGES.length] = MATCHES.sum();
+        values[3 * STAGES.length + 1] = MATCH_BYTES.sum();
+        values[3 * STAGES.length + 2] = LITERAL_BYTES.sum();
+        return new Snapshot(values);
+    }
+
+    // Обнуление не атомарно относительно идущих замеров: для разности за интервал лучше два snapshot()
+    public static void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            NANOS[i].reset();
+            BYTES[i].reset();
+            CALLS[i].reset();
+        }
+        MATCHES.reset();
+        MATCH_BYTES.reset();
+        LITERAL_BYTES.reset();
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // Значения счётчиков на момент snapshot(); minus() даёт приращение за интервал
+    public static final class Snapshot {
+        private final long[] values;
+
+        private Snapshot(long[] values) {
+            this.values = values;
+        }
+
+        public long nanos(Stage stage) {
+            return values[3 * stage.ordinal()];
+        }
+
+        public long bytes(Stage stage) {
+            return values[3 * stage.ordinal() + 1];
+        }
+
+        public long calls(Stage stage) {
+            return values[3 * stage.ordinal() + 2];
+        }
+
+        public long matches() {
+            return values[3 * STAGES.length];
+        }
+
+        public long matchBytes() {
+            return values[3 * STAGES.length + 1];
+        }
+
+        public long literalBytes() {
+            return values[3 * STAGES.length + 2];
+        }
+
+        public double averageMatchLength() {
+            return matches() == 0 ? 0 : (double) matchBytes() / matches();
+        }
+
+        // Доля байтов, закодированных литералами
+        public double literalRatio() {
+            long total = matchBytes() + literalBytes();
+            return total == 0 ? 0 : (double) literalBytes() / total;
+        }
+
+        public Snapshot minus(Snapshot earlier) {
+            long[] delta = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                delta[i] = values[i] - earlier.values[i];
+            }
+            return new Snapshot(delta);
+        }
+    }
+
+    private static final class Bean implements CodecMetricsMXBean {
+
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public Map<String, Long> getStageNanos() {
+            Snapshot snapshot = snapshot();
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Stage stage : STAGES) {
+                result.put(stage.name(), snapshot.nanos(stage));
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getStageBytes() {
+            Snapshot snapshot = snapshot();
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Stage stage : STAGES) {
+                result.put(stage.name(), snapshot.bytes(stage));
+            }
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getStageCalls() {
+            Snapshot snapshot = snapshot();
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Stage stage : STAGES) {
+                result.put(stage.name(), snapshot.calls(stage));
+            }
+            return result;
+        }
+
+        @Override
+        public long getMatchCount() {
+            return MATCHES.sum();
+        }
+
+        @Override
+        public double getAverageMatchLength() {
+            return snapshot().averageMatchLength();
+        }
+
+        @Override
+        public double getLiteralRatio() {
+            return snapshot().literalRatio();
+        }
+
+        @Override
+        public void reset() {
+            CodecMetrics.reset();
+        }
+    }
+}
\ No newline at end of file
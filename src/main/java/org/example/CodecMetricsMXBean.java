@@ -0,0 +1,23 @@
+package org.example;
+
+import java.util.Map;
+
+// JMX-вид CodecMetrics: накопленные значения с запуска или последнего reset(), ключи - имена CodecMetrics.Stage
+public interface CodecMetricsMXBean {
+
+    boolean isEnabled();
+
+    Map<String, Long> getStageNanos();
+
+    Map<String, Long> getStageBytes();
+
+    Map<String, Long> getStageCalls();
+
+    long getMatchCount();
+
+    double getAverageMatchLength();
+
+    double getLiteralRatio();
+
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package org.example;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+// Профайлер JMH (-prof org.example.CodecMetricsProfiler): за каждую итерацию пишет время этапов на операцию,
+// их долю в суммарном времени этапов и статистику совпадений LZ77. Включает CodecMetrics в форке сам,
+// если кодеки ещё не загружены; иначе нужен -jvmArgsAppend -Dorg.example.metrics=true
+public class CodecMetricsProfiler implements InternalProfiler {
+
+    private CodecMetrics.Snapshot before;
+
+    public CodecMetricsProfiler() {
+        if (System.getProperty(CodecMetrics.PROPERTY) == null) {
+            System.setProperty(CodecMetrics.PROPERTY, "true");
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Per-stage codec timings and LZ77 match statistics from CodecMetrics";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        before = CodecMetrics.snapshot();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        List<Result> results = new ArrayList<>();
+        if (!CodecMetrics.ENABLED) {
+            return results;
+        }
+        CodecMetrics.Snapshot delta = CodecMetrics.snapshot().minus(before);
+        long ops = Math.max(1, result.getMetadata().getAllOps());
+        long totalNanos = 0;
+        for (CodecMetrics.Stage stage : CodecMetrics.Stage.values()) {
+            totalNanos += delta.nanos(stage);
+        }
+        for (CodecMetrics.Stage stage : CodecMetrics.Stage.values()) {
+            if (delta.calls(stage) == 0) {
+                continue;
+            }
+            String name = "·stage." + stage.name().toLowerCase(Locale.ROOT);
+            results.add(new ScalarResult(name, (double) delta.nanos(stage) / ops, "ns/op", AggregationPolicy.AVG));
+            results.add(new ScalarResult(name + ".share", 100.0 * delta.nanos(stage) / Math.max(1, totalNanos),
+                    "%", AggregationPolicy.AVG));
+            results.add(new ScalarResult(name + ".speed", delta.bytes(stage) * 1e3 / Math.max(1, delta.nanos(stage)),
+                    "MB/s", AggregationPolicy.AVG));
+        }
+        if (delta.matches() > 0 || delta.literalBytes() > 0) {
+            results.add(new ScalarResult("·lz77.matches", (double) delta.matches() / ops, "#/op", AggregationPolicy.AVG));
+            results.add(new ScalarResult("·lz77.avgMatchLength", delta.averageMatchLength(), "bytes", AggregationPolicy.AVG));
+            results.add(new ScalarResult("·lz77.literalRatio", delta.literalRatio(), "", AggregationPolicy.AVG));
+        }
+        return results;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package org.example;
+
+// Точка расширения для сторонних кодеков: реализация с публичным конструктором без аргументов указывается
+// в META-INF/services/org.example.CodecProvider и находится CodecRegistry через ServiceLoader.
+// id пишется в заголовок кадра FramedCompression, поэтому он постоянен и уникален. Номера 1..63 отданы
+// встроенным константам Codec; CodecRegistry принимает сторонний провайдер только с id 64..255
+public interface CodecProvider {
+
+    String name();
+
+    int id();
+
+    Compressor create(Codec.Preset preset);
+
+    default Compressor create() {
+        return create(Codec.Preset.DEFAULT);
+    }
+}
\ No newline at end of file
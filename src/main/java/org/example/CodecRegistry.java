@@ -0,0 +1,85 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.ServiceLoader;
+
+// Все известные кодеки: встроенные константы Codec и провайдеры, найденные ServiceLoader при первом обращении.
+// Имена сравниваются без учёта регистра, совпадение id или имени - ошибка конфигурации
+public final class CodecRegistry {
+
+    public static final int MAX_ID = 255;
+    // 1..MAX_BUILTIN_ID - номера констант Codec, в том числе будущих: сторонний провайдер с таким id
+    // разошёлся бы со встроенным кодеком в заголовках уже записанных кадров
+    public static final int MAX_BUILTIN_ID = 63;
+
+    private CodecRegistry() {
+    }
+
+    private static final class Holder {
+        static final CodecProvider[] BY_ID = new CodecProvider[MAX_ID + 1];
+        static final List<CodecProvider> PROVIDERS;
+
+        static {
+            List<CodecProvider> providers = new ArrayList<>();
+            for (Codec codec : Codec.values()) {
+                add(providers, codec, 1, MAX_BUILTIN_ID);
+            }
+            for (CodecProvider provider : ServiceLoader.load(CodecProvider.class, CodecRegistry.class.getClassLoader())) {
+                add(providers, provider, MAX_BUILTIN_ID + 1, MAX_ID);
+            }
+            PROVIDERS = Collections.unmodifiableList(providers);
+        }
+
+        private static void add(List<CodecProvider> providers, CodecProvider provider, int minId, int maxId) {
+            int id = provider.id();
+            if (id < minId || id > maxId) {
+                String reserved = minId > 1 ? " (1.." + MAX_BUILTIN_ID + " are reserved for built-in codecs)" : "";
+                throw new IllegalStateException("Codec " + provider.name() + " has id " + id
+                        + " outside " + minId + ".." + maxId + reserved);
+            }
+            if (BY_ID[id] != null) {
+                throw new IllegalStateException("Codecs " + BY_ID[id].name() + " and " + provider.name() + " share id " + id);
+            }
+            for (CodecProvider existing : providers) {
+                if (existing.name().equalsIgnoreCase(provider.name())) {
+                    throw new IllegalStateException("Duplicate codec name " + provider.name());
+                }
+            }
+            BY_ID[id] = provider;
+            providers.add(provider);
+        }
+    }
+
+    // В порядке регистрации: сначала встроенные
+    public static List<CodecProvider> providers() {
+        return Holder.PROVIDERS;
+    }
+
+    // null, если кодек с таким id не зарегистрирован
+    public static CodecProvider forId(int id) {
+        return id > 0 && id <= MAX_ID ? Holder.BY_ID[id] : null;
+    }
+
+    public static CodecProvider forName(String name) {
+        for (CodecProvider provider : Holder.PROVIDERS) {
+            if (provider.name().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        throw new IllegalArgumentException("Unknown codec " + name + ", known: " + names());
+    }
+
+    public static String names() {
+        StringBuilder names = new StringBuilder();
+        for (CodecProvider provider : Holder.PROVIDERS) {
+            if (names.length() > 0) {
+                names.append('|');
+            }
+            names.append(provider.name().toUpperCase(Locale.ROOT));
+        }
+        return names.toString();
+    }
+}
\ No newline at end of file
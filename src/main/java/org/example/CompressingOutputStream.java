@@ -0,0 +1,102 @@
+package org.example;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Поток режет вход на чанки фиксированного размера и пишет каждый как
+// [varint исходная длина][varint сжатая длина][данные]; нулевая длина завершает поток
+public class CompressingOutputStream extends FilterOutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final Compressor compressor;
+    private final byte[] chunk;
+    private int chunkLength;
+    private boolean closed;
+
+    public CompressingOutputStream(OutputStream out, Compressor compressor) {
+        this(out, compressor, DEFAULT_CHUNK_SIZE);
+    }
+
+    public CompressingOutputStream(OutputStream out, Compressor compressor, int chunkSize) {
+        super(out);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.compressor = compressor;
+        this.chunk = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        chunk[chunkLength++] = (byte) b;
+        if (chunkLength == chunk.length) {
+            flushChunk();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, chunk.length - chunkLength);
+            System.arraycopy(b, off, chunk, chunkLength, n);
+            chunkLength += n;
+            off += n;
+            len -= n;
+            if (chunkLength == chunk.length) {
+                flushChunk();
+            }
+        }
+    }
+
+    // Дописывает неполный чанк, поэтому частые flush() ухудшают степень сжатия
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushChunk();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flushChunk();
+            writeVarInt(out, 0);
+            out.flush();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunkLength == 0) {
+            return;
+        }
+        byte[] compressed = compressor.compress(chunk, 0, chunkLength);
+        writeVarInt(out, chunkLength);
+        writeVarInt(out, compressed.length);
+        out.write(compressed);
+        chunkLength = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,254 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// Сжатие и распаковка файлов любым кодеком без чтения файла в кучу: вход отображается окнами через
+// FileChannel.map, каждый блок сжимается отдельно, выход пишется из прямого буфера через FileChannel.write.
+// Формат совпадает с CompressingOutputStream ([varint длина][varint сжатая длина][данные], 0 в конце),
+// так что результат читается и DecompressingInputStream. В куче живёт только текущий блок и состояние кодека
+public final class CompressionTool {
+
+    public static final int MAX_BLOCK_SIZE = 64 << 20;
+
+    private static final int WINDOW_SIZE = 64 << 20;
+    private static final int MAX_HEADER_LENGTH = 10;
+
+    private final Compressor compressor;
+    private final int blockSize;
+    private ByteBuffer outputBuffer = ByteBuffer.allocateDirect(1 << 16);
+
+    public CompressionTool(Compressor compressor, int blockSize) {
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ": " + blockSize);
+        }
+        this.compressor = compressor;
+        this.blockSize = blockSize;
+    }
+
+    // Возвращает размер выходного файла
+    public long compress(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long window = Math.max(blockSize, WINDOW_SIZE / blockSize * blockSize);
+            byte[] block = new byte[blockSize];
+            for (long start = 0; start < size; start += window) {
+                MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, start, Math.min(window, size - start));
+                try {
+                    while (mapped.hasRemaining()) {
+                        int length = Math.min(blockSize, mapped.remaining());
+                        mapped.get(block, 0, length);
+                        byte[] compressed = compressor.compress(block, 0, length);
+                        writeFrame(out, length, compressed, compressed.length);
+                    }
+                } finally {
+                    ByteBuffers.release(mapped);
+                }
+            }
+            writeFrame(out, 0, null, 0);
+            return out.size();
+        }
+    }
+
+    // blockSize здесь - верхняя граница длины блока, которую готовы принять при распаковке
+    public long decompress(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedInput mapped = new MappedInput(in);
+            byte[] compressed = new byte[0];
+            long position = 0;
+            try {
+                while (true) {
+                    ByteBuffer header = mapped.slice(position, (int) Math.min(MAX_HEADER_LENGTH, in.size() - position));
+                    int rawLength = readVarInt(header);
+                    if (rawLength == 0) {
+                        break;
+                    }
+                    int compressedLength = readVarInt(header);
+                    if (rawLength < 0 || rawLength > blockSize || compressedLength < 0
+                            || compressedLength > DecompressingInputStream.maxCompressedLength(blockSize)) {
+                        throw new IOException("Block exceeds limit of " + blockSize + " bytes at offset " + position);
+                    }
+                    position += header.position();
+                    // Длина из заголовка проверяется по размеру файла до выделения буфера под блок
+                    if (compressedLength > in.size() - position) {
+                        throw new EOFException("Unexpected end of compressed file");
+                    }
+                    if (compressed.length < compressedLength) {
+                        compressed = new byte[compressedLength];
+                    }
+                    mapped.slice(position, compressedLength).get(compressed, 0, compressedLength);
+                    position += compressedLength;
+                    byte[] block = compressor.decompress(compressed, 0, compressedLength);
+                    if (block.length != rawLength) {
+                        throw new IOException("Block length mismatch: expected " + rawLength + ", got " + block.length);
+                    }
+                    write(out, block, block.length);
+                }
+            } finally {
+                mapped.close();
+            }
+            return out.size();
+        }
+    }
+
+    private void writeFrame(FileChannel out, int rawLength, byte[] data, int length) throws IOException {
+        ensureOutputCapacity(2 * 5 + length);
+        ByteBuffer buffer = outputBuffer;
+        buffer.clear();
+        putVarInt(buffer, rawLength);
+        if (rawLength != 0) {
+            putVarInt(buffer, length);
+            buffer.put(data, 0, length);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void write(FileChannel out, byte[] data, int length) throws IOException {
+        ensureOutputCapacity(length);
+        ByteBuffer buffer = outputBuffer;
+        buffer.clear();
+        buffer.put(data, 0, length).flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void ensureOutputCapacity(int capacity) {
+        if (outputBuffer.capacity() < capacity) {
+            ByteBuffers.release(outputBuffer);
+            outputBuffer = ByteBuffer.allocateDirect(Math.max(capacity, outputBuffer.capacity() * 2));
+        }
+    }
+
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new EOFException("Unexpected end of compressed file");
+            }
+            int b = buffer.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    // Скользящее окно отображения: переотображается, когда запрошенный диапазон выходит за текущее окно
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedInput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer slice(long position, int length) throws IOException {
+            if (length < 0 || position + length > channel.size()) {
+                throw new EOFException("Unexpected end of compressed file");
+            }
+            if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+                close();
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(channel.size() - position, Math.max(length, WINDOW_SIZE)));
+            }
+            ByteBuffer slice = window.duplicate();
+            slice.position((int) (position - windowStart));
+            slice.limit(slice.position() + length);
+            return slice.slice();
+        }
+
+        void close() {
+            if (window != null) {
+                ByteBuffers.release(window);
+                window = null;
+            }
+        }
+    }
+
+    // compress|decompress [-c кодек] [-l FASTEST|DEFAULT|BEST] [-b размер блока, например 4m] вход выход
+    public static void main(String[] args) throws IOException {
+        CodecProvider codec = Codec.ZSTD;
+        Codec.Preset preset = Codec.Preset.DEFAULT;
+        Integer blockSize = null;
+        int i = 1;
+        for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+            switch (args[i]) {
+                case "-c":
+                    codec = CodecRegistry.forName(args[i + 1]);
+                    break;
+                case "-l":
+                    preset = Codec.Preset.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+                    break;
+                case "-b":
+                    blockSize = Corpus.parseSize(args[i + 1]);
+                    break;
+                default:
+                    usage();
+                    return;
+            }
+        }
+        if (args.length == 0 || args.length - i != 2) {
+            usage();
+            return;
+        }
+        boolean compress;
+        if (args[0].equals("compress") || args[0].equals("c")) {
+            compress = true;
+        } else if (args[0].equals("decompress") || args[0].equals("d")) {
+            compress = false;
+        } else {
+            usage();
+            return;
+        }
+        Path input = Paths.get(args[i]);
+        Path output = Paths.get(args[i + 1]);
+        int size = blockSize != null ? blockSize : compress ? CompressingOutputStream.DEFAULT_CHUNK_SIZE : MAX_BLOCK_SIZE;
+        CompressionTool tool = new CompressionTool(codec.create(preset), size);
+
+        long start = System.nanoTime();
+        long outputSize = compress ? tool.compress(input, output) : tool.decompress(input, output);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long inputSize = input.toFile().length();
+        long rawSize = compress ? inputSize : outputSize;
+        System.out.printf(Locale.ROOT, "%s %s %s: %d -> %d bytes (ratio %.3f) in %.3f s, %.1f MB/s%n",
+                compress ? "compress" : "decompress", codec.name(), preset, inputSize, outputSize,
+                compress ? (double) inputSize / Math.max(1, outputSize) : (double) outputSize / Math.max(1, inputSize),
+                seconds, rawSize / 1e6 / seconds);
+        long rss = MemoryMetrics.peakResidentBytes();
+        System.out.printf(Locale.ROOT, "peak RSS %s, peak heap %.1f MB, max heap %.1f MB%n",
+                rss < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f MB", rss / 1e6),
+                MemoryMetrics.peakHeapBytes() / 1e6, Runtime.getRuntime().maxMemory() / 1e6);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: CompressionTool compress|decompress [-c " + CodecRegistry.names() + "]"
+                + " [-l FASTEST|DEFAULT|BEST] [-b blockSize] input output");
+        System.exit(2);
+    }
+}
\ No newline at end of file
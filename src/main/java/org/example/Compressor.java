@@ -0,0 +1,44 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface Compressor {
+
+    byte[] compress(byte[] input, int offset, int length) throws IOException;
+
+    byte[] decompress(byte[] input, int offset, int length) throws IOException;
+
+    default byte[] compress(byte[] input) throws IOException {
+        return compress(input, 0, input.length);
+    }
+
+    default byte[] decompressBytes(byte[] input) throws IOException {
+        return decompress(input, 0, input.length);
+    }
+
+    // Читает input от position до limit и сдвигает position; для прямого буфера результат тоже прямой
+    default ByteBuffer compress(ByteBuffer input) throws IOException {
+        byte[] result;
+        if (input.hasArray()) {
+            result = compress(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        } else {
+            byte[] copy = ByteBuffers.toArray(input);
+            result = compress(copy, 0, copy.length);
+        }
+        input.position(input.limit());
+        return ByteBuffers.wrap(result, input.isDirect());
+    }
+
+    default ByteBuffer decompress(ByteBuffer input) throws IOException {
+        byte[] result;
+        if (input.hasArray()) {
+            result = decompress(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        } else {
+            byte[] copy = ByteBuffers.toArray(input);
+            result = decompress(copy, 0, copy.length);
+        }
+        input.position(input.limit());
+        return ByteBuffers.wrap(result, input.isDirect());
+    }
+}
\ No newline at end of file
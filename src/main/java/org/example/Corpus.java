@@ -0,0 +1,271 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Входные данные бенчмарков. Спецификация - либо "shape:size[:seed]" (сгенерированный вход, например "json:1m",
+// "random:1g"), либо путь к файлу или каталогу. Относительные пути берутся от -Dcorpus.dir (по умолчанию CWD),
+// файлы читаются через отображение в память; каталог - все обычные файлы по имени подряд, как tar Silesia
+public final class Corpus {
+
+    public static final String BASE_DIR_PROPERTY = "corpus.dir";
+    public static final long DEFAULT_SEED = 42;
+
+    private Corpus() {
+    }
+
+    public static byte[] load(String spec) throws IOException {
+        String[] parts = spec.split(":");
+        Shape shape = parts.length >= 2 ? Shape.forName(parts[0]) : null;
+        if (shape != null) {
+            if (parts.length > 3) {
+                throw new IllegalArgumentException("Corpus spec must be shape:size[:seed]: " + spec);
+            }
+            long seed = parts.length == 3 ? Long.parseLong(parts[2]) : DEFAULT_SEED;
+            return generate(shape, parseSize(parts[1]), seed);
+        }
+        return read(resolve(spec));
+    }
+
+    public static Path resolve(String path) {
+        return Paths.get(System.getProperty(BASE_DIR_PROPERTY, "")).resolve(path);
+    }
+
+    // Файл или каталог целиком в одном массиве; для каталога файлы склеиваются в порядке имён
+    public static byte[] read(Path path) throws IOException {
+        List<Path> files = Files.isDirectory(path) ? listFiles(path) : Collections.singletonList(path);
+        List<ByteBuffer> buffers = new ArrayList<>(files.size());
+        long total = 0;
+        for (Path file : files) {
+            ByteBuffer buffer = map(file);
+            total += buffer.remaining();
+            buffers.add(buffer);
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IOException("Corpus too large for a byte array: " + path + " (" + total + " bytes)");
+        }
+        byte[] data = new byte[(int) total];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers) {
+            int length = buffer.remaining();
+            buffer.get(data, offset, length);
+            offset += length;
+        }
+        return data;
+    }
+
+    public static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    // Отображение только для чтения; канал можно закрыть сразу, отображение живёт до сборки буфера
+    public static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file + " (" + size + " bytes)");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    public static byte[] generate(Shape shape, int size, long seed) {
+        byte[] data = new byte[size];
+        shape.fill(new SplittableRandom(seed), data);
+        return data;
+    }
+
+    // Размер с суффиксом k/m/g (степени 1024): "1k", "64m", "1g"
+    static int parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        long multiplier = 1;
+        char suffix = value.isEmpty() ? ' ' : value.charAt(value.length() - 1);
+        if (suffix == 'k' || suffix == 'm' || suffix == 'g') {
+            multiplier = suffix == 'k' ? 1L << 10 : suffix == 'm' ? 1L << 20 : 1L << 30;
+            value = value.substring(0, value.length() - 1);
+        }
+        long bytes = Long.parseLong(value) * multiplier;
+        if (bytes < 0 || bytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Corpus size out of range: " + size);
+        }
+        return (int) bytes;
+    }
+
+    // Формы данных от несжимаемой до хорошо сжимаемой; один и тот же seed даёт один и тот же вход
+    public enum Shape {
+        // Равномерный шум, 8 бит/байт
+        RANDOM {
+            @Override
+            void fill(SplittableRandom random, byte[] out) {
+                int i = 0;
+                for (; i + 8 <= out.length; i += 8) {
+                    long bits = random.nextLong();
+                    for (int k = 0; k < 8; k++) {
+                        out[i + k] = (byte) (bits >>> (k * 8));
+                    }
+                }
+                for (; i < out.length; i++) {
+                    out[i] = (byte) random.nextInt(256);
+                }
+            }
+        },
+        // Геометрическое распределение по 16 символам: около 2 бит/байт без повторяющихся подстрок
+        LOW_ENTROPY {
+            @Override
+            void fill(SplittableRandom random, byte[] out) {
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = (byte) ('a' + Integer.numberOfTrailingZeros(random.nextInt() | 0x8000));
+                }
+            }
+        },
+        // Строки журнала приложения: монотонное время, немного уровней, потоков и шаблонов сообщений
+        LOGS {
+            private final String[] levels = {"INFO ", "INFO ", "INFO ", "DEBUG", "DEBUG", "WARN ", "ERROR"};
+            private final String[] loggers = {"o.e.http.RequestHandler", "o.e.db.ConnectionPool",
+                    "o.e.cache.LruCache", "o.e.auth.TokenService", "o.e.jobs.Scheduler"};
+            private final String[] paths = {"/api/items/", "/api/users/", "/api/orders/", "/static/img/", "/health"};
+
+            @Override
+            void fill(SplittableRandom random, byte[] out) {
+                TextWriter writer = new TextWriter(out);
+                long millis = 9 * 3_600_000L;
+                StringBuilder line = new StringBuilder(160);
+                while (!writer.full()) {
+                    millis += random.nextInt(40);
+                    line.setLength(0);
+                    line.append("2024-06-02 ");
+                    appendTime(line, millis);
+                    line.append(' ').append(levels[random.nextInt(levels.length)])
+                            .append(" [worker-").append(random.nextInt(8)).append("] ")
+                            .append(loggers[random.nextInt(loggers.length)]).append(" - ");
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            line.append("GET ").append(paths[random.nextInt(paths.length)]).append(random.nextInt(100_000))
+                                    .append(' ').append(random.nextInt(10) == 0 ? 404 : 200)
+                                    .append(' ').append(random.nextInt(500)).append("ms");
+                            break;
+                        case 1:
+                            line.append("pool stats active=").append(random.nextInt(32)).append(" idle=")
+                                    .append(random.nextInt(32)).append(" waiting=").append(random.nextInt(4));
+                            break;
+                        default:
+                            line.append("session ").append(Long.toHexString(random.nextLong()))
+                                    .append(" refreshed for user u").append(random.nextInt(10_000));
+                            break;
+                    }
+                    writer.write(line.append('\n'));
+                }
+            }
+        },
+        // JSON-записи по одной на строку: повторяющиеся ключи, числа, короткие строки из словаря
+        JSON {
+            private final String[] names = {"alice", "bob", "carol", "dave", "erin", "frank", "grace", "heidi"};
+            private final String[] tags = {"alpha", "beta", "gamma", "delta", "new", "sale", "archived"};
+
+            @Override
+            void fill(SplittableRandom random, byte[] out) {
+                TextWriter writer = new TextWriter(out);
+                StringBuilder line = new StringBuilder(200);
+                for (long id = 1; !writer.full(); id++) {
+                    String name = names[random.nextInt(names.length)];
+                    int user = random.nextInt(10_000);
+                    line.setLength(0);
+                    line.append("{\"id\":").append(id)
+                            .append(",\"user\":\"").append(name).append(user)
+                            .append("\",\"email\":\"").append(name).append('.').append(user).append("@example.com\"")
+                            .append(",\"active\":").append(random.nextInt(4) != 0)
+                            .append(",\"score\":").append(random.nextInt(10_000) / 100.0)
+                            .append(",\"tags\":[");
+                    int tagCount = random.nextInt(4);
+                    for (int t = 0; t < tagCount; t++) {
+                        line.append(t == 0 ? "\"" : ",\"").append(tags[random.nextInt(tags.length)]).append('"');
+                    }
+                    line.append("]}\n");
+                    writer.write(line);
+                }
+            }
+        },
+        // Таблица 16-байтных little-endian записей: счётчик, время, float-отсчёт сигнала, id датчика, флаги
+        BINARY {
+            @Override
+            void fill(SplittableRandom random, byte[] out) {
+                ByteBuffer record = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                int timestamp = 1_717_300_000;
+                for (int i = 0, sequence = 0; i < out.length; i += 16, sequence++) {
+                    timestamp += random.nextInt(3);
+                    float sample = (float) (Math.sin(sequence / 50.0) * 100 + random.nextDouble());
+                    record.clear();
+                    record.putInt(sequence).putInt(timestamp).putFloat(sample)
+                            .putShort((short) random.nextInt(64)).putShort((short) (random.nextInt(100) == 0 ? 1 : 0));
+                    System.arraycopy(record.array(), 0, out, i, Math.min(16, out.length - i));
+                }
+            }
+        };
+
+        abstract void fill(SplittableRandom random, byte[] out);
+
+        static Shape forName(String name) {
+            String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            for (Shape shape : values()) {
+                if (shape.name().equals(normalized) || shape.name().replace("_", "").equals(normalized)) {
+                    return shape;
+                }
+            }
+            return null;
+        }
+
+        private static void appendTime(StringBuilder line, long millis) {
+            long seconds = millis / 1000;
+            appendPadded(line, seconds / 3600 % 24, 2).append(':');
+            appendPadded(line, seconds / 60 % 60, 2).append(':');
+            appendPadded(line, seconds % 60, 2).append('.');
+            appendPadded(line, millis % 1000, 3);
+        }
+
+        private static StringBuilder appendPadded(StringBuilder line, long value, int width) {
+            String digits = Long.toString(value);
+            for (int i = digits.length(); i < width; i++) {
+                line.append('0');
+            }
+            return line.append(digits);
+        }
+    }
+
+    // Пишет ASCII-текст в массив, обрезая последнюю строку по его концу
+    private static final class TextWriter {
+        private final byte[] out;
+        private int position;
+
+        TextWriter(byte[] out) {
+            this.out = out;
+        }
+
+        boolean full() {
+            return position == out.length;
+        }
+
+        void write(CharSequence text) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.US_ASCII);
+            int length = Math.min(bytes.length, out.length - position);
+            System.arraycopy(bytes, 0, out, position, length);
+            position += length;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,107 @@
+package org.example;
+
+import java.util.zip.Checksum;
+
+// CRC-32 (полином 0xEDB88320, как в gzip/zlib). Основной путь - slice-by-8 по восьми таблицам,
+// побитовый и однотабличный варианты оставлены для сравнения в Crc32Benchmark
+public final class Crc32 implements Checksum {
+
+    private static final int POLYNOMIAL = 0xEDB88320;
+
+    // Восемь таблиц по 256 записей подряд: TABLE[k * 256 + b]
+    private static final int[] TABLE = new int[8 * 256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+            }
+            TABLE[n] = c;
+        }
+        for (int n = 0; n < 256; n++) {
+            int c = TABLE[n];
+            for (int k = 1; k < 8; k++) {
+                c = TABLE[c & 0xFF] ^ (c >>> 8);
+                TABLE[k * 256 + n] = c;
+            }
+        }
+    }
+
+    private int crc;
+
+    @Override
+    public void update(int b) {
+        int c = ~crc;
+        crc = ~(TABLE[(c ^ b) & 0xFF] ^ (c >>> 8));
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        crc = updateSliceBy8(crc, b, off, len);
+    }
+
+    public void update(byte[] b) {
+        update(b, 0, b.length);
+    }
+
+    @Override
+    public long getValue() {
+        return crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0;
+    }
+
+    public static int compute(byte[] data, int offset, int length) {
+        return updateSliceBy8(0, data, offset, length);
+    }
+
+    // Все update*-методы принимают и возвращают готовое значение CRC (0 для пустого входа), как crc32() в zlib
+    public static int updateBitwise(int crc, byte[] data, int offset, int length) {
+        int c = ~crc;
+        for (int n = offset; n < offset + length; n++) {
+            c ^= (data[n] & 0xFF);
+            for (int i = 0; i < 8; i++) {
+                if ((c & 1) != 0) {
+                    c = (c >>> 1) ^ POLYNOMIAL;
+                } else {
+                    c >>>= 1;
+                }
+            }
+        }
+        return ~c;
+    }
+
+    public static int updateByteTable(int crc, byte[] data, int offset, int length) {
+        int c = ~crc;
+        for (int n = offset; n < offset + length; n++) {
+            c = TABLE[(c ^ data[n]) & 0xFF] ^ (c >>> 8);
+        }
+        return ~c;
+    }
+
+    public static int updateSliceBy8(int crc, byte[] data, int offset, int length) {
+        int[] t = TABLE;
+        int c = ~crc;
+        int n = offset;
+        int end = offset + length;
+        for (int limit = end - 8; n <= limit; n += 8) {
+            c ^= (data[n] & 0xFF) | (data[n + 1] & 0xFF) << 8 | (data[n + 2] & 0xFF) << 16 | (data[n + 3] & 0xFF) << 24;
+            c = t[7 * 256 + (c & 0xFF)]
+                    ^ t[6 * 256 + ((c >>> 8) & 0xFF)]
+                    ^ t[5 * 256 + ((c >>> 16) & 0xFF)]
+                    ^ t[4 * 256 + (c >>> 24)]
+                    ^ t[3 * 256 + (data[n + 4] & 0xFF)]
+                    ^ t[2 * 256 + (data[n + 5] & 0xFF)]
+                    ^ t[256 + (data[n + 6] & 0xFF)]
+                    ^ t[data[n + 7] & 0xFF];
+        }
+        for (; n < end; n++) {
+            c = t[(c ^ data[n]) & 0xFF] ^ (c >>> 8);
+        }
+        return ~c;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,70 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class Crc32Benchmark {
+
+    @Param({"64", "1024", "65536", "1048576"})
+    private int size;
+
+    private byte[] data;
+    private CRC32 jdkCrc32;
+
+    @Setup
+    public void setup() {
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        jdkCrc32 = new CRC32();
+    }
+
+    // CRC32C появился только в Java 9, поэтому загружается отражением в отдельном состоянии
+    @State(Scope.Thread)
+    public static class Crc32cState {
+        Checksum checksum;
+
+        @Setup
+        public void setup() throws ReflectiveOperationException {
+            checksum = (Checksum) Class.forName("java.util.zip.CRC32C").getDeclaredConstructor().newInstance();
+        }
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int benchmarkBitwise() {
+        return Crc32.updateBitwise(0, data, 0, size);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int benchmarkByteTable() {
+        return Crc32.updateByteTable(0, data, 0, size);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int benchmarkSliceBy8() {
+        return Crc32.updateSliceBy8(0, data, 0, size);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public long benchmarkJdkCrc32() {
+        jdkCrc32.reset();
+        jdkCrc32.update(data, 0, size);
+        return jdkCrc32.getValue();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public long benchmarkJdkCrc32c(Crc32cState state) {
+        state.checksum.reset();
+        state.checksum.update(data, 0, size);
+        return state.checksum.getValue();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Читает формат CompressingOutputStream; в памяти держится не больше одного чанка
+public class DecompressingInputStream extends InputStream {
+
+    private final InputStream in;
+    private final Compressor compressor;
+    private final int maxChunkSize;
+    private byte[] compressed = new byte[0];
+    private byte[] chunk = new byte[0];
+    private int chunkPos;
+    private int chunkLength;
+    private boolean finished;
+
+    public DecompressingInputStream(InputStream in, Compressor compressor) {
+        this(in, compressor, CompressingOutputStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    public DecompressingInputStream(InputStream in, Compressor compressor, int maxChunkSize) {
+        this.in = in;
+        this.compressor = compressor;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk[chunkPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, chunkLength - chunkPos);
+        System.arraycopy(chunk, chunkPos, b, off, n);
+        chunkPos += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return chunkLength - chunkPos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean fill() throws IOException {
+        while (chunkPos == chunkLength) {
+            if (finished) {
+                return false;
+            }
+            int rawLength = readVarInt(in);
+            if (rawLength == 0) {
+                finished = true;
+                return false;
+            }
+            int compressedLength = readVarInt(in);
+            if (rawLength < 0 || rawLength > maxChunkSize || compressedLength < 0
+                    || compressedLength > maxCompressedLength(maxChunkSize)) {
+                throw new IOException("Chunk exceeds limit of " + maxChunkSize + " bytes: " + rawLength);
+            }
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            readFully(in, compressed, compressedLength);
+            chunk = compressor.decompress(compressed, 0, compressedLength);
+            if (chunk.length != rawLength) {
+                throw new IOException("Chunk length mismatch: expected " + rawLength + ", got " + chunk.length);
+            }
+            chunkPos = 0;
+            chunkLength = rawLength;
+        }
+        return true;
+    }
+
+    // Предел сжатого чанка для несжимаемых данных; в long, чтобы пределы больше гигабайта не переполняли int
+    static long maxCompressedLength(int maxChunkSize) {
+        return 2L * maxChunkSize + 4096;
+    }
+
+    static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of compressed stream");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void readFully(InputStream in, byte[] b, int len) throws IOException {
+        int off = 0;
+        while (off < len) {
+            int n = in.read(b, off, len - off);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of compressed stream");
+            }
+            off += n;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Декодер RFC 1951 с табличным декодированием Хаффмана (CanonicalHuffman).
+// Таблицы динамических блоков кэшируются в экземпляре между вызовами; не потокобезопасен
+final class DeflateDecoder {
+
+    private static final int[] FIXED_LITERAL_TABLE;
+    private static final int[] FIXED_DIST_TABLE;
+
+    static {
+        int[] literalLengths = new int[288];
+        for (int i = 0; i < 288; i++) {
+            literalLengths[i] = i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8;
+        }
+        int[] distLengths = new int[30];
+        Arrays.fill(distLengths, 5);
+        try {
+            FIXED_LITERAL_TABLE = CanonicalHuffman.buildDecodeTable(literalLengths, 288);
+            FIXED_DIST_TABLE = CanonicalHuffman.buildDecodeTable(distLengths, 30);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int[][] literalTables = new int[CanonicalHuffman.MAX_CODE_LENGTH + 1][];
+    private final int[][] distTables = new int[CanonicalHuffman.MAX_CODE_LENGTH + 1][];
+    private final int[][] clTables = new int[CanonicalHuffman.MAX_CODE_LENGTH + 1][];
+    private final int[] clLengths = new int[19];
+    private final int[] lengths = new int[286 + 30];
+    private final int[] distLengths = new int[30];
+
+    private BitReader in;
+    private byte[] output;
+    private int outputLength;
+    private int bytesConsumed;
+
+    // sizeHint - ожидаемый размер результата: при точной подсказке выход выделяется ровно один раз
+    byte[] inflate(byte[] data, int offset, int length, int sizeHint) throws IOException {
+        in = new BitReader(data, offset, length);
+        output = new byte[Math.max(64, sizeHint)];
+        outputLength = 0;
+        boolean last;
+        do {
+            last = in.readBits(1) == 1;
+            int type = in.readBits(2);
+            switch (type) {
+                case 0:
+                    inflateStored();
+                    break;
+                case 1:
+                    inflateHuffman(FIXED_LITERAL_TABLE, FIXED_DIST_TABLE);
+                    break;
+                case 2:
+                    inflateDynamic();
+                    break;
+                default:
+                    throw new IOException("Invalid deflate block type 3");
+            }
+            in.checkOverrun();
+        } while (!last);
+        bytesConsumed = in.alignToByte();
+        byte[] result = outputLength == output.length ? output : Arrays.copyOf(output, outputLength);
+        in = null;
+        output = null;
+        return result;
+    }
+
+    // Позиция первого байта после deflate-потока во входном массиве
+    int bytesConsumed() {
+        return bytesConsumed;
+    }
+
+    private void inflateStored() throws IOException {
+        int pos = in.alignToByte();
+        byte[] data = in.buffer();
+        if (pos + 4 > in.limit()) {
+            throw new IOException("Truncated stored block header");
+        }
+        int length = (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8;
+        int inverted = (data[pos + 2] & 0xFF) | (data[pos + 3] & 0xFF) << 8;
+        if (length != (~inverted & 0xFFFF)) {
+            throw new IOException("Stored block length check failed");
+        }
+        pos += 4;
+        if (pos + length > in.limit()) {
+            throw new IOException("Truncated stored block");
+        }
+        ensureCapacity(length);
+        System.arraycopy(data, pos, output, outputLength, length);
+        outputLength += length;
+        in.setBytePosition(pos + length);
+    }
+
+    private void inflateDynamic() throws IOException {
+        int hlit = in.readBits(5) + 257;
+        int hdist = in.readBits(5) + 1;
+        int hclen = in.readBits(4) + 4;
+        if (hlit > 286 || hdist > 30) {
+            throw new IOException("Too many length or distance codes");
+        }
+        Arrays.fill(clLengths, 0);
+        for (int i = 0; i < hclen; i++) {
+            clLengths[DeflateEncoder.CODE_LENGTH_ORDER[i]] = in.readBits(3);
+        }
+        int[] clTable = CanonicalHuffman.buildDecodeTable(clLengths, 19, clTables);
+        int clBits = CanonicalHuffman.tableBits(clTable);
+
+        int[] lengths = this.lengths;
+        int count = hlit + hdist;
+        int i = 0;
+        while (i < count) {
+            int symbol = decodeSymbol(clTable, clBits);
+            if (symbol < 16) {
+                lengths[i++] = symbol;
+                continue;
+            }
+            int value = 0;
+            int repeat;
+            if (symbol == 16) {
+                if (i == 0) {
+                    throw new IOException("Repeat code with no previous length");
+                }
+                value = lengths[i - 1];
+                repeat = 3 + in.readBits(2);
+            } else if (symbol == 17) {
+                repeat = 3 + in.readBits(3);
+            } else {
+                repeat = 11 + in.readBits(7);
+            }
+            if (i + repeat > count) {
+                throw new IOException("Code length repeat overflows table");
+            }
+            Arrays.fill(lengths, i, i + repeat, value);
+            i += repeat;
+        }
+        if (lengths[256] == 0) {
+            throw new IOException("Missing end-of-block code");
+        }
+        System.arraycopy(lengths, hlit, distLengths, 0, hdist);
+        inflateHuffman(CanonicalHuffman.buildDecodeTable(lengths, hlit, literalTables),
+                CanonicalHuffman.buildDecodeTable(distLengths, hdist, distTables));
+    }
+
+    private void inflateHuffman(int[] literalTable, int[] distTable) throws IOException {
+        int literalBits = CanonicalHuffman.tableBits(literalTable);
+        int distBits = CanonicalHuffman.tableBits(distTable);
+        while (true) {
+            int symbol = decodeSymbol(literalTable, literalBits);
+            if (symbol < 256) {
+                if (outputLength == output.length) {
+                    ensureCapacity(1);
+                }
+                output[outputLength++] = (byte) symbol;
+                continue;
+            }
+            if (symbol == 256) {
+                return;
+            }
+            symbol -= 257;
+            if (symbol >= 29) {
+                throw new IOException("Invalid length symbol");
+            }
+            int length = DeflateEncoder.LENGTH_BASE[symbol] + in.readBits(DeflateEncoder.LENGTH_EXTRA[symbol]);
+            int distSymbol = decodeSymbol(distTable, distBits);
+            if (distSymbol >= 30) {
+                throw new IOException("Invalid distance symbol");
+            }
+            int distance = DeflateEncoder.DIST_BASE[distSymbol] + in.readBits(DeflateEncoder.DIST_EXTRA[distSymbol]);
+            if (distance > outputLength) {
+                throw new IOException("Distance too far back");
+            }
+            ensureCapacity(length);
+            byte[] out = output;
+            int from = outputLength - distance;
+            if (distance >= length) {
+                System.arraycopy(out, from, out, outputLength, length);
+                outputLength += length;
+            } else {
+                for (int k = 0; k < length; k++) {
+                    out[outputLength++] = out[from + k];
+                }
+            }
+        }
+    }
+
+    private int decodeSymbol(int[] table, int bits) throws IOException {
+        return CanonicalHuffman.decodeSymbol(in, table, bits);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (outputLength + extra > output.length) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + extra));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,504 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Кодер RFC 1951: LZ77 на хеш-цепочках (жадный разбор на уровнях 1-3, ленивый на 4-9)
+// и выбор между stored, fixed и dynamic блоком по точной оценке размера.
+// Все таблицы живут в экземпляре, поэтому повторные вызовы ничего не выделяют; не потокобезопасен
+final class DeflateEncoder {
+
+    static final int WINDOW_SIZE = 1 << 15;
+    static final int MIN_MATCH = 3;
+    static final int MAX_MATCH = 258;
+
+    static final int[] LENGTH_BASE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+            35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+    static final int[] LENGTH_EXTRA = {
+            0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+            3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+    static final int[] DIST_BASE = {
+            1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+            257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+    static final int[] DIST_EXTRA = {
+            0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+            7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+    static final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+    private static final int LITERAL_CODES = 286;
+    private static final int DIST_CODES = 30;
+    private static final int END_OF_BLOCK = 256;
+    private static final int MAX_BLOCK_TOKENS = 1 << 14;
+    private static final int MAX_STORED = 65535;
+    private static final int TOO_FAR = 4096;
+
+    private static final int HASH_BITS = 15;
+    private static final int HASH_SIZE = 1 << HASH_BITS;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    // good_length, max_lazy, nice_length, max_chain - как в zlib
+    private static final int[][] CONFIG = {
+            {0, 0, 0, 0},
+            {4, 4, 8, 4}, {4, 5, 16, 8}, {4, 6, 32, 32},
+            {4, 4, 16, 16}, {8, 16, 32, 32}, {8, 16, 128, 128},
+            {8, 32, 128, 256}, {32, 128, 258, 1024}, {32, 258, 258, 4096}};
+
+    private static final int[] LENGTH_CODE = new int[MAX_MATCH + 1];
+    private static final int[] FIXED_LITERAL_LENGTHS = new int[288];
+    private static final int[] FIXED_DIST_LENGTHS = new int[30];
+    private static final int[] FIXED_LITERAL_CODES;
+    private static final int[] FIXED_DIST_CODES;
+
+    static {
+        for (int code = 0; code < LENGTH_BASE.length; code++) {
+            int last = code + 1 < LENGTH_BASE.length ? LENGTH_BASE[code + 1] : MAX_MATCH + 1;
+            for (int length = LENGTH_BASE[code]; length < last && length <= MAX_MATCH; length++) {
+                LENGTH_CODE[length] = code;
+            }
+        }
+        LENGTH_CODE[MAX_MATCH] = 28;
+        for (int i = 0; i < 288; i++) {
+            FIXED_LITERAL_LENGTHS[i] = i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8;
+        }
+        Arrays.fill(FIXED_DIST_LENGTHS, 5);
+        FIXED_LITERAL_CODES = CanonicalHuffman.canonicalCodes(FIXED_LITERAL_LENGTHS, 288);
+        FIXED_DIST_CODES = CanonicalHuffman.canonicalCodes(FIXED_DIST_LENGTHS, 30);
+    }
+
+    private final int level;
+    private final int goodLength;
+    private final int maxLazy;
+    private final int niceLength;
+    private final int maxChain;
+
+    private final int[] head = new int[HASH_SIZE];
+    private final int[] prev = new int[WINDOW_SIZE];
+    private final int[] tokenLength = new int[MAX_BLOCK_TOKENS];
+    private final int[] tokenValue = new int[MAX_BLOCK_TOKENS];
+    private final int[] literalFreq = new int[LITERAL_CODES];
+    private final int[] distFreq = new int[DIST_CODES];
+    private int tokenCount;
+    // Время flushBlock за текущий encode: при CodecMetrics.ENABLED вычитается из времени разбора LZ77
+    private long entropyNanos;
+
+    private final CanonicalHuffman.Workspace huffman = new CanonicalHuffman.Workspace();
+    private final int[] freqScratch = new int[LITERAL_CODES];
+    private final int[] literalLengths = new int[LITERAL_CODES];
+    private final int[] literalCodes = new int[LITERAL_CODES];
+    private final int[] distLengths = new int[DIST_CODES];
+    private final int[] distCodes = new int[DIST_CODES];
+    private final int[] allLengths = new int[LITERAL_CODES + DIST_CODES];
+    private final int[] clSymbols = new int[LITERAL_CODES + DIST_CODES];
+    private final int[] clExtra = new int[LITERAL_CODES + DIST_CODES];
+    private final int[] clFreq = new int[19];
+    private final int[] clLengths = new int[19];
+    private final int[] clCodes = new int[19];
+
+    private byte[] input;
+    private int blockStart;
+    private BitWriter out;
+
+    DeflateEncoder(int level) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Deflate level must be between 0 and 9: " + level);
+        }
+        this.level = level;
+        this.goodLength = CONFIG[level][0];
+        this.maxLazy = CONFIG[level][1];
+        this.niceLength = CONFIG[level][2];
+        this.maxChain = CONFIG[level][3];
+    }
+
+    // Дописывает deflate-поток в out и выравнивает его до байта
+    void encode(byte[] data, int offset, int length, BitWriter out) {
+        long start = CodecMetrics.start();
+        entropyNanos = 0;
+        input = data;
+        this.out = out;
+        blockStart = offset;
+        resetBlock();
+        int end = offset + length;
+
+        if (length == 0) {
+            writeFixedBlock(true);
+        } else if (level == 0) {
+            writeStoredBlocks(offset, end, true);
+        } else {
+            Arrays.fill(head, -1);
+            if (level <= 3) {
+                deflateFast(offset, end);
+            } else {
+                deflateSlow(offset, end);
+            }
+            flushBlock(end, true);
+        }
+
+        out.alignToByte();
+        input = null;
+        this.out = null;
+        CodecMetrics.record(CodecMetrics.Stage.LZ77_PARSE, start + entropyNanos, length);
+    }
+
+    private void deflateFast(int start, int end) {
+        int pos = start;
+        while (pos < end) {
+            int matchLength = 0;
+            int matchDistance = 0;
+            if (pos + MIN_MATCH <= end) {
+                int match = longestMatch(pos, start, end, MIN_MATCH - 1);
+                matchLength = match >>> 16;
+                matchDistance = match & 0xFFFF;
+                insert(pos);
+            }
+            if (matchLength >= MIN_MATCH && !(matchLength == MIN_MATCH && matchDistance > TOO_FAR)) {
+                addMatch(matchLength, matchDistance, pos + matchLength, end);
+                if (matchLength <= maxLazy) {
+                    for (int p = pos + 1; p < pos + matchLength && p + MIN_MATCH <= end; p++) {
+                        insert(p);
+                    }
+                }
+                pos += matchLength;
+            } else {
+                addLiteral(input[pos], pos + 1, end);
+                pos++;
+            }
+        }
+    }
+
+    private void deflateSlow(int start, int end) {
+        int pos = start;
+        int prevLength = MIN_MATCH - 1;
+        int prevDistance = 0;
+        boolean matchAvailable = false;
+
+        while (pos < end || matchAvailable) {
+            int matchLength = MIN_MATCH - 1;
+            int matchDistance = 0;
+            if (pos + MIN_MATCH <= end) {
+                if (prevLength < maxLazy) {
+                    int match = longestMatch(pos, start, end, prevLength);
+                    matchLength = match >>> 16;
+                    matchDistance = match & 0xFFFF;
+                    if (matchLength == MIN_MATCH && matchDistance > TOO_FAR) {
+                        matchLength = MIN_MATCH - 1;
+                    }
+                }
+                insert(pos);
+            }
+
+            if (prevLength >= MIN_MATCH && matchLength <= prevLength) {
+                int matchEnd = pos - 1 + prevLength;
+                for (int p = pos + 1; p < matchEnd && p + MIN_MATCH <= end; p++) {
+                    insert(p);
+                }
+                addMatch(prevLength, prevDistance, matchEnd, end);
+                pos = matchEnd;
+                matchAvailable = false;
+                prevLength = MIN_MATCH - 1;
+            } else if (matchAvailable) {
+                addLiteral(input[pos - 1], pos, end);
+                if (pos == end) {
+                    break;
+                }
+                prevLength = matchLength;
+                prevDistance = matchDistance;
+                pos++;
+            } else {
+                matchAvailable = true;
+                prevLength = matchLength;
+                prevDistance = matchDistance;
+                pos++;
+            }
+        }
+    }
+
+    // Возвращает (длина << 16) | дистанция или 0, если нет совпадения длиннее prevLength
+    private int longestMatch(int pos, int start, int end, int prevLength) {
+        int chain = prevLength >= goodLength ? maxChain >> 2 : maxChain;
+        int maxLength = Math.min(MAX_MATCH, end - pos);
+        if (prevLength >= maxLength) {
+            return 0;
+        }
+        int nice = Math.min(niceLength, maxLength);
+        int limit = Math.max(start, pos - (WINDOW_SIZE - 1));
+        int bestLength = prevLength;
+        int bestDistance = 0;
+        byte[] in = input;
+
+        int candidate = head[hash(pos)];
+        while (candidate >= limit && chain-- > 0) {
+            if (in[candidate + bestLength] == in[pos + bestLength] && in[candidate] == in[pos]) {
+                int length = 1 + MatchFinder.matchLength(in, candidate + 1, pos + 1, maxLength - 1);
+                if (length > bestLength) {
+                    bestLength = length;
+                    bestDistance = pos - candidate;
+                    if (length >= nice) {
+                        break;
+                    }
+                }
+            }
+            int next = prev[candidate & WINDOW_MASK];
+            if (next >= candidate) {
+                break;
+            }
+            candidate = next;
+        }
+        if (bestDistance == 0) {
+            return 0;
+        }
+        return (bestLength << 16) | bestDistance;
+    }
+
+    private int hash(int pos) {
+        return (((input[pos] & 0xFF) << 10) ^ ((input[pos + 1] & 0xFF) << 5) ^ (input[pos + 2] & 0xFF)) & (HASH_SIZE - 1);
+    }
+
+    private void insert(int pos) {
+        int h = hash(pos);
+        prev[pos & WINDOW_MASK] = head[h];
+        head[h] = pos;
+    }
+
+    private void addLiteral(byte b, int consumedTo, int end) {
+        tokenLength[tokenCount] = 0;
+        tokenValue[tokenCount] = b & 0xFF;
+        tokenCount++;
+        literalFreq[b & 0xFF]++;
+        if (tokenCount == MAX_BLOCK_TOKENS && consumedTo < end) {
+            flushBlock(consumedTo, false);
+        }
+    }
+
+    private void addMatch(int length, int distance, int consumedTo, int end) {
+        tokenLength[tokenCount] = length;
+        tokenValue[tokenCount] = distance;
+        tokenCount++;
+        literalFreq[257 + LENGTH_CODE[length]]++;
+        distFreq[distanceCode(distance)]++;
+        if (tokenCount == MAX_BLOCK_TOKENS && consumedTo < end) {
+            flushBlock(consumedTo, false);
+        }
+    }
+
+    static int distanceCode(int distance) {
+        int x = distance - 1;
+        if (x < 4) {
+            return x;
+        }
+        int log = 31 - Integer.numberOfLeadingZeros(x);
+        return 2 * log + ((x >>> (log - 1)) & 1);
+    }
+
+    private void resetBlock() {
+        tokenCount = 0;
+        Arrays.fill(literalFreq, 0);
+        Arrays.fill(distFreq, 0);
+    }
+
+    private void flushBlock(int blockEnd, boolean last) {
+        long start = CodecMetrics.start();
+        if (CodecMetrics.ENABLED) {
+            recordMatches();
+        }
+        literalFreq[END_OF_BLOCK] = 1;
+
+        int[] literalLengths = this.literalLengths;
+        int[] distLengths = this.distLengths;
+        CanonicalHuffman.buildLengths(withTwoCodes(literalFreq, LITERAL_CODES), LITERAL_CODES, 15, literalLengths, huffman);
+        CanonicalHuffman.buildLengths(withTwoCodes(distFreq, DIST_CODES), DIST_CODES, 15, distLengths, huffman);
+
+        int hlit = LITERAL_CODES;
+        while (hlit > 257 && literalLengths[hlit - 1] == 0) {
+            hlit--;
+        }
+        int hdist = DIST_CODES;
+        while (hdist > 1 && distLengths[hdist - 1] == 0) {
+            hdist--;
+        }
+        System.arraycopy(literalLengths, 0, allLengths, 0, hlit);
+        System.arraycopy(distLengths, 0, allLengths, hlit, hdist);
+
+        int clCount = runLengthCodeLengths(allLengths, hlit + hdist, clSymbols, clExtra);
+        Arrays.fill(clFreq, 0);
+        for (int i = 0; i < clCount; i++) {
+            clFreq[clSymbols[i]]++;
+        }
+        CanonicalHuffman.buildLengths(withTwoCodes(clFreq, 19), 19, 7, clLengths, huffman);
+        int hclen = 19;
+        while (hclen > 4 && clLengths[CODE_LENGTH_ORDER[hclen - 1]] == 0) {
+            hclen--;
+        }
+
+        long extraBits = 0;
+        for (int code = 0; code < 29; code++) {
+            extraBits += (long) literalFreq[257 + code] * LENGTH_EXTRA[code];
+        }
+        for (int code = 0; code < DIST_CODES; code++) {
+            extraBits += (long) distFreq[code] * DIST_EXTRA[code];
+        }
+        long dynamicBits = 3 + 14 + 3L * hclen + extraBits
+                + treeCost(literalFreq, literalLengths) + treeCost(distFreq, distLengths);
+        for (int i = 0; i < clCount; i++) {
+            int sym = clSymbols[i];
+            dynamicBits += clLengths[sym] + (sym == 16 ? 2 : sym == 17 ? 3 : sym == 18 ? 7 : 0);
+        }
+        long fixedBits = 3 + extraBits + treeCost(literalFreq, FIXED_LITERAL_LENGTHS) + treeCost(distFreq, FIXED_DIST_LENGTHS);
+        int rawLength = blockEnd - blockStart;
+        long storedBits = 8L * rawLength + (rawLength / MAX_STORED + 1) * 40L + 7;
+
+        if (storedBits <= fixedBits && storedBits <= dynamicBits) {
+            writeStoredBlocks(blockStart, blockEnd, last);
+        } else if (fixedBits <= dynamicBits) {
+            writeFixedBlock(last);
+        } else {
+            out.writeBits(last ? 1 : 0, 1);
+            out.writeBits(2, 2);
+            out.writeBits(hlit - 257, 5);
+            out.writeBits(hdist - 1, 5);
+            out.writeBits(hclen - 4, 4);
+            for (int i = 0; i < hclen; i++) {
+                out.writeBits(clLengths[CODE_LENGTH_ORDER[i]], 3);
+            }
+            CanonicalHuffman.canonicalCodes(clLengths, 19, clCodes);
+            for (int i = 0; i < clCount; i++) {
+                int sym = clSymbols[i];
+                out.writeBits(clCodes[sym], clLengths[sym]);
+                if (sym == 16) {
+                    out.writeBits(clExtra[i], 2);
+                } else if (sym == 17) {
+                    out.writeBits(clExtra[i], 3);
+                } else if (sym == 18) {
+                    out.writeBits(clExtra[i], 7);
+                }
+            }
+            writeTokens(literalLengths, CanonicalHuffman.canonicalCodes(literalLengths, LITERAL_CODES, literalCodes),
+                    distLengths, CanonicalHuffman.canonicalCodes(distLengths, DIST_CODES, distCodes));
+        }
+
+        if (CodecMetrics.ENABLED) {
+            CodecMetrics.record(CodecMetrics.Stage.HUFFMAN_ENCODE, start, rawLength);
+            entropyNanos += System.nanoTime() - start;
+        }
+        blockStart = blockEnd;
+        resetBlock();
+    }
+
+    private void recordMatches() {
+        int matches = 0;
+        long matchBytes = 0;
+        for (int i = 0; i < tokenCount; i++) {
+            if (tokenLength[i] != 0) {
+                matches++;
+                matchBytes += tokenLength[i];
+            }
+        }
+        CodecMetrics.recordMatches(matches, matchBytes, tokenCount - matches);
+    }
+
+    private void writeFixedBlock(boolean last) {
+        out.writeBits(last ? 1 : 0, 1);
+        out.writeBits(1, 2);
+        writeTokens(FIXED_LITERAL_LENGTHS, FIXED_LITERAL_CODES, FIXED_DIST_LENGTHS, FIXED_DIST_CODES);
+    }
+
+    private void writeTokens(int[] literalLengths, int[] literalCodes, int[] distLengths, int[] distCodes) {
+        for (int i = 0; i < tokenCount; i++) {
+            int length = tokenLength[i];
+            if (length == 0) {
+                int literal = tokenValue[i];
+                out.writeBits(literalCodes[literal], literalLengths[literal]);
+            } else {
+                int lengthCode = LENGTH_CODE[length];
+                out.writeBits(literalCodes[257 + lengthCode], literalLengths[257 + lengthCode]);
+                out.writeBits(length - LENGTH_BASE[lengthCode], LENGTH_EXTRA[lengthCode]);
+                int distance = tokenValue[i];
+                int distCode = distanceCode(distance);
+                out.writeBits(distCodes[distCode], distLengths[distCode]);
+                out.writeBits(distance - DIST_BASE[distCode], DIST_EXTRA[distCode]);
+            }
+        }
+        out.writeBits(literalCodes[END_OF_BLOCK], literalLengths[END_OF_BLOCK]);
+    }
+
+    private void writeStoredBlocks(int start, int end, boolean last) {
+        int pos = start;
+        do {
+            int length = Math.min(MAX_STORED, end - pos);
+            boolean finalChunk = last && pos + length == end;
+            out.writeBits(finalChunk ? 1 : 0, 1);
+            out.writeBits(0, 2);
+            out.alignToByte();
+            out.writeBits(length, 16);
+            out.writeBits(~length & 0xFFFF, 16);
+            out.alignToByte();
+            out.writeBytes(input, pos, length);
+            pos += length;
+        } while (pos < end);
+    }
+
+    private static long treeCost(int[] freq, int[] lengths) {
+        long bits = 0;
+        for (int i = 0; i < freq.length; i++) {
+            bits += (long) freq[i] * lengths[i];
+        }
+        return bits;
+    }
+
+    // Минимум два кода, чтобы дерево было полным: неполные деревья zlib отвергает
+    private int[] withTwoCodes(int[] counts, int n) {
+        int[] freq = freqScratch;
+        System.arraycopy(counts, 0, freq, 0, n);
+        int used = 0;
+        for (int i = 0; i < n; i++) {
+            if (freq[i] != 0) {
+                used++;
+            }
+        }
+        for (int i = 0; used < 2 && i < n; i++) {
+            if (freq[i] == 0) {
+                freq[i] = 1;
+                used++;
+            }
+        }
+        return freq;
+    }
+
+    private static int runLengthCodeLengths(int[] lengths, int n, int[] symbols, int[] extra) {
+        int count = 0;
+        int i = 0;
+        while (i < n) {
+            int current = lengths[i];
+            int run = 1;
+            while (i + run < n && lengths[i + run] == current) {
+                run++;
+            }
+            i += run;
+            if (current == 0) {
+                while (run >= 11) {
+                    int r = Math.min(run, 138);
+                    symbols[count] = 18;
+                    extra[count++] = r - 11;
+                    run -= r;
+                }
+                if (run >= 3) {
+                    symbols[count] = 17;
+                    extra[count++] = run - 3;
+                    run = 0;
+                }
+            } else {
+                symbols[count++] = current;
+                run--;
+                while (run >= 3) {
+                    int r = Math.min(run, 6);
+                    symbols[count] = 16;
+                    extra[count++] = r - 3;
+                    run -= r;
+                }
+            }
+            while (run-- > 0) {
+                symbols[count++] = current;
+            }
+        }
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ZstdCompression на мелких однотипных записях со словарём и без: dictionarySize = 0 - обычное сжатие,
+// иначе словарь обучается на записях из другого seed того же генератора. Степень сжатия по всем записям
+// считается один раз на trial и выходит вторичной метрикой ratio через SecondaryMetricsProfiler
+// (запуск через Benchmark.main DictionaryBenchmark или -prof org.example.SecondaryMetricsProfiler);
+// стоимость словаря на вызов растёт с его размером (заполнение окна)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class DictionaryBenchmark {
+
+    private static final int RECORDS = 256;
+    private static final int TRAINING_SIZE = 2 << 20;
+
+    @Param({"json", "logs"})
+    private String shape;
+
+    @Param({"256", "1024", "4096", "8192"})
+    private int recordSize;
+
+    @Param({"0", "4096", "16384"})
+    private int dictionarySize;
+
+    private ZstdCompression compressor;
+    private ZstdDictionary dictionary;
+    private byte[] data;
+    private byte[][] compressed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        compressor = new ZstdCompression();
+        Corpus.Shape recordShape = Corpus.Shape.forName(shape);
+        if (dictionarySize > 0) {
+            byte[] training = Corpus.generate(recordShape, TRAINING_SIZE, 1);
+            List<byte[]> samples = new ArrayList<>();
+            for (int i = 0; i + recordSize <= training.length; i += recordSize) {
+                samples.add(Arrays.copyOfRange(training, i, i + recordSize));
+            }
+            dictionary = ZstdDictionary.train(samples, dictionarySize);
+        }
+        data = Corpus.generate(recordShape, RECORDS * recordSize, 2);
+        compressed = new byte[RECORDS][];
+        long compressedBytes = 0;
+        for (int i = 0; i < RECORDS; i++) {
+            compressed[i] = compress(i);
+            compressedBytes += compressed[i].length;
+            byte[] restored = dictionary != null
+                    ? compressor.decompress(compressed[i], dictionary) : compressor.decompressBytes(compressed[i]);
+            RoundTripVerifier.check(shape + " record " + i,
+                    Arrays.copyOfRange(data, i * recordSize, (i + 1) * recordSize), restored);
+        }
+        SecondaryMetricsProfiler.publish("ratio", (double) data.length / compressedBytes, "");
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] compress() {
+        return compress(next++ & (RECORDS - 1));
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] decompress() throws IOException {
+        byte[] record = compressed[next++ & (RECORDS - 1)];
+        return dictionary != null ? compressor.decompress(record, dictionary) : compressor.decompressBytes(record);
+    }
+
+    private byte[] compress(int record) {
+        int offset = record * recordSize;
+        return dictionary != null
+                ? compressor.compress(data, offset, recordSize, dictionary) : compressor.compress(data, offset, recordSize);
+    }
+}
\ No newline at end of file
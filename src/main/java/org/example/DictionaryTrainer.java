@@ -0,0 +1,170 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Выбор содержимого словаря по образцам в духе fastCover из zstd: частоты d-граммов (по хешу) считаются по всем
+// образцам, образцы делятся на эпохи, в каждой эпохе берётся отрезок из k байт с наибольшей суммой частот
+// ещё не покрытых d-граммов. Частоты взятых d-граммов обнуляются, чтобы словарь не повторял одно и то же.
+// Отрезки кладутся с конца словаря: лучшие оказываются ближе всего к данным и кодируются короткими дистанциями
+final class DictionaryTrainer {
+
+    static final int DEFAULT_SEGMENT_SIZE = 256;
+    static final int DEFAULT_DMER_SIZE = 8;
+
+    private static final int FREQUENCY_LOG = 20;
+    private static final int MIN_DMER_SIZE = 4;
+    private static final int MAX_DMER_SIZE = 8;
+    // Как в zstd: каждая эпоха проходится примерно 4 раза, но эпоха не короче 10 отрезков
+    private static final int PASSES = 4;
+    private static final int MIN_SEGMENTS_PER_EPOCH = 10;
+    private static final int MAX_ZERO_SCORE_EPOCHS = 10;
+
+    private final byte[] text;
+    private final int[] sampleEnds;
+    private final int dmerSize;
+    private final int segmentSize;
+    private final int[] frequencies = new int[1 << FREQUENCY_LOG];
+    private final int[] segmentFrequencies = new int[1 << FREQUENCY_LOG];
+
+    private DictionaryTrainer(List<byte[]> samples, int segmentSize, int dmerSize) {
+        long total = 0;
+        for (byte[] sample : samples) {
+            total += sample.length;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Samples too large for training: " + total + " bytes");
+        }
+        text = new byte[(int) total];
+        sampleEnds = new int[samples.size()];
+        int position = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            byte[] sample = samples.get(i);
+            System.arraycopy(sample, 0, text, position, sample.length);
+            position += sample.length;
+            sampleEnds[i] = position;
+        }
+        this.segmentSize = segmentSize;
+        this.dmerSize = dmerSize;
+    }
+
+    // Возвращает не больше capacity байт; меньше, если образцы кончились или повторяющихся отрезков больше нет
+    static byte[] selectSegments(List<byte[]> samples, int capacity, int segmentSize, int dmerSize) {
+        if (dmerSize < MIN_DMER_SIZE || dmerSize > MAX_DMER_SIZE) {
+            throw new IllegalArgumentException("d-gram size must be between " + MIN_DMER_SIZE + " and "
+                    + MAX_DMER_SIZE + ": " + dmerSize);
+        }
+        if (segmentSize < dmerSize || segmentSize > capacity) {
+            throw new IllegalArgumentException("Segment size must be between " + dmerSize + " and " + capacity
+                    + ": " + segmentSize);
+        }
+        DictionaryTrainer trainer = new DictionaryTrainer(samples, segmentSize, dmerSize);
+        if (trainer.text.length < 2 * segmentSize) {
+            throw new IllegalArgumentException("Not enough sample data to train a dictionary: "
+                    + trainer.text.length + " bytes");
+        }
+        return trainer.select(capacity);
+    }
+
+    private byte[] select(int capacity) {
+        countFrequencies();
+        byte[] dictionary = new byte[capacity];
+        int tail = capacity;
+        int epochs = Math.max(1, capacity / segmentSize / PASSES);
+        int epochSize = text.length / epochs;
+        if (epochSize < MIN_SEGMENTS_PER_EPOCH * segmentSize) {
+            epochs = Math.max(1, text.length / (MIN_SEGMENTS_PER_EPOCH * segmentSize));
+            epochSize = text.length / epochs;
+        }
+        int zeroScoreRun = 0;
+        for (int epoch = 0; tail > 0; epoch = (epoch + 1) % epochs) {
+            int begin = epoch * epochSize;
+            int end = epoch == epochs - 1 ? text.length : begin + epochSize;
+            long segment = selectSegment(begin, end);
+            int segmentBegin = (int) (segment >>> 32);
+            int segmentEnd = (int) segment;
+            if (segmentEnd <= segmentBegin) {
+                if (++zeroScoreRun >= Math.max(MAX_ZERO_SCORE_EPOCHS, epochs)) {
+                    break;
+                }
+                continue;
+            }
+            zeroScoreRun = 0;
+            int length = Math.min(segmentEnd - segmentBegin + dmerSize - 1, tail);
+            if (length < dmerSize) {
+                break;
+            }
+            tail -= length;
+            System.arraycopy(text, segmentBegin, dictionary, tail, length);
+        }
+        return Arrays.copyOfRange(dictionary, tail, capacity);
+    }
+
+    private void countFrequencies() {
+        int sampleStart = 0;
+        for (int sampleEnd : sampleEnds) {
+            for (int pos = sampleStart; pos + dmerSize <= sampleEnd; pos++) {
+                frequencies[hash(pos)]++;
+            }
+            sampleStart = sampleEnd;
+        }
+    }
+
+    // Скользящее окно из segmentSize - dmerSize + 1 d-граммов; каждый d-грамм считается в окне один раз.
+    // Возвращает [begin, end) позиций d-граммов лучшего отрезка, упакованные в long (пустой, если очков нет)
+    private long selectSegment(int begin, int end) {
+        int window = segmentSize - dmerSize + 1;
+        int activeBegin = begin;
+        long activeScore = 0;
+        int bestBegin = begin;
+        int bestEnd = begin;
+        long bestScore = 0;
+        int last = Math.min(end, text.length - dmerSize + 1);
+        int pos = begin;
+        for (; pos < last; pos++) {
+            int index = hash(pos);
+            if (segmentFrequencies[index]++ == 0) {
+                activeScore += frequencies[index];
+            }
+            if (pos - activeBegin + 1 > window) {
+                int removed = hash(activeBegin++);
+                if (--segmentFrequencies[removed] == 0) {
+                    activeScore -= frequencies[removed];
+                }
+            }
+            if (activeScore > bestScore) {
+                bestScore = activeScore;
+                bestBegin = activeBegin;
+                bestEnd = pos + 1;
+            }
+        }
+        for (int p = activeBegin; p < pos; p++) {
+            segmentFrequencies[hash(p)] = 0;
+        }
+        if (bestScore == 0) {
+            return 0;
+        }
+
+        // Края без полезных d-граммов только занимают место в словаре
+        int trimmedBegin = bestEnd;
+        int trimmedEnd = bestBegin;
+        for (int p = bestBegin; p < bestEnd; p++) {
+            if (frequencies[hash(p)] > 1) {
+                trimmedBegin = Math.min(trimmedBegin, p);
+                trimmedEnd = p + 1;
+            }
+        }
+        for (int p = bestBegin; p < bestEnd; p++) {
+            frequencies[hash(p)] = 0;
+        }
+        return trimmedEnd <= trimmedBegin ? 0 : (long) trimmedBegin << 32 | trimmedEnd;
+    }
+
+    private int hash(int pos) {
+        long value = 0;
+        for (int i = dmerSize - 1; i >= 0; i--) {
+            value = value << 8 | (text[pos + i] & 0xFF);
+        }
+        return (int) ((value * 0x9E3779B97F4A7C15L) >>> (64 - FREQUENCY_LOG));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Самоописывающий кадр: заголовок HEADER_SIZE байт - магия "CFRM", id кодека, пресет (ordinal),
+// исходная длина и CRC32 исходных данных (по 4 байта LE), затем данные кодека. decompress(byte[]) читает
+// любой кадр, кодек берётся из CodecRegistry по id, так что получателю не нужно знать, чем сжимали
+public class FramedCompression implements Compressor {
+
+    static final byte[] MAGIC = {'C', 'F', 'R', 'M'};
+    public static final int HEADER_SIZE = 14;
+
+    // Распаковщики по (id << 2 | пресет): кодеки держат пулы контекстов, создавать их на каждый кадр дорого
+    private static final ConcurrentHashMap<Integer, Compressor> DECODERS = new ConcurrentHashMap<>();
+
+    private final CodecProvider provider;
+    private final Codec.Preset preset;
+    private final Compressor compressor;
+
+    public FramedCompression(CodecProvider provider) {
+        this(provider, Codec.Preset.DEFAULT);
+    }
+
+    public FramedCompression(CodecProvider provider, Codec.Preset preset) {
+        if (CodecRegistry.forId(provider.id()) != provider) {
+            throw new IllegalArgumentException("Codec " + provider.name() + " is not registered under id " + provider.id());
+        }
+        this.provider = provider;
+        this.preset = preset;
+        this.compressor = provider.create(preset);
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) throws IOException {
+        byte[] payload = compressor.compress(input, offset, length);
+        byte[] frame = new byte[HEADER_SIZE + payload.length];
+        System.arraycopy(MAGIC, 0, frame, 0, MAGIC.length);
+        frame[4] = (byte) provider.id();
+        frame[5] = (byte) preset.ordinal();
+        SeekableOutputStream.writeIntLE(frame, 6, length);
+        SeekableOutputStream.writeIntLE(frame, 10, Crc32.compute(input, offset, length));
+        System.arraycopy(payload, 0, frame, HEADER_SIZE, payload.length);
+        return frame;
+    }
+
+    // Принимает кадр любого кодека, не только своего
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) throws IOException {
+        return decompressFrame(input, offset, length);
+    }
+
+    public static byte[] decompress(byte[] frame) throws IOException {
+        return decompressFrame(frame, 0, frame.length);
+    }
+
+    public static byte[] decompressFrame(byte[] input, int offset, int length) throws IOException {
+        CodecProvider provider = codecOf(input, offset, length);
+        int preset = input[offset + 5] & 0xFF;
+        if (preset >= Codec.Preset.values().length) {
+            throw new IOException("Unknown preset " + preset + " in " + provider.name() + " frame");
+        }
+        int rawLength = SeekableOutputStream.readIntLE(input, offset + 6);
+        if (rawLength < 0) {
+            throw new IOException("Corrupt frame length: " + rawLength);
+        }
+        Compressor decoder = DECODERS.computeIfAbsent(provider.id() << 2 | preset,
+                key -> provider.create(Codec.Preset.values()[preset]));
+        byte[] data = decoder.decompress(input, offset + HEADER_SIZE, length - HEADER_SIZE);
+        if (data.length != rawLength) {
+            throw new IOException(provider.name() + " frame length mismatch: expected " + rawLength + ", got " + data.length);
+        }
+        if (Crc32.compute(data, 0, data.length) != SeekableOutputStream.readIntLE(input, offset + 10)) {
+            throw new IOException(provider.name() + " frame CRC mismatch");
+        }
+        return data;
+    }
+
+    // Кодек, которым сжат кадр; IOException, если это не кадр или кодек не зарегистрирован
+    public static CodecProvider codecOf(byte[] input, int offset, int length) throws IOException {
+        if (!isFrame(input, offset, length)) {
+            throw new IOException(length < HEADER_SIZE ? "Truncated frame header: " + length + " bytes" : "Not a compressed frame");
+        }
+        int id = input[offset + 4] & 0xFF;
+        CodecProvider provider = CodecRegistry.forId(id);
+        if (provider == null) {
+            throw new IOException("Unknown codec id " + id + ", known: " + CodecRegistry.names());
+        }
+        return provider;
+    }
+
+    public static boolean isFrame(byte[] input, int offset, int length) {
+        if (length < HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (input[offset + i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public CodecProvider provider() {
+        return provider;
+    }
+
+    public Codec.Preset preset() {
+        return preset;
+    }
+}
\ No newline at end of file
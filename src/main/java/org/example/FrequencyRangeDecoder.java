@@ -0,0 +1,58 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+final class FrequencyRangeDecoder {
+
+    private final byte[] buffer;
+    private final int end;
+    private int position;
+    private long range;
+    private long code;
+
+    FrequencyRangeDecoder(byte[] data, int offset, int length) throws IOException {
+        buffer = data;
+        position = offset;
+        end = offset + length;
+        range = 0xFFFFFFFFL;
+        if (nextByte() != 0) {
+            throw new IOException("Corrupt range coder stream");
+        }
+        for (int i = 0; i < 4; i++) {
+            code = (code << 8) | nextByte();
+        }
+    }
+
+    // Накопленная частота, в интервал которой попал текущий код; на мусорном входе диапазон может схлопнуться
+    int threshold(int total) throws IOException {
+        if (total <= 0) {
+            throw new IOException("Corrupt range coder stream: total frequency " + total);
+        }
+        range /= total;
+        if (range == 0) {
+            throw new IOException("Corrupt range coder stream: range underflow");
+        }
+        long value = code / range;
+        if (value >= total) {
+            throw new IOException("Corrupt range coder stream");
+        }
+        return (int) value;
+    }
+
+    void decode(int start, int size) throws IOException {
+        code -= start * range;
+        range *= size;
+        while (range < FrequencyRangeEncoder.TOP) {
+            code = ((code << 8) | nextByte()) & 0xFFFFFFFFL;
+            range <<= 8;
+        }
+    }
+
+    private int nextByte() throws IOException {
+        if (position >= end) {
+            throw new EOFException("Unexpected end of range coder stream");
+        }
+        return buffer[position++] & 0xFF;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Range coder по накопленным частотам (вариант 7-Zip для PPMd): total не больше 2^16,
+// перенос в старшие байты через cache, как в RangeEncoder
+final class FrequencyRangeEncoder {
+
+    static final long TOP = 1L << 24;
+
+    private byte[] buffer;
+    private int position;
+    private long low;
+    private long range;
+    private int cache;
+    private long cacheSize;
+
+    FrequencyRangeEncoder(int initialCapacity) {
+        buffer = new byte[Math.max(16, initialCapacity)];
+        reset(initialCapacity);
+    }
+
+    // Начинает новый поток; буфер только растёт и переживает вызовы
+    void reset(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = new byte[capacity];
+        }
+        position = 0;
+        low = 0;
+        range = 0xFFFFFFFFL;
+        cache = 0;
+        cacheSize = 1;
+    }
+
+    void encode(int start, int size, int total) {
+        range /= total;
+        low += start * range;
+        range *= size;
+        while (range < TOP) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    // Возвращает длину потока в buffer()
+    int finish() {
+        for (int i = 0; i < 5; i++) {
+            shiftLow();
+        }
+        return position;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    private void shiftLow() {
+        int carry = (int) (low >>> 32);
+        if (carry != 0 || low < 0xFF000000L) {
+            int temp = cache;
+            do {
+                if (position == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                buffer[position++] = (byte) (temp + carry);
+                temp = 0xFF;
+            } while (--cacheSize != 0);
+            cache = (int) (low >>> 24) & 0xFF;
+        }
+        cacheSize++;
+        low = (low & 0x00FFFFFF) << 8;
+    }
+}
\ No newline at end of file
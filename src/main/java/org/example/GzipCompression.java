@@ -1,102 +1,174 @@
 package org.example;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class GzipCompression {
+public class GzipCompression implements Compressor {
 
-    public byte[] compress(String data) throws IOException {
-        byte[] input = data.getBytes(StandardCharsets.UTF_8);
-        byte[] header = createHeader();
-        byte[] deflatedData = deflate(input);
-        byte[] footer = createFooter(input);
+    public static final int DEFAULT_LEVEL = 6;
 
-        byte[] output = new byte[header.length + deflatedData.length + footer.length];
-        int pos = 0;
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
 
-        System.arraycopy(header, 0, output, pos, header.length);
-        pos += header.length;
-        System.arraycopy(deflatedData, 0, output, pos, deflatedData.length);
-        pos += deflatedData.length;
-        System.arraycopy(footer, 0, output, pos, footer.length);
+    private final int level;
+    private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<>();
 
-        return output;
+    public GzipCompression() {
+        this(DEFAULT_LEVEL);
     }
 
-    public String decompress(byte[] compressedData) throws IOException {
-        // Step 1: Skip the Gzip header (10 bytes) and footer (8 bytes).
-        int headerSize = 10;
-        int footerSize = 8;
+    // 1 is the fastest, 9 gives the best ratio, 0 writes stored blocks only
+    public GzipCompression(int level) {
+        if (level < 0 || level > 9) {
+            throw new IllegalArgumentException("Gzip level must be between 0 and 9: " + level);
+        }
+        this.level = level;
+    }
 
-        byte[] deflateData = Arrays.copyOfRange(compressedData, headerSize, compressedData.length - footerSize);
+    public byte[] compress(String data) throws IOException {
+        return compress(data.getBytes(StandardCharsets.UTF_8));
+    }
 
-        byte[] decompressedData = inflate(deflateData);
-        return new String(decompressedData, StandardCharsets.UTF_8);
+    public String decompress(byte[] compressedData) throws IOException {
+        return new String(decompressBytes(compressedData), StandardCharsets.UTF_8);
     }
 
-    private byte[] createHeader() {
-        // Create Gzip header (10 bytes)
-        byte[] header = new byte[10];
-        header[0] = 0x1F; // ID1
-        header[1] = (byte) 0x8B; // ID2
-        header[2] = 0x08; // Compression method (Deflate)
-        header[3] = 0x00; // Flags
-        header[4] = header[5] = header[6] = header[7] = 0x00; // Modification time
-        header[8] = 0x00; // Extra flags
-        header[9] = 0x03; // Operating system (Unix)
-        return header;
+    // Header, deflate stream and footer go into one pooled BitWriter, so the result is the only allocation
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) throws IOException {
+        Context context = acquire();
+        try {
+            BitWriter out = context.output;
+            out.reset();
+            writeHeader(out);
+            context.encoder().encode(input, offset, length, out);
+            out.writeBits(crc32(input, offset, length), 32);
+            out.writeBits(length, 32);
+            return out.toByteArray();
+        } finally {
+            contexts.offer(context);
+        }
     }
 
-    private byte[] createFooter(byte[] input) {
-        int crc = crc32(input);
-        int length = input.length;
-
-        byte[] footer = new byte[8];
-        footer[0] = (byte) (crc & 0xFF);
-        footer[1] = (byte) ((crc >> 8) & 0xFF);
-        footer[2] = (byte) ((crc >> 16) & 0xFF);
-        footer[3] = (byte) ((crc >> 24) & 0xFF);
-        footer[4] = (byte) (length & 0xFF);
-        footer[5] = (byte) ((length >> 8) & 0xFF);
-        footer[6] = (byte) ((length >> 16) & 0xFF);
-        footer[7] = (byte) ((length >> 24) & 0xFF);
-
-        return footer;
+    @Override
+    public byte[] decompress(byte[] compressedData, int offset, int length) throws IOException {
+        int end = offset + length;
+        int pos = skipHeader(compressedData, offset, end);
+
+        // The footer stores ISIZE, which lets the inflater allocate the output once
+        int expectedSize = end - 4 >= pos ? readIntLE(compressedData, end - 4) : 0;
+        Context context = acquire();
+        byte[] output;
+        try {
+            long start = CodecMetrics.start();
+            output = context.decoder.inflate(compressedData, pos, end - pos,
+                    expectedSize >= 0 && expectedSize <= length * 1032L ? expectedSize : length);
+            CodecMetrics.record(CodecMetrics.Stage.INFLATE, start, output.length);
+            pos = context.decoder.bytesConsumed();
+        } finally {
+            contexts.offer(context);
+        }
+        if (pos + 8 > end) {
+            throw new EOFException("Truncated gzip footer");
+        }
+        if (readIntLE(compressedData, pos) != crc32(output, 0, output.length)) {
+            throw new IOException("Gzip CRC32 mismatch");
+        }
+        if (readIntLE(compressedData, pos + 4) != output.length) {
+            throw new IOException("Gzip ISIZE mismatch");
+        }
+        return output;
+    }
+
+    private int skipHeader(byte[] data, int pos, int end) throws IOException {
+        if (end - pos < 10) {
+            throw new EOFException("Truncated gzip header");
+        }
+        if (data[pos] != 0x1F || data[pos + 1] != (byte) 0x8B) {
+            throw new IOException("Not in gzip format");
+        }
+        if (data[pos + 2] != 0x08) {
+            throw new IOException("Unsupported compression method: " + data[pos + 2]);
+        }
+        int flags = data[pos + 3] & 0xFF;
+        pos += 10;
+        if ((flags & FEXTRA) != 0) {
+            if (pos + 2 > end) {
+                throw new EOFException("Truncated gzip header");
+            }
+            pos += 2 + ((data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            pos = skipZeroTerminated(data, pos, end);
+        }
+        if ((flags & FCOMMENT) != 0) {
+            pos = skipZeroTerminated(data, pos, end);
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        if (pos > end) {
+            throw new EOFException("Truncated gzip header");
+        }
+        return pos;
     }
 
-    private byte[] deflate(byte[] data) throws IOException {
-        // Implement deflate algorithm (combination of LZ77 and Huffman coding)
+    private static int skipZeroTerminated(byte[] data, int pos, int end) throws IOException {
+        while (pos < end && data[pos] != 0) {
+            pos++;
+        }
+        if (pos >= end) {
+            throw new EOFException("Truncated gzip header");
+        }
+        return pos + 1;
+    }
 
-        // Placeholder code for deflate (this is very simplified and not actual deflate)
-        byte[] output = new byte[data.length + 1];
-        output[0] = (byte) data.length;
-        System.arraycopy(data, 0, output, 1, data.length);
+    private static int readIntLE(byte[] data, int pos) {
+        return (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16 | (data[pos + 3] & 0xFF) << 24;
+    }
 
-        return output;
+    private void writeHeader(BitWriter out) {
+        // Gzip header (10 bytes), written as little-endian bit fields
+        out.writeBits(0x1F, 8); // ID1
+        out.writeBits(0x8B, 8); // ID2
+        out.writeBits(0x08, 8); // Compression method (Deflate)
+        out.writeBits(0x00, 8); // Flags
+        out.writeBits(0, 32); // Modification time
+        out.writeBits(level == 9 ? 0x02 : level == 1 ? 0x04 : 0x00, 8); // Extra flags
+        out.writeBits(0x03, 8); // Operating system (Unix)
     }
 
-    private byte[] inflate(byte[] data) throws IOException {
-        // Implement inflate algorithm (reverse of deflate)
+    // Contexts are reused across calls; the pool holds at most one per concurrent caller
+    private Context acquire() {
+        Context context = contexts.poll();
+        return context != null ? context : new Context(level);
+    }
 
-        // Placeholder code for inflate (this is very simplified and not actual inflate)
-        int length = data[0] & 0xFF;
-        return Arrays.copyOfRange(data, 1, 1 + length);
+    private int crc32(byte[] data, int offset, int length) {
+        return Crc32.compute(data, offset, length);
     }
 
-    private int crc32(byte[] data) {
-        int crc = 0xFFFFFFFF;
-
-        for (byte b : data) {
-            crc ^= (b & 0xFF);
-            for (int i = 0; i < 8; i++) {
-                if ((crc & 1) != 0) {
-                    crc = (crc >>> 1) ^ 0xEDB88320;
-                } else {
-                    crc >>>= 1;
-                }
+    // Encoder tables, decoder tables and the output writer for one call at a time
+    private static final class Context {
+        final int level;
+        final DeflateDecoder decoder = new DeflateDecoder();
+        final BitWriter output = new BitWriter(1 << 12);
+        private DeflateEncoder encoder;
+
+        Context(int level) {
+            this.level = level;
+        }
+
+        // The encoder owns ~400 KB of hash and token tables, so decompress-only contexts never create it
+        DeflateEncoder encoder() {
+            if (encoder == null) {
+                encoder = new DeflateEncoder(level);
             }
+            return encoder;
         }
-        return crc ^ 0xFFFFFFFF;
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Хеш-цепочки по 4 байтам: head[hash] - последняя позиция, chain[pos & mask] - предыдущая с тем же хешем
+final class HashChainMatchFinder implements MatchFinder {
+
+    private final int windowLog;
+    private final int hashLog;
+    private final int searchDepth;
+    private final int niceLength;
+    private final int maxLength;
+
+    private int[] head;
+    private int[] chain;
+    private int windowMask;
+    private int hashShift;
+    private byte[] data;
+    private int start;
+    private int end;
+
+    HashChainMatchFinder(int windowLog, int hashLog, int searchDepth, int niceLength, int maxLength) {
+        this.windowLog = windowLog;
+        this.hashLog = hashLog;
+        this.searchDepth = searchDepth;
+        this.niceLength = niceLength;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public void reset(byte[] data, int start, int end) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+        int windowBits = Math.min(windowLog, tableBits(end - start));
+        int hashBits = Math.min(hashLog, windowBits + 1);
+        // Таблицы только растут: повторные вызовы на входах того же или меньшего размера ничего не выделяют
+        if (chain == null || chain.length < 1 << windowBits) {
+            chain = new int[1 << windowBits];
+        }
+        if (head == null || head.length < 1 << hashBits) {
+            head = new int[1 << hashBits];
+        }
+        Arrays.fill(head, 0, 1 << hashBits, -1);
+        windowMask = (1 << windowBits) - 1;
+        hashShift = 32 - hashBits;
+    }
+
+    @Override
+    public int findMatches(int pos, int[] matches) {
+        if (pos + MIN_MATCH > end) {
+            return 0;
+        }
+        int h = hash(pos);
+        int candidate = head[h];
+        head[h] = pos;
+        chain[pos & windowMask] = candidate;
+
+        byte[] in = data;
+        int limit = Math.min(maxLength, end - pos);
+        int windowStart = Math.max(start, pos - windowMask);
+        int best = MIN_MATCH - 1;
+        int count = 0;
+        for (int depth = searchDepth; candidate >= windowStart && depth > 0; depth--) {
+            if (in[candidate + best] == in[pos + best]) {
+                int length = MatchFinder.matchLength(in, candidate, pos, limit);
+                if (length > best) {
+                    best = length;
+                    matches[count * 2] = length;
+                    matches[count * 2 + 1] = pos - candidate;
+                    count++;
+                    if (length >= niceLength || length == limit) {
+                        break;
+                    }
+                }
+            }
+            int next = chain[candidate & windowMask];
+            if (next >= candidate) {
+                break;
+            }
+            candidate = next;
+        }
+        return count;
+    }
+
+    @Override
+    public void skip(int pos) {
+        if (pos + MIN_MATCH > end) {
+            return;
+        }
+        int h = hash(pos);
+        chain[pos & windowMask] = head[h];
+        head[h] = pos;
+    }
+
+    @Override
+    public int maxMatches() {
+        return searchDepth;
+    }
+
+    private int hash(int pos) {
+        byte[] in = data;
+        int v = (in[pos] & 0xFF) | (in[pos + 1] & 0xFF) << 8 | (in[pos + 2] & 0xFF) << 16 | (in[pos + 3] & 0xFF) << 24;
+        return (v * 0x9E3779B1) >>> hashShift;
+    }
+
+    static int tableBits(int length) {
+        return Math.max(6, 32 - Integer.numberOfLeadingZeros(Math.max(1, length - 1)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+// Ядра ByteKernels по отдельности: длина совпадения (mismatch на length байт с отличием в последнем байте),
+// сравнение памяти и гистограмма. Реализация, не доступная на этой JVM, не запускается: swar/vector требуют
+// сборки с профилем jdk17, vector - ещё и --add-modules jdk.incubator.vector (main() добавляет его сам)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class KernelBenchmark {
+
+    @Param({"scalar", "swar", "vector"})
+    private String kernel;
+
+    // 4..258 - совпадения LZ77 (258 - максимум deflate), 65536 и больше - блоки для гистограммы
+    @Param({"8", "32", "258", "4096", "262144"})
+    private int length;
+
+    private ByteKernels kernels;
+    private byte[] a;
+    private byte[] b;
+    private byte[] copy;
+    private int[] counts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        kernels = ByteKernels.forName(kernel);
+        if (kernels == null) {
+            throw new IllegalStateException(kernel + " kernels are not available on Java " + System.getProperty("java.version"));
+        }
+        a = Corpus.generate(Corpus.Shape.forName("logs"), length, 7);
+        b = a.clone();
+        b[length - 1] ^= 1;
+        copy = a.clone();
+        counts = new int[256];
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int matchLength() {
+        return kernels.mismatch(a, 0, b, 0, length);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public boolean compare() {
+        return kernels.equals(a, 0, copy, 0, length);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int[] histogram() {
+        kernels.histogram(a, 0, length, counts);
+        return counts;
+    }
+
+    // Как org.openjdk.jmh.Main, но на JDK 16+ форки получают модуль Vector API
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(KernelBenchmark.class.getName() + "\\.");
+        }
+        String version = System.getProperty("java.specification.version");
+        if (!version.startsWith("1.") && Integer.parseInt(version) >= 16) {
+            builder.jvmArgsAppend("--add-modules=jdk.incubator.vector");
+        }
+        new Runner(builder.build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,286 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Разбор входа на последовательности LZ77 поверх MatchFinder.
+// Формат: varint(исходная длина), затем последовательности
+// varint(число литералов), литералы, varint(длина - MIN_MATCH + 1), varint(дистанция);
+// код длины 0 завершает поток (после последних литералов дистанция не пишется).
+// Выходной буфер, таблицы MatchFinder и массивы оптимального разбора переиспользуются между вызовами
+final class Lz77Encoder {
+
+    enum Strategy {
+        GREEDY,
+        LAZY,
+        OPTIMAL
+    }
+
+    static final int MAX_MATCH = 1 << 16;
+
+    // Оптимальный разбор идёт окнами по OPTIMAL_BLOCK позиций
+    private static final int OPTIMAL_BLOCK = 1 << 12;
+    private static final int LITERAL_PRICE = 8;
+
+    private final MatchFinder finder;
+    private final Strategy strategy;
+    private final int niceLength;
+    private final int[] matches;
+
+    private byte[] output;
+    private int outputLength;
+    private byte[] window;
+    private int nextInsert;
+
+    private int[] price;
+    private int[] fromLength;
+    private int[] fromDistance;
+    private int[] path;
+
+    // Статистика совпадений текущего вызова, считается только при CodecMetrics.ENABLED
+    private int matchCount;
+    private long matchBytes;
+
+    Lz77Encoder(MatchFinder finder, Strategy strategy, int niceLength) {
+        this.finder = finder;
+        this.strategy = strategy;
+        this.niceLength = niceLength;
+        this.matches = new int[2 * finder.maxMatches() + 2];
+    }
+
+    // Возвращает длину результата в buffer(); буфер действителен до следующего вызова
+    int encode(byte[] input, int offset, int length) {
+        return encode(input, offset, offset, offset + length);
+    }
+
+    // prefix (содержимое словаря) стоит в окне перед входом: совпадения могут ссылаться в него,
+    // как в уже закодированные данные. Сам prefix в поток не пишется, декодер подставляет его так же
+    int encode(byte[] input, int offset, int length, byte[] prefix) {
+        if (prefix.length == 0) {
+            return encode(input, offset, length);
+        }
+        int total = prefix.length + length;
+        if (window == null || window.length < total) {
+            window = new byte[total];
+        }
+        System.arraycopy(prefix, 0, window, 0, prefix.length);
+        System.arraycopy(input, offset, window, prefix.length, length);
+        return encode(window, 0, prefix.length, total);
+    }
+
+    // Кодирует data[start, end); позиции [windowStart, start) только попадают в таблицы поиска
+    private int encode(byte[] data, int windowStart, int start, int end) {
+        int length = end - start;
+        int capacity = length + length / 8 + 16;
+        if (output == null || output.length < capacity) {
+            output = new byte[capacity];
+        }
+        outputLength = 0;
+        matchCount = 0;
+        matchBytes = 0;
+        writeVarInt(length);
+        finder.reset(data, windowStart, end);
+        nextInsert = windowStart;
+        switch (strategy) {
+            case GREEDY:
+                parseGreedy(data, start, end, false);
+                break;
+            case LAZY:
+                parseGreedy(data, start, end, true);
+                break;
+            default:
+                parseOptimal(data, start, end);
+                break;
+        }
+        CodecMetrics.recordMatches(matchCount, matchBytes, length - matchBytes);
+        return outputLength;
+    }
+
+    byte[] buffer() {
+        return output;
+    }
+
+    private void parseGreedy(byte[] input, int start, int end, boolean lazy) {
+        int literalStart = start;
+        int pos = start;
+        while (pos < end) {
+            int count = find(pos);
+            if (count == 0) {
+                pos++;
+                continue;
+            }
+            int length = matches[2 * count - 2];
+            int distance = matches[2 * count - 1];
+            // Ленивое сравнение: если со следующей позиции совпадение выгоднее, текущий байт уходит в литералы
+            while (lazy && length < niceLength && pos + 1 < end) {
+                int nextCount = find(pos + 1);
+                if (nextCount == 0) {
+                    break;
+                }
+                int nextLength = matches[2 * nextCount - 2];
+                int nextDistance = matches[2 * nextCount - 1];
+                if (gain(nextLength, nextDistance) <= gain(length, distance) + 4) {
+                    break;
+                }
+                pos++;
+                length = nextLength;
+                distance = nextDistance;
+            }
+            length = extend(input, pos, distance, length, end);
+            writeSequence(input, literalStart, pos, length, distance);
+            pos += length;
+            literalStart = pos;
+            skipTo(pos);
+        }
+        writeLastLiterals(input, literalStart, end);
+    }
+
+    // Динамическое программирование по цене в битах на окне из OPTIMAL_BLOCK позиций.
+    // Совпадение не длиннее niceLength рассматривается всеми своими префиксами, длинное берётся сразу
+    private void parseOptimal(byte[] input, int start, int end) {
+        if (price == null) {
+            price = new int[OPTIMAL_BLOCK + 1];
+            fromLength = new int[OPTIMAL_BLOCK + 1];
+            fromDistance = new int[OPTIMAL_BLOCK + 1];
+            path = new int[OPTIMAL_BLOCK + 1];
+        }
+        int[] price = this.price;
+        int[] fromLength = this.fromLength;
+        int[] fromDistance = this.fromDistance;
+        int[] path = this.path;
+        int literalStart = start;
+        int pos = start;
+        while (pos < end) {
+            int blockLength = Math.min(OPTIMAL_BLOCK, end - pos);
+            Arrays.fill(price, 1, blockLength + 1, Integer.MAX_VALUE);
+            price[0] = 0;
+            for (int i = 0; i < blockLength; i++) {
+                int p = pos + i;
+                if (price[i] + LITERAL_PRICE < price[i + 1]) {
+                    price[i + 1] = price[i] + LITERAL_PRICE;
+                    fromLength[i + 1] = 1;
+                }
+                if (p < nextInsert) {
+                    continue;
+                }
+                int count = find(p);
+                if (count == 0) {
+                    continue;
+                }
+                int longest = matches[2 * count - 2];
+                if (longest >= niceLength) {
+                    int distance = matches[2 * count - 1];
+                    int length = Math.min(extend(input, p, distance, longest, end), blockLength - i);
+                    if (length >= MatchFinder.MIN_MATCH) {
+                        price[i + length] = price[i] + matchPrice(length, distance);
+                        fromLength[i + length] = length;
+                        fromDistance[i + length] = distance;
+                        skipTo(p + length);
+                        blockLength = i + length;
+                        break;
+                    }
+                }
+                int minLength = MatchFinder.MIN_MATCH;
+                for (int k = 0; k < count; k++) {
+                    int maxLength = Math.min(matches[2 * k], blockLength - i);
+                    int distance = matches[2 * k + 1];
+                    for (int length = minLength; length <= maxLength; length++) {
+                        int candidate = price[i] + matchPrice(length, distance);
+                        if (candidate < price[i + length]) {
+                            price[i + length] = candidate;
+                            fromLength[i + length] = length;
+                            fromDistance[i + length] = distance;
+                        }
+                    }
+                    minLength = matches[2 * k] + 1;
+                }
+            }
+
+            int steps = 0;
+            for (int i = blockLength; i > 0; i -= fromLength[i]) {
+                path[steps++] = i;
+            }
+            int cursor = pos;
+            while (steps > 0) {
+                int i = path[--steps];
+                int length = fromLength[i];
+                if (length >= MatchFinder.MIN_MATCH) {
+                    writeSequence(input, literalStart, cursor, length, fromDistance[i]);
+                    literalStart = cursor + length;
+                }
+                cursor += length;
+            }
+            pos += blockLength;
+        }
+        writeLastLiterals(input, literalStart, end);
+    }
+
+    private int find(int pos) {
+        skipTo(pos);
+        nextInsert = pos + 1;
+        return finder.findMatches(pos, matches);
+    }
+
+    private void skipTo(int pos) {
+        while (nextInsert < pos) {
+            finder.skip(nextInsert++);
+        }
+    }
+
+    private static int extend(byte[] input, int pos, int distance, int length, int end) {
+        int limit = Math.min(MAX_MATCH, end - pos);
+        if (length >= limit) {
+            return length;
+        }
+        return length + MatchFinder.matchLength(input, pos - distance + length, pos + length, limit - length);
+    }
+
+    private static int gain(int length, int distance) {
+        return length * 4 - (32 - Integer.numberOfLeadingZeros(distance));
+    }
+
+    private static int matchPrice(int length, int distance) {
+        return 8 * (1 + varIntSize(length - MatchFinder.MIN_MATCH + 1) + varIntSize(distance));
+    }
+
+    private static int varIntSize(int value) {
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    private void writeSequence(byte[] input, int literalStart, int pos, int length, int distance) {
+        writeLiterals(input, literalStart, pos);
+        if (CodecMetrics.ENABLED) {
+            matchCount++;
+            matchBytes += length;
+        }
+        writeVarInt(length - MatchFinder.MIN_MATCH + 1);
+        writeVarInt(distance);
+    }
+
+    private void writeLastLiterals(byte[] input, int literalStart, int end) {
+        writeLiterals(input, literalStart, end);
+        writeVarInt(0);
+    }
+
+    private void writeLiterals(byte[] input, int from, int to) {
+        int count = to - from;
+        ensureCapacity(count + 16);
+        writeVarInt(count);
+        System.arraycopy(input, from, output, outputLength, count);
+        outputLength += count;
+    }
+
+    private void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            output[outputLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output[outputLength++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (outputLength + extra > output.length) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + extra));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,166 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Общие для кодера и декодера LZMA модели вероятностей, состояние из 12 значений и 4 повторных дистанции
+abstract class LzmaCoder {
+
+    static final int MATCH_LEN_MIN = 2;
+    static final int MATCH_LEN_MAX = 273;
+
+    static final int STATES = 12;
+    static final int LITERAL_STATES = 7;
+    static final int REPS = 4;
+
+    static final int DIST_STATES = 4;
+    static final int DIST_SLOT_BITS = 6;
+    static final int DIST_MODEL_END = 14;
+    static final int FULL_DISTANCES = 1 << (DIST_MODEL_END >>> 1);
+    static final int ALIGN_BITS = 4;
+
+    static final int LOW_BITS = 3;
+    static final int MID_BITS = 3;
+    static final int HIGH_BITS = 8;
+    static final int LOW_SYMBOLS = 1 << LOW_BITS;
+    static final int MID_SYMBOLS = 1 << MID_BITS;
+
+    final int lc;
+    final int lp;
+    final int pb;
+    final int posMask;
+
+    final int[] reps = new int[REPS];
+    int state;
+
+    final short[][] isMatch;
+    final short[] isRep = new short[STATES];
+    final short[] isRepG0 = new short[STATES];
+    final short[] isRepG1 = new short[STATES];
+    final short[] isRepG2 = new short[STATES];
+    final short[][] isRep0Long;
+    final short[][] distSlots = new short[DIST_STATES][1 << DIST_SLOT_BITS];
+    final short[] distSpecial = new short[FULL_DISTANCES - DIST_MODEL_END];
+    final short[] distAlign = new short[1 << ALIGN_BITS];
+    final short[][] literals;
+    final LengthModel matchLength;
+    final LengthModel repLength;
+
+    LzmaCoder(int lc, int lp, int pb) {
+        this.lc = lc;
+        this.lp = lp;
+        this.pb = pb;
+        this.posMask = (1 << pb) - 1;
+        isMatch = new short[STATES][1 << pb];
+        isRep0Long = new short[STATES][1 << pb];
+        literals = new short[1 << (lc + lp)][0x300];
+        matchLength = new LengthModel(1 << pb);
+        repLength = new LengthModel(1 << pb);
+    }
+
+    // Сбрасывает вероятности и состояние; словарь при этом сохраняется
+    void reset() {
+        Arrays.fill(reps, 0);
+        state = 0;
+        for (int i = 0; i < STATES; i++) {
+            Arrays.fill(isMatch[i], (short) RangeEncoder.PROB_INIT);
+            Arrays.fill(isRep0Long[i], (short) RangeEncoder.PROB_INIT);
+        }
+        Arrays.fill(isRep, (short) RangeEncoder.PROB_INIT);
+        Arrays.fill(isRepG0, (short) RangeEncoder.PROB_INIT);
+        Arrays.fill(isRepG1, (short) RangeEncoder.PROB_INIT);
+        Arrays.fill(isRepG2, (short) RangeEncoder.PROB_INIT);
+        for (short[] probs : distSlots) {
+            Arrays.fill(probs, (short) RangeEncoder.PROB_INIT);
+        }
+        Arrays.fill(distSpecial, (short) RangeEncoder.PROB_INIT);
+        Arrays.fill(distAlign, (short) RangeEncoder.PROB_INIT);
+        for (short[] probs : literals) {
+            Arrays.fill(probs, (short) RangeEncoder.PROB_INIT);
+        }
+        matchLength.reset();
+        repLength.reset();
+    }
+
+    // Байт свойств LZMA2: (pb * 5 + lp) * 9 + lc
+    int propertiesByte() {
+        return (pb * 5 + lp) * 9 + lc;
+    }
+
+    final short[] literalProbs(int position, int previousByte) {
+        int lpMask = (1 << lp) - 1;
+        return literals[((position & lpMask) << lc) + ((previousByte & 0xFF) >>> (8 - lc))];
+    }
+
+    final boolean isLiteralState() {
+        return state < LITERAL_STATES;
+    }
+
+    final void updateLiteral() {
+        state = afterLiteral(state);
+    }
+
+    final void updateMatch() {
+        state = afterMatch(state);
+    }
+
+    final void updateLongRep() {
+        state = afterLongRep(state);
+    }
+
+    final void updateShortRep() {
+        state = afterShortRep(state);
+    }
+
+    // Переходы автомата состояний без привязки к полю state - для цен оптимального разбора
+    static int afterLiteral(int state) {
+        return state < 4 ? 0 : state < 10 ? state - 3 : state - 6;
+    }
+
+    static int afterMatch(int state) {
+        return state < LITERAL_STATES ? 7 : 10;
+    }
+
+    static int afterLongRep(int state) {
+        return state < LITERAL_STATES ? 8 : 11;
+    }
+
+    static int afterShortRep(int state) {
+        return state < LITERAL_STATES ? 9 : 11;
+    }
+
+    static int distState(int length) {
+        return Math.min(length - MATCH_LEN_MIN, DIST_STATES - 1);
+    }
+
+    static int distSlot(int distance) {
+        if (distance < 4) {
+            return distance;
+        }
+        int n = 31 - Integer.numberOfLeadingZeros(distance);
+        return (n << 1) | ((distance >>> (n - 1)) & 1);
+    }
+
+    // Длина - MATCH_LEN_MIN: 8 коротких, 8 средних (по posState) и 256 длинных символов
+    static final class LengthModel {
+        final short[] choice = new short[2];
+        final short[][] low;
+        final short[][] mid;
+        final short[] high = new short[1 << HIGH_BITS];
+
+        LengthModel(int posStates) {
+            low = new short[posStates][LOW_SYMBOLS];
+            mid = new short[posStates][MID_SYMBOLS];
+        }
+
+        void reset() {
+            Arrays.fill(choice, (short) RangeEncoder.PROB_INIT);
+            for (short[] probs : low) {
+                Arrays.fill(probs, (short) RangeEncoder.PROB_INIT);
+            }
+            for (short[] probs : mid) {
+                Arrays.fill(probs, (short) RangeEncoder.PROB_INIT);
+            }
+            Arrays.fill(high, (short) RangeEncoder.PROB_INIT);
+        }
+    }
+}
\ No newline at end of file
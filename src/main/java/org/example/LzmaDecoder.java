@@ -0,0 +1,215 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+// Декодер LZMA2 прямо в выходной массив: весь распакованный блок служит словарём
+final class LzmaDecoder extends LzmaCoder {
+
+    private final RangeDecoder rc = new RangeDecoder();
+
+    LzmaDecoder() {
+        super(3, 0, 2);
+    }
+
+    // Распаковывает LZMA2-поток в output[outputOffset, outputOffset + outputLength) и возвращает число прочитанных байтов
+    int decodeLzma2(byte[] input, int offset, int length, byte[] output, int outputOffset, int outputLength)
+            throws IOException {
+        int in = offset;
+        int inEnd = offset + length;
+        int out = outputOffset;
+        int outEnd = outputOffset + outputLength;
+        boolean needDictReset = true;
+        boolean needProperties = true;
+        boolean needStateReset = true;
+        while (true) {
+            if (in >= inEnd) {
+                throw new EOFException("Truncated LZMA2 stream");
+            }
+            int control = input[in++] & 0xFF;
+            if (control == 0x00) {
+                break;
+            }
+            if (control == 0x01 || control == 0x02) {
+                if (control == 0x02 && needDictReset) {
+                    throw new IOException("LZMA2 stream does not start with a dictionary reset");
+                }
+                if (in + 2 > inEnd) {
+                    throw new EOFException("Truncated LZMA2 chunk header");
+                }
+                int size = ((input[in] & 0xFF) << 8 | (input[in + 1] & 0xFF)) + 1;
+                in += 2;
+                if (size > inEnd - in || size > outEnd - out) {
+                    throw new IOException("Corrupt LZMA2 uncompressed chunk");
+                }
+                System.arraycopy(input, in, output, out, size);
+                in += size;
+                out += size;
+                needDictReset = false;
+                needStateReset = true;
+                continue;
+            }
+            if (control < 0x80) {
+                throw new IOException("Invalid LZMA2 control byte: " + control);
+            }
+            if (in + 4 > inEnd) {
+                throw new EOFException("Truncated LZMA2 chunk header");
+            }
+            int uncompressedSize = ((control & 0x1F) << 16 | (input[in] & 0xFF) << 8 | (input[in + 1] & 0xFF)) + 1;
+            int compressedSize = ((input[in + 2] & 0xFF) << 8 | (input[in + 3] & 0xFF)) + 1;
+            in += 4;
+            int resetMode = (control >>> 5) & 3;
+            if (needDictReset && resetMode != 3) {
+                throw new IOException("LZMA2 stream does not start with a dictionary reset");
+            }
+            if (needProperties && resetMode < 2) {
+                throw new IOException("LZMA2 chunk is missing properties");
+            }
+            if (needStateReset && resetMode < 1) {
+                throw new IOException("LZMA2 chunk is missing a state reset");
+            }
+            if (resetMode >= 2) {
+                if (in >= inEnd) {
+                    throw new EOFException("Truncated LZMA2 chunk header");
+                }
+                if ((input[in++] & 0xFF) != propertiesByte()) {
+                    throw new IOException("Unsupported LZMA properties (only lc=3, lp=0, pb=2)");
+                }
+            }
+            if (resetMode >= 1) {
+                reset();
+            }
+            if (compressedSize > inEnd - in || uncompressedSize > outEnd - out) {
+                throw new IOException("Corrupt LZMA2 chunk sizes");
+            }
+            rc.init(input, in, compressedSize);
+            decodeChunk(output, outputOffset, out, out + uncompressedSize);
+            rc.normalize();
+            if (!rc.isFinished()) {
+                throw new IOException("LZMA2 chunk has trailing data");
+            }
+            in += compressedSize;
+            out += uncompressedSize;
+            needDictReset = false;
+            needProperties = false;
+            needStateReset = false;
+        }
+        if (out != outEnd) {
+            throw new IOException("LZMA2 stream size mismatch");
+        }
+        return in - offset;
+    }
+
+    private void decodeChunk(byte[] output, int dictStart, int out, int limit) throws IOException {
+        while (out < limit) {
+            int posState = (out - dictStart) & posMask;
+            if (rc.decodeBit(isMatch[state], posState) == 0) {
+                out = decodeLiteral(output, dictStart, out);
+                continue;
+            }
+            int length;
+            if (rc.decodeBit(isRep, state) == 0) {
+                length = decodeLength(matchLength, posState);
+                reps[3] = reps[2];
+                reps[2] = reps[1];
+                reps[1] = reps[0];
+                reps[0] = decodeDistance(length);
+                updateMatch();
+            } else if (rc.decodeBit(isRepG0, state) == 0) {
+                if (rc.decodeBit(isRep0Long[state], posState) == 0) {
+                    updateShortRep();
+                    length = 1;
+                } else {
+                    length = decodeLength(repLength, posState);
+                    updateLongRep();
+                }
+            } else {
+                int dist;
+                if (rc.decodeBit(isRepG1, state) == 0) {
+                    dist = reps[1];
+                } else {
+                    if (rc.decodeBit(isRepG2, state) == 0) {
+                        dist = reps[2];
+                    } else {
+                        dist = reps[3];
+                        reps[3] = reps[2];
+                    }
+                    reps[2] = reps[1];
+                }
+                reps[1] = reps[0];
+                reps[0] = dist;
+                length = decodeLength(repLength, posState);
+                updateLongRep();
+            }
+
+            int distance = reps[0] + 1;
+            if (distance <= 0 || distance > out - dictStart) {
+                throw new IOException("LZMA distance out of range");
+            }
+            if (length > limit - out) {
+                throw new IOException("LZMA match crosses chunk boundary");
+            }
+            int from = out - distance;
+            if (distance >= length) {
+                System.arraycopy(output, from, output, out, length);
+                out += length;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    output[out++] = output[from + i];
+                }
+            }
+        }
+    }
+
+    private int decodeLiteral(byte[] output, int dictStart, int out) throws IOException {
+        int previous = out > dictStart ? output[out - 1] : 0;
+        short[] probs = literalProbs(out - dictStart, previous);
+        int symbol = 1;
+        if (isLiteralState()) {
+            do {
+                symbol = (symbol << 1) | rc.decodeBit(probs, symbol);
+            } while (symbol < 0x100);
+        } else {
+            int distance = reps[0] + 1;
+            if (distance > out - dictStart) {
+                throw new IOException("LZMA distance out of range");
+            }
+            int matchByte = output[out - distance] & 0xFF;
+            int offset = 0x100;
+            do {
+                matchByte <<= 1;
+                int matchBit = matchByte & offset;
+                int bit = rc.decodeBit(probs, offset + matchBit + symbol);
+                symbol = (symbol << 1) | bit;
+                offset &= (0 - bit) ^ ~matchBit;
+            } while (symbol < 0x100);
+        }
+        output[out] = (byte) symbol;
+        updateLiteral();
+        return out + 1;
+    }
+
+    private int decodeLength(LengthModel model, int posState) throws IOException {
+        if (rc.decodeBit(model.choice, 0) == 0) {
+            return MATCH_LEN_MIN + rc.decodeBitTree(model.low[posState], LOW_BITS);
+        }
+        if (rc.decodeBit(model.choice, 1) == 0) {
+            return MATCH_LEN_MIN + LOW_SYMBOLS + rc.decodeBitTree(model.mid[posState], MID_BITS);
+        }
+        return MATCH_LEN_MIN + LOW_SYMBOLS + MID_SYMBOLS + rc.decodeBitTree(model.high, HIGH_BITS);
+    }
+
+    private int decodeDistance(int length) throws IOException {
+        int slot = rc.decodeBitTree(distSlots[distState(length)], DIST_SLOT_BITS);
+        if (slot < 4) {
+            return slot;
+        }
+        int footerBits = (slot >>> 1) - 1;
+        int dist = (2 | (slot & 1)) << footerBits;
+        if (slot < DIST_MODEL_END) {
+            return dist + rc.decodeReverseBitTree(distSpecial, dist - slot - 1, footerBits);
+        }
+        dist += rc.decodeDirectBits(footerBits - ALIGN_BITS) << ALIGN_BITS;
+        return dist + rc.decodeReverseBitTree(distAlign, 0, ALIGN_BITS);
+    }
+}
\ No newline at end of file
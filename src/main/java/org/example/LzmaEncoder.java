@@ -0,0 +1,765 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Кодер LZMA2: символы LZMA поверх MatchFinder, поток режется на чанки не больше 2 MiB исходных и 64 KiB
+// сжатых байтов. Разбор быстрый (как LZMAEncoderFast в XZ Utils) или оптимальный (как LZMAEncoderNormal):
+// кратчайший по цене путь на OPTS байтов вперёд с учётом состояния, повторов и текущих вероятностей
+final class LzmaEncoder extends LzmaCoder {
+
+    static final int UNCOMPRESSED_CHUNK_MAX = 1 << 21;
+    static final int COMPRESSED_CHUNK_MAX = 1 << 16;
+    static final int STORED_CHUNK_MAX = 1 << 16;
+
+    // Запас на один символ: совпадение с дальней дистанцией занимает меньше 40 байтов
+    private static final int SYMBOL_MARGIN = 64;
+
+    private static final int OPTS = 4096;
+    private static final int INFINITE_PRICE = 1 << 30;
+    // Таблицы цен пересчитываются не после каждого символа, а раз в столько закодированных
+    private static final int LENGTH_PRICE_INTERVAL = 32;
+    private static final int DIST_PRICE_INTERVAL = FULL_DISTANCES;
+    private static final int ALIGN_PRICE_INTERVAL = 1 << ALIGN_BITS;
+
+    private final MatchFinder finder;
+    private final int niceLength;
+    private final boolean optimal;
+    private final RangeEncoder rc = new RangeEncoder(COMPRESSED_CHUNK_MAX + SYMBOL_MARGIN);
+
+    private int[] matches;
+    private int[] nextMatches;
+    private int matchCount;
+    private int nextMatchCount;
+    private boolean lookaheadValid;
+    private int matchesPosition;
+
+    // Узлы оптимального разбора по смещению от pos: цена пути, предыдущий узел, символ (-1 - литерал,
+    // 0..3 - повтор, REPS + dist - совпадение), состояние и повторы после него
+    private int[] optPrice;
+    private int[] optPrev;
+    private int[] optBack;
+    private int[] optState;
+    private int[] optReps;
+    private final int[] repLengths = new int[REPS];
+    // Найденный путь ждёт кодирования: длина и дистанция символа, 0 - литерал
+    private int[] pendingLength;
+    private int[] pendingDistance;
+    private int pendingIndex;
+    private int pendingCount;
+
+    private int[][] matchLengthPrices;
+    private int[][] repLengthPrices;
+    private final int[] matchLengthCounters = new int[1 << pb];
+    private final int[] repLengthCounters = new int[1 << pb];
+    private int[][] distSlotPrices;
+    private int[][] fullDistPrices;
+    private int[] alignPrices;
+    private int distPriceCount;
+    private int alignPriceCount;
+
+    private byte[] input;
+    private int start;
+    private int end;
+    private int pos;
+    private int nextInsert;
+
+    private byte[] output;
+    private int outputLength;
+
+    LzmaEncoder(MatchFinder finder, int niceLength, boolean optimal) {
+        super(3, 0, 2);
+        this.finder = finder;
+        this.niceLength = Math.min(niceLength, MATCH_LEN_MAX);
+        this.optimal = optimal;
+        this.matches = new int[2 * finder.maxMatches() + 2];
+        this.nextMatches = new int[matches.length];
+        if (optimal) {
+            optPrice = new int[OPTS];
+            optPrev = new int[OPTS];
+            optBack = new int[OPTS];
+            optState = new int[OPTS];
+            optReps = new int[OPTS * REPS];
+            pendingLength = new int[OPTS];
+            pendingDistance = new int[OPTS];
+            int lengths = this.niceLength - MATCH_LEN_MIN + 1;
+            matchLengthPrices = new int[1 << pb][lengths];
+            repLengthPrices = new int[1 << pb][lengths];
+            distSlotPrices = new int[DIST_STATES][1 << DIST_SLOT_BITS];
+            fullDistPrices = new int[DIST_STATES][FULL_DISTANCES];
+            alignPrices = new int[1 << ALIGN_BITS];
+        }
+    }
+
+    // Возвращает длину LZMA2-потока в buffer(); кодер, его MatchFinder и буфер переиспользуются следующим вызовом
+    int encodeLzma2(byte[] input, int offset, int length) {
+        this.input = input;
+        this.start = offset;
+        this.end = offset + length;
+        this.pos = offset;
+        this.nextInsert = offset;
+        this.lookaheadValid = false;
+        this.matchesPosition = -1;
+        this.pendingIndex = 0;
+        this.pendingCount = 0;
+        if (output == null || output.length < length / 2 + 64) {
+            output = new byte[length / 2 + 64];
+        }
+        outputLength = 0;
+        finder.reset(input, offset, end);
+        reset();
+
+        boolean needDictReset = true;
+        boolean needProperties = true;
+        boolean needStateReset = true;
+        while (pos < end) {
+            int chunkStart = pos;
+            rc.reset();
+            while (pos < end && pos - chunkStart <= UNCOMPRESSED_CHUNK_MAX - MATCH_LEN_MAX
+                    && rc.pendingSize() <= COMPRESSED_CHUNK_MAX - SYMBOL_MARGIN) {
+                encodeSymbol();
+            }
+            int compressedSize = rc.finish();
+            int uncompressedSize = pos - chunkStart;
+
+            if (compressedSize + 2 >= uncompressedSize) {
+                // Сжатие не окупилось: байты идут несжатыми чанками, модели сбрасываются
+                for (int p = chunkStart; p < pos; p += STORED_CHUNK_MAX) {
+                    int size = Math.min(STORED_CHUNK_MAX, pos - p);
+                    ensureCapacity(size + 3);
+                    output[outputLength++] = (byte) (needDictReset ? 0x01 : 0x02);
+                    output[outputLength++] = (byte) ((size - 1) >>> 8);
+                    output[outputLength++] = (byte) (size - 1);
+                    System.arraycopy(input, p, output, outputLength, size);
+                    outputLength += size;
+                    needDictReset = false;
+                }
+                reset();
+                needStateReset = true;
+                continue;
+            }
+
+            int control = needDictReset ? 0xE0 : needProperties ? 0xC0 : needStateReset ? 0xA0 : 0x80;
+            ensureCapacity(compressedSize + 6);
+            output[outputLength++] = (byte) (control | ((uncompressedSize - 1) >>> 16));
+            output[outputLength++] = (byte) ((uncompressedSize - 1) >>> 8);
+            output[outputLength++] = (byte) (uncompressedSize - 1);
+            output[outputLength++] = (byte) ((compressedSize - 1) >>> 8);
+            output[outputLength++] = (byte) (compressedSize - 1);
+            if (needProperties) {
+                output[outputLength++] = (byte) propertiesByte();
+            }
+            System.arraycopy(rc.buffer(), 0, output, outputLength, compressedSize);
+            outputLength += compressedSize;
+            needDictReset = false;
+            needProperties = false;
+            needStateReset = false;
+        }
+        ensureCapacity(1);
+        output[outputLength++] = 0x00;
+        this.input = null;
+        return outputLength;
+    }
+
+    byte[] buffer() {
+        return output;
+    }
+
+    @Override
+    void reset() {
+        super.reset();
+        Arrays.fill(matchLengthCounters, 0);
+        Arrays.fill(repLengthCounters, 0);
+        distPriceCount = 0;
+        alignPriceCount = 0;
+    }
+
+    private void encodeSymbol() {
+        if (optimal) {
+            encodeOptimal();
+        } else {
+            encodeFast();
+        }
+    }
+
+    // Символы пути кодируются по одному, чтобы границы чанков проверялись как при быстром разборе.
+    // Повторы сверяются с текущими: после несжатого чанка модели сброшены, и повтор из пути идёт совпадением
+    private void encodeOptimal() {
+        if (pendingIndex == pendingCount) {
+            pendingIndex = 0;
+            pendingCount = 0;
+            parseOptimal();
+        }
+        int length = pendingLength[pendingIndex];
+        int distance = pendingDistance[pendingIndex++];
+        if (length == 1) {
+            if (distance != 0 && distance == reps[0] + 1) {
+                encodeShortRep();
+            } else {
+                encodeLiteral();
+            }
+            return;
+        }
+        for (int rep = 0; rep < REPS; rep++) {
+            if (reps[rep] + 1 == distance) {
+                encodeRepMatch(rep, length);
+                return;
+            }
+        }
+        encodeMatch(distance, length);
+    }
+
+    private void parseOptimal() {
+        int avail = Math.min(end - pos, MATCH_LEN_MAX);
+        if (matchesPosition != pos) {
+            matchCount = find(pos, matches);
+            matchesPosition = pos;
+        }
+        if (avail < MATCH_LEN_MIN) {
+            addPending(1, 0);
+            return;
+        }
+
+        int bestRep = 0;
+        for (int rep = 0; rep < REPS; rep++) {
+            repLengths[rep] = repLength(pos, rep, avail);
+            if (repLengths[rep] > repLengths[bestRep]) {
+                bestRep = rep;
+            }
+        }
+        if (repLengths[bestRep] >= niceLength) {
+            addPending(repLengths[bestRep], reps[bestRep] + 1);
+            return;
+        }
+        int mainLength = 0;
+        if (matchCount > 0) {
+            mainLength = matches[2 * matchCount - 2];
+            int mainDistance = matches[2 * matchCount - 1];
+            if (mainLength >= niceLength) {
+                addPending(extend(mainDistance, mainLength, avail), mainDistance);
+                return;
+            }
+        }
+        int current = input[pos] & 0xFF;
+        int matchByte = pos - reps[0] - 1 >= start ? input[pos - reps[0] - 1] & 0xFF : -1;
+        if (mainLength < MATCH_LEN_MIN && current != matchByte && repLengths[bestRep] < MATCH_LEN_MIN) {
+            addPending(1, 0);
+            return;
+        }
+
+        updatePrices();
+        int posState = (pos - start) & posMask;
+        optState[0] = state;
+        System.arraycopy(reps, 0, optReps, 0, REPS);
+        optPrice[0] = 0;
+        optPrice[1] = literalPrice(pos, state, reps[0]);
+        optPrev[1] = 0;
+        optBack[1] = -1;
+        int anyMatchPrice = RangeEncoder.bitPrice(isMatch[state][posState], 1);
+        int anyRepPrice = anyMatchPrice + RangeEncoder.bitPrice(isRep[state], 1);
+        if (matchByte == current) {
+            int price = shortRepPrice(anyRepPrice, state, posState);
+            if (price < optPrice[1]) {
+                optPrice[1] = price;
+                optBack[1] = 0;
+            }
+        }
+        int optEnd = Math.max(mainLength, repLengths[bestRep]);
+        if (optEnd < MATCH_LEN_MIN) {
+            addPending(1, optBack[1] == 0 ? reps[0] + 1 : 0);
+            return;
+        }
+        for (int i = 2; i <= optEnd; i++) {
+            optPrice[i] = INFINITE_PRICE;
+        }
+        for (int rep = 0; rep < REPS; rep++) {
+            if (repLengths[rep] < MATCH_LEN_MIN) {
+                continue;
+            }
+            int price = longRepPrice(anyRepPrice, rep, state, posState);
+            for (int length = repLengths[rep]; length >= MATCH_LEN_MIN; length--) {
+                relax(length, price + repLengthPrices[posState][length - MATCH_LEN_MIN], 0, rep);
+            }
+        }
+        int startLength = Math.max(repLengths[0] + 1, MATCH_LEN_MIN);
+        if (startLength <= mainLength) {
+            relaxMatches(0, startLength, anyMatchPrice + RangeEncoder.bitPrice(isRep[state], 0), posState);
+        }
+
+        avail = Math.min(end - pos, OPTS - 1);
+        int optCur = 0;
+        while (++optCur < optEnd) {
+            int position = pos + optCur;
+            matchCount = find(position, matches);
+            matchesPosition = position;
+            if (matchCount > 0 && matches[2 * matchCount - 2] >= niceLength) {
+                break;
+            }
+            avail--;
+            posState = (position - start) & posMask;
+            updateOptState(optCur);
+            int nodeState = optState[optCur];
+            int base = optCur * REPS;
+            anyMatchPrice = optPrice[optCur] + RangeEncoder.bitPrice(isMatch[nodeState][posState], 1);
+            anyRepPrice = anyMatchPrice + RangeEncoder.bitPrice(isRep[nodeState], 1);
+
+            relax(optCur + 1, optPrice[optCur] + literalPrice(position, nodeState, optReps[base]), optCur, -1);
+            current = input[position] & 0xFF;
+            matchByte = position - optReps[base] - 1 >= start ? input[position - optReps[base] - 1] & 0xFF : -1;
+            if (matchByte == current && (optPrev[optCur + 1] == optCur || optBack[optCur + 1] != 0)) {
+                int price = shortRepPrice(anyRepPrice, nodeState, posState);
+                if (price <= optPrice[optCur + 1]) {
+                    optPrice[optCur + 1] = price;
+                    optPrev[optCur + 1] = optCur;
+                    optBack[optCur + 1] = 0;
+                }
+            }
+            if (avail < MATCH_LEN_MIN) {
+                continue;
+            }
+
+            int lengthLimit = Math.min(avail, niceLength);
+            startLength = MATCH_LEN_MIN;
+            for (int rep = 0; rep < REPS; rep++) {
+                int distance = optReps[base + rep] + 1;
+                if (position - distance < start) {
+                    continue;
+                }
+                int repLength = MatchFinder.matchLength(input, position - distance, position, lengthLimit);
+                if (repLength < MATCH_LEN_MIN) {
+                    continue;
+                }
+                while (optEnd < optCur + repLength) {
+                    optPrice[++optEnd] = INFINITE_PRICE;
+                }
+                int price = longRepPrice(anyRepPrice, rep, nodeState, posState);
+                for (int length = repLength; length >= MATCH_LEN_MIN; length--) {
+                    relax(optCur + length, price + repLengthPrices[posState][length - MATCH_LEN_MIN], optCur, rep);
+                }
+                if (rep == 0) {
+                    startLength = repLength + 1;
+                }
+            }
+
+            if (matchCount == 0) {
+                continue;
+            }
+            // Совпадения длиннее остатка окна узлов обрезаются по нему
+            if (matches[2 * matchCount - 2] > avail) {
+                int count = 0;
+                while (matches[2 * count] < avail) {
+                    count++;
+                }
+                matches[2 * count] = avail;
+                matchCount = count + 1;
+            }
+            if (matches[2 * matchCount - 2] < startLength) {
+                continue;
+            }
+            while (optEnd < optCur + matches[2 * matchCount - 2]) {
+                optPrice[++optEnd] = INFINITE_PRICE;
+            }
+            relaxMatches(optCur, startLength, anyMatchPrice + RangeEncoder.bitPrice(isRep[nodeState], 0), posState);
+        }
+
+        int count = 0;
+        for (int node = optCur; node > 0; node = optPrev[node]) {
+            count++;
+        }
+        pendingCount = count;
+        for (int node = optCur; node > 0; node = optPrev[node]) {
+            int previous = optPrev[node];
+            int back = optBack[node];
+            count--;
+            pendingLength[count] = node - previous;
+            pendingDistance[count] = back < 0 ? 0 : back < REPS ? optReps[previous * REPS + back] + 1 : back - REPS + 1;
+        }
+    }
+
+    private void addPending(int length, int distance) {
+        pendingLength[pendingCount] = length;
+        pendingDistance[pendingCount++] = distance;
+    }
+
+    private void relax(int node, int price, int previous, int back) {
+        if (price < optPrice[node]) {
+            optPrice[node] = price;
+            optPrev[node] = previous;
+            optBack[node] = back;
+        }
+    }
+
+    private void relaxMatches(int optCur, int startLength, int normalMatchPrice, int posState) {
+        int i = 0;
+        while (startLength > matches[2 * i]) {
+            i++;
+        }
+        for (int length = startLength; ; length++) {
+            int dist = matches[2 * i + 1] - 1;
+            relax(optCur + length, normalMatchPrice + matchPrice(dist, length, posState), optCur, REPS + dist);
+            if (length == matches[2 * i] && ++i == matchCount) {
+                break;
+            }
+        }
+    }
+
+    // Состояние и повторы узла после символа, которым к нему пришли
+    private void updateOptState(int optCur) {
+        int previous = optPrev[optCur];
+        int back = optBack[optCur];
+        int from = previous * REPS;
+        int to = optCur * REPS;
+        if (previous == optCur - 1) {
+            optState[optCur] = back == 0 ? afterShortRep(optState[previous]) : afterLiteral(optState[previous]);
+            System.arraycopy(optReps, from, optReps, to, REPS);
+        } else if (back < REPS) {
+            optState[optCur] = afterLongRep(optState[previous]);
+            optReps[to] = optReps[from + back];
+            for (int rep = 1; rep < REPS; rep++) {
+                optReps[to + rep] = optReps[from + (rep <= back ? rep - 1 : rep)];
+            }
+        } else {
+            optState[optCur] = afterMatch(optState[previous]);
+            optReps[to] = back - REPS;
+            System.arraycopy(optReps, from, optReps, to + 1, REPS - 1);
+        }
+    }
+
+    private int literalPrice(int position, int literalState, int rep0) {
+        int price = RangeEncoder.bitPrice(isMatch[literalState][(position - start) & posMask], 0);
+        int previous = position > start ? input[position - 1] : 0;
+        short[] probs = literalProbs(position - start, previous);
+        int symbol = (input[position] & 0xFF) | 0x100;
+        if (literalState < LITERAL_STATES) {
+            do {
+                price += RangeEncoder.bitPrice(probs[symbol >>> 8], (symbol >>> 7) & 1);
+                symbol <<= 1;
+            } while (symbol < 0x10000);
+        } else {
+            int matchByte = input[position - rep0 - 1] & 0xFF;
+            int offset = 0x100;
+            do {
+                matchByte <<= 1;
+                price += RangeEncoder.bitPrice(probs[offset + (matchByte & offset) + (symbol >>> 8)], (symbol >>> 7) & 1);
+                symbol <<= 1;
+                offset &= ~(matchByte ^ symbol);
+            } while (symbol < 0x10000);
+        }
+        return price;
+    }
+
+    private int shortRepPrice(int anyRepPrice, int repState, int posState) {
+        return anyRepPrice + RangeEncoder.bitPrice(isRepG0[repState], 0)
+                + RangeEncoder.bitPrice(isRep0Long[repState][posState], 0);
+    }
+
+    private int longRepPrice(int anyRepPrice, int rep, int repState, int posState) {
+        if (rep == 0) {
+            return anyRepPrice + RangeEncoder.bitPrice(isRepG0[repState], 0)
+                    + RangeEncoder.bitPrice(isRep0Long[repState][posState], 1);
+        }
+        int price = anyRepPrice + RangeEncoder.bitPrice(isRepG0[repState], 1);
+        if (rep == 1) {
+            return price + RangeEncoder.bitPrice(isRepG1[repState], 0);
+        }
+        return price + RangeEncoder.bitPrice(isRepG1[repState], 1) + RangeEncoder.bitPrice(isRepG2[repState], rep - 2);
+    }
+
+    private int matchPrice(int dist, int length, int posState) {
+        int price = matchLengthPrices[posState][length - MATCH_LEN_MIN];
+        int distState = distState(length);
+        if (dist < FULL_DISTANCES) {
+            return price + fullDistPrices[distState][dist];
+        }
+        return price + distSlotPrices[distState][distSlot(dist)] + alignPrices[dist & ((1 << ALIGN_BITS) - 1)];
+    }
+
+    private void updatePrices() {
+        if (distPriceCount <= 0) {
+            distPriceCount = DIST_PRICE_INTERVAL;
+            for (int distState = 0; distState < DIST_STATES; distState++) {
+                int[] slotPrices = distSlotPrices[distState];
+                for (int slot = 0; slot < slotPrices.length; slot++) {
+                    slotPrices[slot] = RangeEncoder.bitTreePrice(distSlots[distState], DIST_SLOT_BITS, slot);
+                    if (slot >= DIST_MODEL_END) {
+                        slotPrices[slot] += RangeEncoder.directBitsPrice((slot >>> 1) - 1 - ALIGN_BITS);
+                    }
+                }
+                for (int dist = 0; dist < FULL_DISTANCES; dist++) {
+                    int slot = distSlot(dist);
+                    int price = slotPrices[slot];
+                    if (slot >= 4) {
+                        int footerBits = (slot >>> 1) - 1;
+                        int base = (2 | (slot & 1)) << footerBits;
+                        price += RangeEncoder.reverseBitTreePrice(distSpecial, base - slot - 1, footerBits, dist - base);
+                    }
+                    fullDistPrices[distState][dist] = price;
+                }
+            }
+        }
+        if (alignPriceCount <= 0) {
+            alignPriceCount = ALIGN_PRICE_INTERVAL;
+            for (int i = 0; i < alignPrices.length; i++) {
+                alignPrices[i] = RangeEncoder.reverseBitTreePrice(distAlign, 0, ALIGN_BITS, i);
+            }
+        }
+        for (int posState = 0; posState <= posMask; posState++) {
+            if (matchLengthCounters[posState] <= 0) {
+                matchLengthCounters[posState] = LENGTH_PRICE_INTERVAL;
+                lengthPrices(matchLength, posState, matchLengthPrices[posState]);
+            }
+            if (repLengthCounters[posState] <= 0) {
+                repLengthCounters[posState] = LENGTH_PRICE_INTERVAL;
+                lengthPrices(repLength, posState, repLengthPrices[posState]);
+            }
+        }
+    }
+
+    private static void lengthPrices(LengthModel model, int posState, int[] prices) {
+        int low = RangeEncoder.bitPrice(model.choice[0], 0);
+        int mid = RangeEncoder.bitPrice(model.choice[0], 1) + RangeEncoder.bitPrice(model.choice[1], 0);
+        int high = RangeEncoder.bitPrice(model.choice[0], 1) + RangeEncoder.bitPrice(model.choice[1], 1);
+        for (int length = 0; length < prices.length; length++) {
+            if (length < LOW_SYMBOLS) {
+                prices[length] = low + RangeEncoder.bitTreePrice(model.low[posState], LOW_BITS, length);
+            } else if (length < LOW_SYMBOLS + MID_SYMBOLS) {
+                prices[length] = mid + RangeEncoder.bitTreePrice(model.mid[posState], MID_BITS, length - LOW_SYMBOLS);
+            } else {
+                prices[length] = high + RangeEncoder.bitTreePrice(model.high, HIGH_BITS,
+                        length - LOW_SYMBOLS - MID_SYMBOLS);
+            }
+        }
+    }
+
+    private void encodeFast() {
+        int avail = Math.min(end - pos, MATCH_LEN_MAX);
+        if (lookaheadValid) {
+            int[] swap = matches;
+            matches = nextMatches;
+            nextMatches = swap;
+            matchCount = nextMatchCount;
+            lookaheadValid = false;
+        } else {
+            matchCount = find(pos, matches);
+        }
+        if (avail < MATCH_LEN_MIN) {
+            encodeLiteral();
+            return;
+        }
+
+        int bestRepLength = 0;
+        int bestRepIndex = 0;
+        for (int rep = 0; rep < REPS; rep++) {
+            int length = repLength(pos, rep, avail);
+            if (length >= niceLength) {
+                encodeRepMatch(rep, length);
+                return;
+            }
+            if (length > bestRepLength) {
+                bestRepLength = length;
+                bestRepIndex = rep;
+            }
+        }
+
+        int mainLength = 0;
+        int mainDistance = 0;
+        if (matchCount > 0) {
+            mainLength = matches[2 * matchCount - 2];
+            mainDistance = matches[2 * matchCount - 1];
+            if (mainLength >= niceLength) {
+                encodeMatch(mainDistance, extend(mainDistance, mainLength, avail));
+                return;
+            }
+            // На байт короче, но заметно ближе - обычно дешевле
+            int count = matchCount;
+            while (count > 1 && mainLength == matches[2 * count - 4] + 1
+                    && !changePair(matches[2 * count - 3], mainDistance)) {
+                count--;
+                mainLength = matches[2 * count - 2];
+                mainDistance = matches[2 * count - 1];
+            }
+        }
+
+        if (bestRepLength >= MATCH_LEN_MIN && (bestRepLength + 1 >= mainLength
+                || (bestRepLength + 2 >= mainLength && mainDistance >= (1 << 9))
+                || (bestRepLength + 3 >= mainLength && mainDistance >= (1 << 15)))) {
+            encodeRepMatch(bestRepIndex, bestRepLength);
+            return;
+        }
+        if (mainLength < MATCH_LEN_MIN || avail <= MATCH_LEN_MIN) {
+            encodeLiteral();
+            return;
+        }
+
+        nextMatchCount = find(pos + 1, nextMatches);
+        lookaheadValid = true;
+        if (nextMatchCount > 0) {
+            int newLength = nextMatches[2 * nextMatchCount - 2];
+            int newDistance = nextMatches[2 * nextMatchCount - 1];
+            if ((newLength >= mainLength && newDistance < mainDistance)
+                    || (newLength == mainLength + 1 && !changePair(mainDistance, newDistance))
+                    || newLength > mainLength + 1
+                    || (newLength + 1 >= mainLength && mainLength >= 3 && changePair(newDistance, mainDistance))) {
+                encodeLiteral();
+                return;
+            }
+        }
+        int limit = Math.max(mainLength - 1, MATCH_LEN_MIN);
+        for (int rep = 0; rep < REPS; rep++) {
+            if (repLength(pos + 1, rep, avail - 1) >= limit) {
+                encodeLiteral();
+                return;
+            }
+        }
+        encodeMatch(mainDistance, mainLength);
+    }
+
+    private static boolean changePair(int smallDistance, int bigDistance) {
+        return smallDistance < (bigDistance >>> 7);
+    }
+
+    private int find(int position, int[] target) {
+        while (nextInsert < position) {
+            finder.skip(nextInsert++);
+        }
+        nextInsert = position + 1;
+        return finder.findMatches(position, target);
+    }
+
+    private void advance(int length) {
+        pos += length;
+        if (lookaheadValid && length > 1) {
+            lookaheadValid = false;
+        }
+        while (nextInsert < pos) {
+            finder.skip(nextInsert++);
+        }
+    }
+
+    private int repLength(int position, int rep, int avail) {
+        int distance = reps[rep] + 1;
+        if (position - distance < start || avail < MATCH_LEN_MIN) {
+            return 0;
+        }
+        return MatchFinder.matchLength(input, position - distance, position, avail);
+    }
+
+    private int extend(int distance, int length, int avail) {
+        return length + MatchFinder.matchLength(input, pos - distance + length, pos + length, avail - length);
+    }
+
+    private void encodeLiteral() {
+        int posState = (pos - start) & posMask;
+        rc.encodeBit(isMatch[state], posState, 0);
+        int previous = pos > start ? input[pos - 1] : 0;
+        short[] probs = literalProbs(pos - start, previous);
+        int symbol = (input[pos] & 0xFF) | 0x100;
+        if (isLiteralState()) {
+            do {
+                rc.encodeBit(probs, symbol >>> 8, (symbol >>> 7) & 1);
+                symbol <<= 1;
+            } while (symbol < 0x10000);
+        } else {
+            int matchByte = input[pos - reps[0] - 1] & 0xFF;
+            int offset = 0x100;
+            do {
+                matchByte <<= 1;
+                rc.encodeBit(probs, offset + (matchByte & offset) + (symbol >>> 8), (symbol >>> 7) & 1);
+                symbol <<= 1;
+                offset &= ~(matchByte ^ symbol);
+            } while (symbol < 0x10000);
+        }
+        updateLiteral();
+        advance(1);
+    }
+
+    private void encodeMatch(int distance, int length) {
+        int posState = (pos - start) & posMask;
+        rc.encodeBit(isMatch[state], posState, 1);
+        rc.encodeBit(isRep, state, 0);
+        encodeLength(matchLength, length - MATCH_LEN_MIN, posState);
+        matchLengthCounters[posState]--;
+        distPriceCount--;
+
+        int dist = distance - 1;
+        int slot = distSlot(dist);
+        rc.encodeBitTree(distSlots[distState(length)], DIST_SLOT_BITS, slot);
+        if (slot >= 4) {
+            int footerBits = (slot >>> 1) - 1;
+            int base = (2 | (slot & 1)) << footerBits;
+            int reduced = dist - base;
+            if (slot < DIST_MODEL_END) {
+                rc.encodeReverseBitTree(distSpecial, base - slot - 1, footerBits, reduced);
+            } else {
+                rc.encodeDirectBits(reduced >>> ALIGN_BITS, footerBits - ALIGN_BITS);
+                rc.encodeReverseBitTree(distAlign, 0, ALIGN_BITS, reduced & ((1 << ALIGN_BITS) - 1));
+                alignPriceCount--;
+            }
+        }
+        reps[3] = reps[2];
+        reps[2] = reps[1];
+        reps[1] = reps[0];
+        reps[0] = dist;
+        updateMatch();
+        advance(length);
+    }
+
+    private void encodeRepMatch(int rep, int length) {
+        int posState = (pos - start) & posMask;
+        rc.encodeBit(isMatch[state], posState, 1);
+        rc.encodeBit(isRep, state, 1);
+        if (rep == 0) {
+            rc.encodeBit(isRepG0, state, 0);
+            rc.encodeBit(isRep0Long[state], posState, 1);
+        } else {
+            int dist = reps[rep];
+            rc.encodeBit(isRepG0, state, 1);
+            if (rep == 1) {
+                rc.encodeBit(isRepG1, state, 0);
+            } else {
+                rc.encodeBit(isRepG1, state, 1);
+                rc.encodeBit(isRepG2, state, rep - 2);
+                if (rep == 3) {
+                    reps[3] = reps[2];
+                }
+                reps[2] = reps[1];
+            }
+            reps[1] = reps[0];
+            reps[0] = dist;
+        }
+        encodeLength(repLength, length - MATCH_LEN_MIN, posState);
+        repLengthCounters[posState]--;
+        updateLongRep();
+        advance(length);
+    }
+
+    private void encodeShortRep() {
+        int posState = (pos - start) & posMask;
+        rc.encodeBit(isMatch[state], posState, 1);
+        rc.encodeBit(isRep, state, 1);
+        rc.encodeBit(isRepG0, state, 0);
+        rc.encodeBit(isRep0Long[state], posState, 0);
+        updateShortRep();
+        advance(1);
+    }
+
+    private void encodeLength(LengthModel model, int length, int posState) {
+        if (length < LOW_SYMBOLS) {
+            rc.encodeBit(model.choice, 0, 0);
+            rc.encodeBitTree(model.low[posState], LOW_BITS, length);
+        } else if (length < LOW_SYMBOLS + MID_SYMBOLS) {
+            rc.encodeBit(model.choice, 0, 1);
+            rc.encodeBit(model.choice, 1, 0);
+            rc.encodeBitTree(model.mid[posState], MID_BITS, length - LOW_SYMBOLS);
+        } else {
+            rc.encodeBit(model.choice, 0, 1);
+            rc.encodeBit(model.choice, 1, 1);
+            rc.encodeBitTree(model.high, HIGH_BITS, length - LOW_SYMBOLS - MID_SYMBOLS);
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (outputLength + extra > output.length) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + extra));
+        }
+    }
+}
\ No newline at end of file
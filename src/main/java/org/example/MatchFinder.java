@@ -0,0 +1,21 @@
+package org.example;
+
+// Поиск совпадений LZ77 в окне над одним входным буфером. Позиции подаются строго по возрастанию,
+// каждая ровно один раз - либо через findMatches, либо через skip
+interface MatchFinder {
+
+    int MIN_MATCH = 4;
+
+    void reset(byte[] data, int start, int end);
+
+    // Пишет пары (длина, дистанция) с возрастающей длиной в matches[0..2 * count) и возвращает count
+    int findMatches(int pos, int[] matches);
+
+    void skip(int pos);
+
+    int maxMatches();
+
+    static int matchLength(byte[] data, int candidate, int pos, int limit) {
+        return ByteKernels.INSTANCE.mismatch(data, candidate, data, pos, limit);
+    }
+}
\ No newline at end of file
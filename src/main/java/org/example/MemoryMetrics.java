@@ -0,0 +1,67 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Замеры памяти: выделено текущим потоком (HotSpot), пик занятой кучи по всем пулам и пиковый RSS процесса
+final class MemoryMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final List<MemoryPoolMXBean> HEAP_POOLS = new ArrayList<>();
+
+    static {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                HEAP_POOLS.add(pool);
+            }
+        }
+    }
+
+    private MemoryMetrics() {
+    }
+
+    // -1, если JVM не умеет считать выделения по потокам
+    static long threadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    // Пиковый резидентный размер процесса (VmHWM из /proc/self/status, только Linux) или -1
+    static long peakResidentBytes() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    String[] fields = line.trim().split("\\s+");
+                    return Long.parseLong(fields[1]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Нет procfs
+        }
+        return -1;
+    }
+
+    static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : HEAP_POOLS) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
\ No newline at end of file
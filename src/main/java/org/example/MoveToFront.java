@@ -0,0 +1,47 @@
+package org.example;
+
+// Экземпляр хранит таблицу порядка символов и переиспользует её между вызовами; не потокобезопасен
+public final class MoveToFront {
+
+    private final byte[] order = new byte[256];
+
+    private void reset() {
+        for (int i = 0; i < 256; i++) {
+            order[i] = (byte) i;
+        }
+    }
+
+    // Допускается src == dst с одинаковыми смещениями (кодирование на месте)
+    public void encode(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        reset();
+        byte[] order = this.order;
+        for (int i = 0; i < length; i++) {
+            byte curr = src[srcOffset + i];
+            if (order[0] == curr) {
+                dst[dstOffset + i] = 0;
+                continue;
+            }
+            int index = 1;
+            while (order[index] != curr) {
+                index++;
+            }
+            System.arraycopy(order, 0, order, 1, index);
+            order[0] = curr;
+            dst[dstOffset + i] = (byte) index;
+        }
+    }
+
+    public void decode(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        reset();
+        byte[] order = this.order;
+        for (int i = 0; i < length; i++) {
+            int index = src[srcOffset + i] & 0xFF;
+            byte curr = order[index];
+            if (index != 0) {
+                System.arraycopy(order, 0, order, 1, index);
+                order[0] = curr;
+            }
+            dst[dstOffset + i] = curr;
+        }
+    }
+}
\ No newline at end of file
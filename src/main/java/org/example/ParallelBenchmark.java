@@ -0,0 +1,76 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Масштабирование ParallelCompression от 1 до N потоков: один вызов сжимает весь корпус чанками по chunkSize.
+// Пропускная способность в MB/s - счётчик megabytes. По умолчанию чанки сжимает ForkJoinPool на threads потоков;
+// на JDK 21+ -p executor=forkjoin,virtual добавляет виртуальные потоки, число одновременных чанков при этом
+// ограничивает окно 2 * threads. На JDK ниже 21 конфигурация virtual падает в setup
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+public class ParallelBenchmark {
+
+    @Param({"BZIP2", "GZIP", "ZSTD", "XZ", "PPMD"})
+    private String codec;
+
+    @Param("logs:16m")
+    private String corpus;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    @Param("forkjoin")
+    private String executor;
+
+    @Param("1048576")
+    private int chunkSize;
+
+    private byte[] data;
+    private byte[] compressed;
+    private ExecutorService pool;
+    private ParallelCompression compressor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (executor.equals("virtual")) {
+            pool = ParallelCompression.newVirtualThreadExecutor();
+            if (pool == null) {
+                throw new IllegalStateException("Virtual threads need JDK 21+, running on " + System.getProperty("java.version"));
+            }
+        } else {
+            pool = new ForkJoinPool(threads);
+        }
+        compressor = new ParallelCompression(CodecRegistry.forName(codec).create(), pool, chunkSize, 2 * threads);
+        data = Corpus.load(corpus);
+        compressed = compressor.compress(data);
+        RoundTripVerifier.check(corpus + " in " + chunkSize + " byte chunks", data, compressor.decompressBytes(compressed));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] compress(Benchmark.Throughput throughput) throws IOException {
+        byte[] result = compressor.compress(data);
+        throughput.megabytes += data.length / 1e6;
+        return result;
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] decompress(Benchmark.Throughput throughput) throws IOException {
+        byte[] result = compressor.decompressBytes(compressed);
+        throughput.megabytes += data.length / 1e6;
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,251 @@
+package org.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+
+// Параллельное сжатие любым Compressor, как pigz/pzstd: поток режется на чанки, чанки сжимаются на executor
+// и пишутся строго по порядку в формате CompressingOutputStream, так что результат читает и обычный
+// DecompressingInputStream. В работе не больше maxInFlight чанков: когда окно заполнено, чтение входа ждёт
+// запись самого старого чанка, и память ограничена maxInFlight * (чанк + сжатый чанк) независимо от размера
+// потока. Распаковка параллельна так же: заголовки читаются по порядку, чанки распаковываются на executor.
+// Обёрнутый Compressor вызывается из нескольких потоков одновременно - встроенные кодеки это допускают
+public class ParallelCompression implements Compressor {
+
+    private final Compressor compressor;
+    private final Executor executor;
+    private final int chunkSize;
+    private final int maxInFlight;
+
+    public ParallelCompression(Compressor compressor) {
+        this(compressor, ForkJoinPool.commonPool());
+    }
+
+    public ParallelCompression(Compressor compressor, Executor executor) {
+        this(compressor, executor, CompressingOutputStream.DEFAULT_CHUNK_SIZE,
+                2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelCompression(Compressor compressor, Executor executor, int chunkSize, int maxInFlight) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("In-flight limit must be positive: " + maxInFlight);
+        }
+        this.compressor = compressor;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // Виртуальные потоки (JDK 21+) через рефлексию, чтобы сборка оставалась на Java 8; на старых JDK - null
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // Возвращает число записанных байт
+    public long compress(InputStream in, OutputStream out) throws IOException {
+        Window<Compressed> window = new Window<>();
+        ArrayDeque<byte[]> freeBuffers = new ArrayDeque<>();
+        long written = 0;
+        try {
+            while (true) {
+                byte[] buffer = freeBuffers.isEmpty() ? new byte[chunkSize] : freeBuffers.pop();
+                int length = readChunk(in, buffer);
+                if (length == 0) {
+                    break;
+                }
+                if (window.size() == maxInFlight) {
+                    Compressed done = window.take();
+                    written += done.writeTo(out);
+                    freeBuffers.push(done.input);
+                }
+                window.submit(() -> new Compressed(buffer, length, compressor.compress(buffer, 0, length)));
+                if (length < chunkSize) {
+                    break;
+                }
+            }
+            while (window.size() > 0) {
+                written += window.take().writeTo(out);
+            }
+        } finally {
+            window.cancelAll();
+        }
+        CompressingOutputStream.writeVarInt(out, 0);
+        out.flush();
+        return written + 1;
+    }
+
+    // Возвращает число восстановленных байт
+    public long decompress(InputStream in, OutputStream out) throws IOException {
+        Window<byte[]> window = new Window<>();
+        long written = 0;
+        try {
+            while (true) {
+                int rawLength = DecompressingInputStream.readVarInt(in);
+                if (rawLength == 0) {
+                    break;
+                }
+                int compressedLength = DecompressingInputStream.readVarInt(in);
+                if (rawLength < 0 || rawLength > chunkSize || compressedLength < 0
+                        || compressedLength > DecompressingInputStream.maxCompressedLength(chunkSize)) {
+                    throw new IOException("Chunk exceeds limit of " + chunkSize + " bytes: " + rawLength);
+                }
+                byte[] compressed = new byte[compressedLength];
+                DecompressingInputStream.readFully(in, compressed, compressedLength);
+                if (window.size() == maxInFlight) {
+                    written += write(out, window.take());
+                }
+                window.submit(() -> {
+                    byte[] chunk = compressor.decompress(compressed, 0, compressedLength);
+                    if (chunk.length != rawLength) {
+                        throw new IOException("Chunk length mismatch: expected " + rawLength + ", got " + chunk.length);
+                    }
+                    return chunk;
+                });
+            }
+            while (window.size() > 0) {
+                written += write(out, window.take());
+            }
+        } finally {
+            window.cancelAll();
+        }
+        out.flush();
+        return written;
+    }
+
+    // Чанки берутся прямо из input без копирования; результат - тот же потоковый формат
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+        Window<Compressed> window = new Window<>();
+        try {
+            for (int pos = offset; pos < offset + length; pos += chunkSize) {
+                int start = pos;
+                int n = Math.min(chunkSize, offset + length - pos);
+                if (window.size() == maxInFlight) {
+                    window.take().writeTo(out);
+                }
+                window.submit(() -> new Compressed(null, n, compressor.compress(input, start, n)));
+            }
+            while (window.size() > 0) {
+                window.take().writeTo(out);
+            }
+        } finally {
+            window.cancelAll();
+        }
+        CompressingOutputStream.writeVarInt(out, 0);
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] decompress(byte[] input, int offset, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, length));
+        decompress(new ByteArrayInputStream(input, offset, length), out);
+        return out.toByteArray();
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    private static int write(OutputStream out, byte[] chunk) throws IOException {
+        out.write(chunk);
+        return chunk.length;
+    }
+
+    private static int readChunk(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int n = in.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        return length;
+    }
+
+    private static final class Compressed {
+        final byte[] input;
+        final int rawLength;
+        final byte[] data;
+
+        Compressed(byte[] input, int rawLength, byte[] data) {
+            this.input = input;
+            this.rawLength = rawLength;
+            this.data = data;
+        }
+
+        int writeTo(OutputStream out) throws IOException {
+            CompressingOutputStream.writeVarInt(out, rawLength);
+            CompressingOutputStream.writeVarInt(out, data.length);
+            out.write(data);
+            return varIntLength(rawLength) + varIntLength(data.length) + data.length;
+        }
+
+        private static int varIntLength(int value) {
+            return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+        }
+    }
+
+    // Очередь переупорядочивания: задачи в порядке отправки, take() ждёт самую старую
+    private final class Window<T> {
+        private final ArrayDeque<FutureTask<T>> tasks = new ArrayDeque<>();
+
+        int size() {
+            return tasks.size();
+        }
+
+        void submit(Callable<T> task) {
+            FutureTask<T> future = new FutureTask<>(task);
+            tasks.add(future);
+            executor.execute(future);
+        }
+
+        T take() throws IOException {
+            FutureTask<T> future = tasks.poll();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (CancellationException e) {
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        // После ошибки оставшиеся чанки не нужны
+        void cancelAll() {
+            for (FutureTask<T> future : tasks) {
+                future.cancel(true);
+            }
+            tasks.clear();
+        }
+    }
+}
\ No newline at end of file
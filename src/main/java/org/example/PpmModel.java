@@ -0,0 +1,328 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Модель PPM порядка до order: дерево контекстов в фиксированной арене int[], кодирование с уходом
+// (escape) на меньший порядок и исключением уже отвергнутых символов, порядок -1 - равномерный.
+// Контекст = 3 ints {число символов, сумма частот, указатель на блок символов}, запись символа =
+// 2 ints {символ | частота << 8, указатель на контекст-продолжение}. Блоки символов выделяются
+// классами по степеням двойки со списками свободных блоков; когда арена заканчивается, модель
+// начинается заново (как RESTART_MODEL в PPMd)
+final class PpmModel {
+
+    static final int MAX_ORDER = 16;
+
+    private static final int CONTEXT_SIZE = 3;
+    private static final int SIZE_CLASSES = 9;
+    private static final int INIT_FREQ = 1;
+    private static final int INCREMENT = 2;
+    private static final int MAX_TOTAL = 1 << 13;
+
+    private final int order;
+    private final int[] arena;
+    private final int[] freeLists = new int[SIZE_CLASSES];
+    private final int reserve;
+    private int top;
+
+    private int[] contexts;
+    private int[] nextContexts;
+    private final int[] escaped;
+    private int escapedCount;
+    private final int[] exclusion = new int[256];
+    private int stamp;
+    private int excludedCount;
+
+    PpmModel(int order, int memorySize) {
+        if (order < 1 || order > MAX_ORDER) {
+            throw new IllegalArgumentException("Order must be between 1 and " + MAX_ORDER + ": " + order);
+        }
+        this.order = order;
+        this.arena = new int[memorySize / 4];
+        this.contexts = new int[order + 1];
+        this.nextContexts = new int[order + 1];
+        this.escaped = new int[order + 1];
+        // Худший случай на один символ: новые контексты на всех порядках и рост блока в каждом из них
+        this.reserve = (order + 1) * (CONTEXT_SIZE + 2 * 256) + 16;
+        if (arena.length < reserve * 4) {
+            throw new IllegalArgumentException("Model memory too small: " + memorySize);
+        }
+        restart();
+    }
+
+    boolean matches(int order, int memorySize) {
+        return this.order == order && arena.length == memorySize / 4;
+    }
+
+    void restart() {
+        top = 1;
+        Arrays.fill(freeLists, 0);
+        Arrays.fill(contexts, 0);
+        contexts[0] = newContext();
+    }
+
+    void encode(FrequencyRangeEncoder rc, int symbol) {
+        beginSymbol();
+        boolean found = false;
+        for (int k = order; k >= 0 && !found; k--) {
+            int c = contexts[k];
+            if (c == 0) {
+                continue;
+            }
+            int n = arena[c];
+            int stats = arena[c + 2];
+            int total = 0;
+            int remaining = 0;
+            int cum = -1;
+            int index = 0;
+            for (int i = 0; i < n; i++) {
+                int entry = arena[stats + 2 * i];
+                int s = entry & 0xFF;
+                if (exclusion[s] == stamp) {
+                    continue;
+                }
+                if (s == symbol) {
+                    cum = total;
+                    index = i;
+                }
+                total += entry >>> 8;
+                remaining++;
+            }
+            if (remaining == 0) {
+                escaped[escapedCount++] = c;
+                continue;
+            }
+            int escape = escapeFreq(remaining);
+            if (cum >= 0) {
+                rc.encode(cum, arena[stats + 2 * index] >>> 8, total + escape);
+                update(c, index);
+                found = true;
+            } else {
+                rc.encode(total, escape, total + escape);
+                exclude(c);
+                escaped[escapedCount++] = c;
+            }
+        }
+        if (!found) {
+            int rank = 0;
+            for (int s = 0; s < symbol; s++) {
+                if (exclusion[s] != stamp) {
+                    rank++;
+                }
+            }
+            rc.encode(rank, 1, 256 - excludedCount);
+        }
+        endSymbol(symbol);
+    }
+
+    int decode(FrequencyRangeDecoder rd) throws IOException {
+        beginSymbol();
+        int symbol = -1;
+        for (int k = order; k >= 0 && symbol < 0; k--) {
+            int c = contexts[k];
+            if (c == 0) {
+                continue;
+            }
+            int n = arena[c];
+            int stats = arena[c + 2];
+            int total = 0;
+            int remaining = 0;
+            for (int i = 0; i < n; i++) {
+                int entry = arena[stats + 2 * i];
+                if (exclusion[entry & 0xFF] != stamp) {
+                    total += entry >>> 8;
+                    remaining++;
+                }
+            }
+            if (remaining == 0) {
+                escaped[escapedCount++] = c;
+                continue;
+            }
+            int escape = escapeFreq(remaining);
+            int threshold = rd.threshold(total + escape);
+            if (threshold >= total) {
+                rd.decode(total, escape);
+                exclude(c);
+                escaped[escapedCount++] = c;
+                continue;
+            }
+            int cum = 0;
+            for (int i = 0; ; i++) {
+                int entry = arena[stats + 2 * i];
+                if (exclusion[entry & 0xFF] == stamp) {
+                    continue;
+                }
+                int freq = entry >>> 8;
+                if (cum + freq > threshold) {
+                    symbol = entry & 0xFF;
+                    rd.decode(cum, freq);
+                    update(c, i);
+                    break;
+                }
+                cum += freq;
+            }
+        }
+        if (symbol < 0) {
+            // Все 256 символов исключены - такого потока кодер не пишет
+            if (excludedCount == 256) {
+                throw new IOException("Corrupt PPMd stream");
+            }
+            int threshold = rd.threshold(256 - excludedCount);
+            int rank = 0;
+            for (int s = 0; s < 256; s++) {
+                if (exclusion[s] != stamp) {
+                    if (rank == threshold) {
+                        symbol = s;
+                        break;
+                    }
+                    rank++;
+                }
+            }
+            rd.decode(threshold, 1);
+        }
+        endSymbol(symbol);
+        return symbol;
+    }
+
+    private void beginSymbol() {
+        if (arena.length - top < reserve) {
+            restart();
+        }
+        if (++stamp == 0) {
+            Arrays.fill(exclusion, 0);
+            stamp = 1;
+        }
+        escapedCount = 0;
+        excludedCount = 0;
+    }
+
+    // Символ добавляется во все контексты, где был уход, затем контексты сдвигаются на один байт
+    private void endSymbol(int symbol) {
+        for (int i = 0; i < escapedCount; i++) {
+            addSymbol(escaped[i], symbol);
+        }
+        int[] next = nextContexts;
+        next[0] = contexts[0];
+        for (int k = 0; k < order; k++) {
+            int c = contexts[k];
+            if (c == 0) {
+                Arrays.fill(next, k + 1, order + 1, 0);
+                break;
+            }
+            int entry = findEntry(c, symbol);
+            int successor = arena[entry + 1];
+            if (successor == 0) {
+                successor = newContext();
+                arena[entry + 1] = successor;
+            }
+            next[k + 1] = successor;
+        }
+        nextContexts = contexts;
+        contexts = next;
+    }
+
+    // Метод D в целых числах: частоты символов 2c - 1 (INIT_FREQ = 1, INCREMENT = 2),
+    // частота ухода равна числу ещё не исключённых символов контекста
+    private static int escapeFreq(int remaining) {
+        return remaining;
+    }
+
+    private void exclude(int c) {
+        int n = arena[c];
+        int stats = arena[c + 2];
+        for (int i = 0; i < n; i++) {
+            int s = arena[stats + 2 * i] & 0xFF;
+            if (exclusion[s] != stamp) {
+                exclusion[s] = stamp;
+                excludedCount++;
+            }
+        }
+    }
+
+    private void update(int c, int index) {
+        int stats = arena[c + 2];
+        int p = stats + 2 * index;
+        arena[p] += INCREMENT << 8;
+        arena[c + 1] += INCREMENT;
+        // Частые символы всплывают к началу блока, чтобы линейный поиск был короче
+        if (index > 0 && (arena[p] >>> 8) > (arena[p - 2] >>> 8)) {
+            int entry = arena[p];
+            int successor = arena[p + 1];
+            arena[p] = arena[p - 2];
+            arena[p + 1] = arena[p - 1];
+            arena[p - 2] = entry;
+            arena[p - 1] = successor;
+        }
+        if (arena[c + 1] > MAX_TOTAL) {
+            rescale(c);
+        }
+    }
+
+    private void rescale(int c) {
+        int n = arena[c];
+        int stats = arena[c + 2];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            int entry = arena[stats + 2 * i];
+            int freq = ((entry >>> 8) + 1) >>> 1;
+            arena[stats + 2 * i] = (entry & 0xFF) | freq << 8;
+            total += freq;
+        }
+        arena[c + 1] = total;
+    }
+
+    private int findEntry(int c, int symbol) {
+        int n = arena[c];
+        int stats = arena[c + 2];
+        for (int i = 0; i < n; i++) {
+            if ((arena[stats + 2 * i] & 0xFF) == symbol) {
+                return stats + 2 * i;
+            }
+        }
+        throw new IllegalStateException("Symbol missing from suffix context");
+    }
+
+    private int newContext() {
+        int c = top;
+        top += CONTEXT_SIZE;
+        arena[c] = 0;
+        arena[c + 1] = 0;
+        arena[c + 2] = 0;
+        return c;
+    }
+
+    private void addSymbol(int c, int symbol) {
+        int n = arena[c];
+        int stats = arena[c + 2];
+        if (n == 0) {
+            stats = allocate(0);
+        } else if ((n & (n - 1)) == 0) {
+            int sizeClass = Integer.numberOfTrailingZeros(n);
+            int grown = allocate(sizeClass + 1);
+            System.arraycopy(arena, stats, arena, grown, 2 * n);
+            release(stats, sizeClass);
+            stats = grown;
+        }
+        arena[c + 2] = stats;
+        arena[stats + 2 * n] = symbol | INIT_FREQ << 8;
+        arena[stats + 2 * n + 1] = 0;
+        arena[c] = n + 1;
+        arena[c + 1] += INIT_FREQ;
+    }
+
+    private int allocate(int sizeClass) {
+        int p = freeLists[sizeClass];
+        if (p != 0) {
+            freeLists[sizeClass] = arena[p];
+            return p;
+        }
+        p = top;
+        top += 2 << sizeClass;
+        return p;
+    }
+
+    private void release(int p, int sizeClass) {
+        arena[p] = freeLists[sizeClass];
+        freeLists[sizeClass] = p;
+    }
+}
\ No newline at end of file
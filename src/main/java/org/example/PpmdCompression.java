@@ -1,63 +1,179 @@
 package org.example;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class PpmdCompression {
+// PPM-сжатие: PpmModel + FrequencyRangeEncoder. Формат: порядок, log2 памяти модели, 4 байта длины (BE),
+// поток range coder и CRC32 исходных данных (4 байта LE). Это собственный формат, а не совместимый с 7-Zip PPMd
+public class PpmdCompression implements Compressor {
+
+    public static final int DEFAULT_ORDER = 5;
+    public static final int MIN_MEMORY_SIZE = 1 << 20;
+    public static final int MAX_MEMORY_SIZE = 1 << 30;
+    public static final int DEFAULT_MEMORY_SIZE = 1 << 24;
+
+    // Частоты контекста ограничены 8192, так что символ стоит не меньше 1/(8192 ln 2) бита:
+    // меньше 46000 символов на байт потока
+    private static final int MAX_RATIO = 1 << 16;
+    // Выход сначала выделяется на такую степень сжатия и растёт вдвое: испорченный поток кончается раньше,
+    // чем успевает занять память, записанную в заголовке
+    private static final int INITIAL_RATIO = 16;
+
+    private final int order;
+    private final int memoryLog;
+    // Арены моделей переиспользуются между вызовами: память ограничена числом одновременных вызовов
+    private final ConcurrentLinkedQueue<PpmModel> models = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<FrequencyRangeEncoder> encoders = new ConcurrentLinkedQueue<>();
+
+    public PpmdCompression() {
+        this(DEFAULT_ORDER, DEFAULT_MEMORY_SIZE);
+    }
+
+    // Размер памяти модели округляется вверх до степени двойки
+    public PpmdCompression(int order, int memorySize) {
+        if (order < 1 || order > PpmModel.MAX_ORDER) {
+            throw new IllegalArgumentException("Order must be between 1 and " + PpmModel.MAX_ORDER + ": " + order);
+        }
+        if (memorySize < MIN_MEMORY_SIZE || memorySize > MAX_MEMORY_SIZE) {
+            throw new IllegalArgumentException("Memory size must be between " + MIN_MEMORY_SIZE
+                    + " and " + MAX_MEMORY_SIZE + ": " + memorySize);
+        }
+        this.order = order;
+        this.memoryLog = 32 - Integer.numberOfLeadingZeros(memorySize - 1);
+    }
 
     public byte[] compress(String data) {
-        byte[] input = data.getBytes(StandardCharsets.UTF_8);
-        return ppmdCompress(input);
+        return compress(data.getBytes(StandardCharsets.UTF_8));
     }
 
-    public String decompress(byte[] compressedData) {
-        byte[] decompressedData = ppmdDecompress(compressedData);
-        return new String(decompressedData, StandardCharsets.UTF_8);
+    public String decompress(byte[] compressedData) throws IOException {
+        return new String(decompressBytes(compressedData), StandardCharsets.UTF_8);
     }
 
-    private byte[] ppmdCompress(byte[] input) {
-        int[] freqTable = new int[256];
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        return ppmdCompress(input, offset, length);
+    }
 
-        // Подсчет частоты символов
-        for (byte b : input) {
-            freqTable[b & 0xFF]++;
-        }
+    @Override
+    public byte[] decompress(byte[] compressedData, int offset, int length) throws IOException {
+        return ppmdDecompress(compressedData, offset, length);
+    }
 
-        // Рассчитать необходимый размер массива
-        int length = input.length * 2;
-        byte[] output = new byte[length];
-        int outputIndex = 0;
+    @Override
+    public byte[] compress(byte[] input) {
+        return compress(input, 0, input.length);
+    }
 
-        for (byte b : input) {
-            int symbol = b & 0xFF;
-            output[outputIndex++] = (byte) symbol;
-            output[outputIndex++] = (byte) freqTable[symbol];
+    private byte[] ppmdCompress(byte[] input, int offset, int inputLength) {
+        FrequencyRangeEncoder rc = encoders.poll();
+        if (rc == null) {
+            rc = new FrequencyRangeEncoder(inputLength / 3 + 16);
+        } else {
+            rc.reset(inputLength / 3 + 16);
+        }
+        try {
+            return ppmdCompress(input, offset, inputLength, rc);
+        } finally {
+            encoders.offer(rc);
         }
+    }
 
+    private byte[] ppmdCompress(byte[] input, int offset, int inputLength, FrequencyRangeEncoder rc) {
+        long start = CodecMetrics.start();
+        PpmModel model = acquire(order, memoryLog);
+        try {
+            for (int i = offset; i < offset + inputLength; i++) {
+                model.encode(rc, input[i] & 0xFF);
+            }
+        } finally {
+            release(model);
+        }
+        int codedLength = rc.finish();
+        CodecMetrics.record(CodecMetrics.Stage.PPM_ENCODE, start, inputLength);
+        byte[] output = new byte[6 + codedLength + 4];
+        output[0] = (byte) order;
+        output[1] = (byte) memoryLog;
+        output[2] = (byte) (inputLength >>> 24);
+        output[3] = (byte) (inputLength >>> 16);
+        output[4] = (byte) (inputLength >>> 8);
+        output[5] = (byte) inputLength;
+        System.arraycopy(rc.buffer(), 0, output, 6, codedLength);
+        int crc = Crc32.compute(input, offset, inputLength);
+        for (int i = 0; i < 4; i++) {
+            output[6 + codedLength + i] = (byte) (crc >>> 8 * i);
+        }
         return output;
     }
 
-    private byte[] ppmdDecompress(byte[] input) {
-        // Рассчитать необходимый размер массива
-        int length = input.length / 2 * 256;
-        byte[] output = new byte[length];
-        int outputIndex = 0;
-
-        Map<Integer, Integer> freqTable = new HashMap<>();
-        for (int i = 0; i < input.length; i += 2) {
-            int symbol = input[i] & 0xFF;
-            int freq = input[i + 1] & 0xFF;
-            freqTable.put(symbol, freq);
-            for (int j = 0; j < freq; j++) {
-                output[outputIndex++] = (byte) symbol;
+    private byte[] ppmdDecompress(byte[] input, int offset, int inputLength) throws IOException {
+        if (inputLength < 10) {
+            throw new IOException("Truncated PPMd header");
+        }
+        int streamOrder = input[offset];
+        int streamMemoryLog = input[offset + 1];
+        int length = (input[offset + 2] & 0xFF) << 24 | (input[offset + 3] & 0xFF) << 16
+                | (input[offset + 4] & 0xFF) << 8 | (input[offset + 5] & 0xFF);
+        if (streamOrder < 1 || streamOrder > PpmModel.MAX_ORDER || streamMemoryLog < 20 || streamMemoryLog > 30
+                || length < 0) {
+            throw new IOException("Corrupt PPMd header");
+        }
+        // Память модели берётся из заголовка, поэтому ограничена памятью этого экземпляра: поток, сжатый
+        // с большей моделью, распаковывается экземпляром с тем же или большим memorySize
+        if (streamMemoryLog > memoryLog) {
+            throw new IOException("PPMd stream needs " + (1 << streamMemoryLog) + " bytes of model memory, limit is "
+                    + (1 << memoryLog));
+        }
+        if (length > (long) inputLength * MAX_RATIO) {
+            throw new IOException("Corrupt PPMd length: " + length + " bytes from " + inputLength);
+        }
+        int crcPos = offset + inputLength - 4;
+        if (length == 0) {
+            verifyChecksum(input, crcPos, new byte[0]);
+            return new byte[0];
+        }
+        byte[] output = new byte[(int) Math.min(length, (long) inputLength * INITIAL_RATIO)];
+        long start = CodecMetrics.start();
+        FrequencyRangeDecoder rd = new FrequencyRangeDecoder(input, offset + 6, inputLength - 10);
+        PpmModel model = acquire(streamOrder, streamMemoryLog);
+        try {
+            for (int i = 0; i < length; i++) {
+                if (i == output.length) {
+                    output = Arrays.copyOf(output, (int) Math.min(length, 2L * i));
+                }
+                output[i] = (byte) model.decode(rd);
             }
+        } finally {
+            release(model);
         }
+        CodecMetrics.record(CodecMetrics.Stage.PPM_DECODE, start, length);
+        verifyChecksum(input, crcPos, output);
+        return output;
+    }
+
+    private static void verifyChecksum(byte[] input, int pos, byte[] output) throws IOException {
+        int expected = (input[pos] & 0xFF) | (input[pos + 1] & 0xFF) << 8
+                | (input[pos + 2] & 0xFF) << 16 | (input[pos + 3] & 0xFF) << 24;
+        if (Crc32.compute(output, 0, output.length) != expected) {
+            throw new IOException("PPMd checksum mismatch");
+        }
+    }
 
-        // Вернем массив нужного размера
-        byte[] result = new byte[outputIndex];
-        System.arraycopy(output, 0, result, 0, outputIndex);
+    private PpmModel acquire(int modelOrder, int modelMemoryLog) {
+        PpmModel model = models.poll();
+        if (model == null || !model.matches(modelOrder, 1 << modelMemoryLog)) {
+            return new PpmModel(modelOrder, 1 << modelMemoryLog);
+        }
+        model.restart();
+        return model;
+    }
 
-        return result;
+    // В пул возвращаются только модели с настройками экземпляра: модель чужого потока не задерживает свою арену
+    private void release(PpmModel model) {
+        if (model.matches(order, 1 << memoryLog)) {
+            models.offer(model);
+        }
     }
 }
\ No newline at end of file
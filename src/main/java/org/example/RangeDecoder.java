@@ -0,0 +1,94 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+final class RangeDecoder {
+
+    private static final int TOP_MASK = 0xFF000000;
+
+    private byte[] buffer;
+    private int position;
+    private int end;
+    private int range;
+    private int code;
+
+    void init(byte[] data, int offset, int length) throws IOException {
+        if (length < 5) {
+            throw new EOFException("Range coder stream too short");
+        }
+        buffer = data;
+        position = offset;
+        end = offset + length;
+        if (buffer[position++] != 0) {
+            throw new IOException("Corrupt range coder stream");
+        }
+        code = 0;
+        for (int i = 0; i < 4; i++) {
+            code = (code << 8) | (buffer[position++] & 0xFF);
+        }
+        range = 0xFFFFFFFF;
+    }
+
+    // Поток корректно закончен, если все байты прочитаны и code обнулился
+    boolean isFinished() {
+        return position == end && code == 0;
+    }
+
+    // Кодер нормализует после бита, декодер - перед ним, поэтому в конце чанка нужен ещё один вызов
+    void normalize() throws IOException {
+        if ((range & TOP_MASK) == 0) {
+            if (position >= end) {
+                throw new EOFException("Unexpected end of range coder stream");
+            }
+            code = (code << 8) | (buffer[position++] & 0xFF);
+            range <<= 8;
+        }
+    }
+
+    int decodeBit(short[] probs, int index) throws IOException {
+        normalize();
+        int prob = probs[index];
+        int bound = (range >>> RangeEncoder.PROB_BITS) * prob;
+        if ((code ^ 0x80000000) < (bound ^ 0x80000000)) {
+            range = bound;
+            probs[index] = (short) (prob + (((1 << RangeEncoder.PROB_BITS) - prob) >>> RangeEncoder.MOVE_BITS));
+            return 0;
+        }
+        range -= bound;
+        code -= bound;
+        probs[index] = (short) (prob - (prob >>> RangeEncoder.MOVE_BITS));
+        return 1;
+    }
+
+    int decodeBitTree(short[] probs, int bits) throws IOException {
+        int m = 1;
+        for (int i = 0; i < bits; i++) {
+            m = (m << 1) | decodeBit(probs, m);
+        }
+        return m - (1 << bits);
+    }
+
+    int decodeReverseBitTree(short[] probs, int offset, int bits) throws IOException {
+        int m = 1;
+        int symbol = 0;
+        for (int i = 0; i < bits; i++) {
+            int bit = decodeBit(probs, offset + m);
+            m = (m << 1) | bit;
+            symbol |= bit << i;
+        }
+        return symbol;
+    }
+
+    int decodeDirectBits(int count) throws IOException {
+        int result = 0;
+        do {
+            normalize();
+            range >>>= 1;
+            int t = (code - range) >>> 31;
+            code -= range & (t - 1);
+            result = (result << 1) | (1 - t);
+        } while (--count != 0);
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+package org.example;
+
+// Двоичный range coder LZMA: 11-битные вероятности, адаптация сдвигом на 5, перенос через cache.
+// Цены для оптимального разбора - в 1/16 бита по таблице -log2(p), как в XZ Utils
+final class RangeEncoder {
+
+    static final int PROB_BITS = 11;
+    static final int PROB_INIT = (1 << PROB_BITS) / 2;
+    static final int MOVE_BITS = 5;
+    static final int PRICE_SHIFT_BITS = 4;
+
+    private static final int TOP_MASK = 0xFF000000;
+    private static final int PRICE_REDUCING_BITS = 4;
+    private static final int[] PRICES = new int[(1 << PROB_BITS) >>> PRICE_REDUCING_BITS];
+
+    static {
+        // -log2(i / 2048) через четыре возведения в квадрат с подсчётом сдвигов
+        for (int i = (1 << PRICE_REDUCING_BITS) / 2; i < 1 << PROB_BITS; i += 1 << PRICE_REDUCING_BITS) {
+            int w = i;
+            int bitCount = 0;
+            for (int j = 0; j < PRICE_SHIFT_BITS; j++) {
+                w *= w;
+                bitCount <<= 1;
+                while ((w & 0xFFFF0000) != 0) {
+                    w >>>= 1;
+                    bitCount++;
+                }
+            }
+            PRICES[i >>> PRICE_REDUCING_BITS] = (PROB_BITS << PRICE_SHIFT_BITS) - 15 - bitCount;
+        }
+    }
+
+    private final byte[] buffer;
+    private int position;
+    private long low;
+    private int range;
+    private int cache;
+    private long cacheSize;
+
+    RangeEncoder(int capacity) {
+        buffer = new byte[capacity];
+        reset();
+    }
+
+    void reset() {
+        position = 0;
+        low = 0;
+        range = 0xFFFFFFFF;
+        cache = 0;
+        cacheSize = 1;
+    }
+
+    // Число байтов, которое займёт поток, если закончить его сейчас
+    int pendingSize() {
+        return position + (int) cacheSize + 5 - 1;
+    }
+
+    int finish() {
+        for (int i = 0; i < 5; i++) {
+            shiftLow();
+        }
+        return position;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    private void shiftLow() {
+        int carry = (int) (low >>> 32);
+        if (carry != 0 || low < 0xFF000000L) {
+            int temp = cache;
+            do {
+                buffer[position++] = (byte) (temp + carry);
+                temp = 0xFF;
+            } while (--cacheSize != 0);
+            cache = (int) (low >>> 24) & 0xFF;
+        }
+        cacheSize++;
+        low = (low & 0x00FFFFFF) << 8;
+    }
+
+    void encodeBit(short[] probs, int index, int bit) {
+        int prob = probs[index];
+        int bound = (range >>> PROB_BITS) * prob;
+        if (bit == 0) {
+            range = bound;
+            probs[index] = (short) (prob + (((1 << PROB_BITS) - prob) >>> MOVE_BITS));
+        } else {
+            low += bound & 0xFFFFFFFFL;
+            range -= bound;
+            probs[index] = (short) (prob - (prob >>> MOVE_BITS));
+        }
+        if ((range & TOP_MASK) == 0) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    // Дерево старшим битом вперёд, индексы узлов с 1
+    void encodeBitTree(short[] probs, int bits, int symbol) {
+        int m = 1;
+        for (int i = bits - 1; i >= 0; i--) {
+            int bit = (symbol >>> i) & 1;
+            encodeBit(probs, m, bit);
+            m = (m << 1) | bit;
+        }
+    }
+
+    void encodeReverseBitTree(short[] probs, int offset, int bits, int symbol) {
+        int m = 1;
+        for (int i = 0; i < bits; i++) {
+            int bit = symbol & 1;
+            symbol >>>= 1;
+            encodeBit(probs, offset + m, bit);
+            m = (m << 1) | bit;
+        }
+    }
+
+    void encodeDirectBits(int value, int count) {
+        do {
+            range >>>= 1;
+            low += range & (0 - ((value >>> --count) & 1));
+            if ((range & TOP_MASK) == 0) {
+                range <<= 8;
+                shiftLow();
+            }
+        } while (count != 0);
+    }
+
+    static int bitPrice(int prob, int bit) {
+        return PRICES[(prob ^ (-bit & ((1 << PROB_BITS) - 1))) >>> PRICE_REDUCING_BITS];
+    }
+
+    static int bitTreePrice(short[] probs, int bits, int symbol) {
+        int price = 0;
+        int m = 1;
+        for (int i = bits - 1; i >= 0; i--) {
+            int bit = (symbol >>> i) & 1;
+            price += bitPrice(probs[m], bit);
+            m = (m << 1) | bit;
+        }
+        return price;
+    }
+
+    static int reverseBitTreePrice(short[] probs, int offset, int bits, int symbol) {
+        int price = 0;
+        int m = 1;
+        for (int i = 0; i < bits; i++) {
+            int bit = symbol & 1;
+            symbol >>>= 1;
+            price += bitPrice(probs[offset + m], bit);
+            m = (m << 1) | bit;
+        }
+        return price;
+    }
+
+    static int directBitsPrice(int count) {
+        return count << PRICE_SHIFT_BITS;
+    }
+}
\ No newline at end of file
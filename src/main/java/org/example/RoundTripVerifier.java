@@ -0,0 +1,48 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+// Гейт бенчмарков: decompress(compress(x)) == x на нескольких краевых входах. Полный набор - срезы, прямые
+// буферы, обрезанные потоки и фаззинг - в RoundTripTest (mvn test)
+public final class RoundTripVerifier {
+
+    private RoundTripVerifier() {
+    }
+
+    public static void verifyQuick(Compressor compressor, long seed) throws IOException {
+        roundTrip(compressor, "empty", new byte[0]);
+        roundTrip(compressor, "1 byte", new byte[]{42});
+        byte[] alphabet = new byte[256 * 4];
+        for (int i = 0; i < alphabet.length; i++) {
+            alphabet[i] = (byte) i;
+        }
+        roundTrip(compressor, "every byte value", alphabet);
+        byte[] noise = new byte[1 << 14];
+        new Random(seed).nextBytes(noise);
+        roundTrip(compressor, "random", noise);
+        byte[] period = new byte[1 << 16];
+        for (int i = 0; i < period.length; i++) {
+            period[i] = (byte) (i % 7 == 0 ? 'x' : 'a' + i % 3);
+        }
+        roundTrip(compressor, "periodic", period);
+    }
+
+    static void check(String name, byte[] expected, byte[] actual) throws IOException {
+        if (Arrays.equals(expected, actual)) {
+            return;
+        }
+        int common = Math.min(expected.length, actual.length);
+        int mismatch = 0;
+        while (mismatch < common && expected[mismatch] == actual[mismatch]) {
+            mismatch++;
+        }
+        throw new IOException("Round-trip failed on " + name + ": expected " + expected.length
+                + " bytes, got " + actual.length + ", first difference at " + mismatch);
+    }
+
+    private static void roundTrip(Compressor compressor, String name, byte[] data) throws IOException {
+        check(name, data, compressor.decompressBytes(compressor.compress(data)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,69 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Пары (символ, длина серии); длина записывается varint-ом, поэтому серии длиннее 255 не обрезаются
+public final class RunLengthCodec {
+
+    private RunLengthCodec() {
+    }
+
+    public static int maxEncodedLength(int length) {
+        return length * 2;
+    }
+
+    public static int encode(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset) {
+        int pos = dstOffset;
+        int end = srcOffset + length;
+        int i = srcOffset;
+        while (i < end) {
+            byte symbol = src[i];
+            int runEnd = i + 1;
+            while (runEnd < end && src[runEnd] == symbol) {
+                runEnd++;
+            }
+            dst[pos++] = symbol;
+            pos = writeVarInt(dst, pos, runEnd - i);
+            i = runEnd;
+        }
+        return pos - dstOffset;
+    }
+
+    public static int decode(byte[] src, int srcOffset, int length, byte[] dst, int dstOffset, int maxLength)
+            throws IOException {
+        int pos = dstOffset;
+        int limit = dstOffset + maxLength;
+        int end = srcOffset + length;
+        int i = srcOffset;
+        while (i < end) {
+            byte symbol = src[i++];
+            int count = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (i >= end || shift > 28) {
+                    throw new IOException("Truncated run length");
+                }
+                b = src[i++] & 0xFF;
+                count |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            if (count <= 0 || count > limit - pos) {
+                throw new IOException("Run length out of range: " + count);
+            }
+            Arrays.fill(dst, pos, pos + count, symbol);
+            pos += count;
+        }
+        return pos - dstOffset;
+    }
+
+    private static int writeVarInt(byte[] dst, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            dst[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dst[pos++] = (byte) value;
+        return pos;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package org.example;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Профайлер JMH (-prof org.example.SecondaryMetricsProfiler) для вторичных метрик, которые нельзя отдавать
+// EVENTS-счётчиками: JMH складывает их по итерациям. Бенчмарк публикует значения на уровне trial (размер
+// сжатых данных, степень сжатия) и выделения потоков за итерацию вне замеряемого метода; профайлер отдаёт
+// их как ScalarResult с AggregationPolicy.AVG, сам сбрасывает и читает пик кучи вокруг итерации.
+// Benchmark.main подключает его сам
+public class SecondaryMetricsProfiler implements InternalProfiler {
+
+    private static final Map<String, ScalarResult> PUBLISHED = new ConcurrentSkipListMap<>();
+    private static final AtomicLong ALLOCATED = new AtomicLong();
+    private static final AtomicLong ALLOCATING_THREADS = new AtomicLong();
+
+    // Значение, одинаковое для всех итераций trial; повторная публикация заменяет прежнее
+    static void publish(String name, double value, String unit) {
+        PUBLISHED.put(name, new ScalarResult("·" + name, value, unit, AggregationPolicy.AVG));
+    }
+
+    // Выделения одного потока за итерацию; вызывается из @TearDown(Level.Iteration)
+    static void addAllocated(long bytes) {
+        if (bytes >= 0) {
+            ALLOCATED.addAndGet(bytes);
+            ALLOCATING_THREADS.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Compressed size, ratio, allocation per op and peak heap, averaged over iterations";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        ALLOCATED.set(0);
+        ALLOCATING_THREADS.set(0);
+        MemoryMetrics.resetPeakHeap();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        List<Result> results = new ArrayList<>(PUBLISHED.values());
+        if (ALLOCATING_THREADS.get() > 0) {
+            long ops = Math.max(1, result.getMetadata().getAllOps());
+            results.add(new ScalarResult("·allocatedBytesPerOp", (double) ALLOCATED.get() / ops, "B/op",
+                    AggregationPolicy.AVG));
+        }
+        results.add(new ScalarResult("·peakHeapBytes", MemoryMetrics.peakHeapBytes(), "B", AggregationPolicy.AVG));
+        return results;
+    }
+}
\ No newline at end of file
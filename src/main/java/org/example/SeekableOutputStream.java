@@ -0,0 +1,131 @@
+package org.example;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// Контейнер с произвольным доступом: вход режется на кадры, каждый сжимается отдельно любым Compressor
+// и пишется как есть, после кадров идёт таблица поиска. Запись таблицы на кадр - сжатый размер, исходный размер
+// и CRC32 исходных данных (по 4 байта LE); затем CRC32 таблицы, число кадров (4 байта LE) и магия "SKTB".
+// Смещения кадров - суммы размеров, так что SeekableReader по хвосту файла находит нужные кадры без распаковки
+public class SeekableOutputStream extends FilterOutputStream {
+
+    public static final int DEFAULT_FRAME_SIZE = 256 << 10;
+
+    static final byte[] MAGIC = {'S', 'K', 'T', 'B'};
+    static final int ENTRY_SIZE = 12;
+    static final int FOOTER_SIZE = 12;
+
+    private final Compressor compressor;
+    private final byte[] frame;
+    private int frameLength;
+    private byte[] table = new byte[ENTRY_SIZE * 64];
+    private int frameCount;
+    private boolean closed;
+
+    public SeekableOutputStream(OutputStream out, Compressor compressor) {
+        this(out, compressor, DEFAULT_FRAME_SIZE);
+    }
+
+    // Меньшие кадры - быстрее чтение одной записи, но хуже степень сжатия
+    public SeekableOutputStream(OutputStream out, Compressor compressor, int frameSize) {
+        super(out);
+        if (frameSize <= 0) {
+            throw new IllegalArgumentException("Frame size must be positive: " + frameSize);
+        }
+        this.compressor = compressor;
+        this.frame = new byte[frameSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        frame[frameLength++] = (byte) b;
+        if (frameLength == frame.length) {
+            flushFrame();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, frame.length - frameLength);
+            System.arraycopy(b, off, frame, frameLength, n);
+            frameLength += n;
+            off += n;
+            len -= n;
+            if (frameLength == frame.length) {
+                flushFrame();
+            }
+        }
+    }
+
+    // Закрывает текущий кадр: так можно выровнять границы кадров по границам записей
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushFrame();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flushFrame();
+            int tableLength = frameCount * ENTRY_SIZE;
+            out.write(table, 0, tableLength);
+            byte[] footer = new byte[FOOTER_SIZE];
+            writeIntLE(footer, 0, Crc32.compute(table, 0, tableLength));
+            writeIntLE(footer, 4, frameCount);
+            System.arraycopy(MAGIC, 0, footer, 8, MAGIC.length);
+            out.write(footer);
+            out.flush();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    public int frameCount() {
+        return frameCount;
+    }
+
+    private void flushFrame() throws IOException {
+        if (frameLength == 0) {
+            return;
+        }
+        byte[] compressed = compressor.compress(frame, 0, frameLength);
+        out.write(compressed);
+        if (table.length < (frameCount + 1) * ENTRY_SIZE) {
+            table = Arrays.copyOf(table, table.length * 2);
+        }
+        int entry = frameCount * ENTRY_SIZE;
+        writeIntLE(table, entry, compressed.length);
+        writeIntLE(table, entry + 4, frameLength);
+        writeIntLE(table, entry + 8, Crc32.compute(frame, 0, frameLength));
+        frameCount++;
+        frameLength = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    static void writeIntLE(byte[] data, int pos, int value) {
+        data[pos] = (byte) value;
+        data[pos + 1] = (byte) (value >>> 8);
+        data[pos + 2] = (byte) (value >>> 16);
+        data[pos + 3] = (byte) (value >>> 24);
+    }
+
+    static int readIntLE(byte[] data, int pos) {
+        return (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16 | (data[pos + 3] & 0xFF) << 24;
+    }
+}
\ No newline at end of file
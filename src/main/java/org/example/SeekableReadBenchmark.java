@@ -0,0 +1,81 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Точечное чтение записи из контейнера SeekableOutputStream: задержка одного read(position, recordSize)
+// в зависимости от размера кадра и кэша. cachedFrames = 0 - каждое чтение распаковывает кадр заново
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class SeekableReadBenchmark {
+
+    @Param({"BZIP2", "GZIP", "ZSTD", "XZ", "PPMD"})
+    private Codec codec;
+
+    @Param("logs:16m")
+    private String corpus;
+
+    @Param({"16384", "65536", "262144"})
+    private int frameSize;
+
+    @Param({"0", "16"})
+    private int cachedFrames;
+
+    @Param("256")
+    private int recordSize;
+
+    private Path file;
+    private SeekableReader reader;
+    private SplittableRandom random;
+    private byte[] record;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        byte[] data = Corpus.load(corpus);
+        Compressor compressor = codec.create();
+        file = Files.createTempFile("seekable-" + codec, ".bin");
+        try (OutputStream out = new SeekableOutputStream(new BufferedOutputStream(Files.newOutputStream(file)),
+                compressor, frameSize)) {
+            out.write(data);
+        }
+        reader = new SeekableReader(file, compressor, cachedFrames);
+        random = new SplittableRandom(42);
+        record = new byte[recordSize];
+        RoundTripVerifier.check(corpus + " via seek table", data, reader.read(0, data.length));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        Files.deleteIfExists(file);
+    }
+
+    // Позиции равномерны по файлу: в кэш попадает доля cachedFrames * frameSize / размер данных
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] pointRead() throws IOException {
+        long position = random.nextLong(reader.size() - recordSize);
+        reader.read(position, record, 0, recordSize);
+        return record;
+    }
+
+    // Соседние записи подряд: после первого чтения кадр берётся из кэша
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] sequentialRecords() throws IOException {
+        long position = random.nextLong(reader.size() / recordSize) * recordSize;
+        for (int i = 0; i < 16 && position + recordSize <= reader.size(); i++, position += recordSize) {
+            reader.read(position, record, 0, recordSize);
+        }
+        return record;
+    }
+}
\ No newline at end of file
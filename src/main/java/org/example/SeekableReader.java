@@ -0,0 +1,191 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Чтение произвольного диапазона из формата SeekableOutputStream: по таблице поиска распаковываются только
+// кадры, покрывающие диапазон. Последние распакованные кадры держатся в LRU-кэше, так что соседние точечные
+// чтения не распаковывают кадр заново. Чтения из разных потоков допустимы: файл читается позиционно
+public class SeekableReader implements Closeable {
+
+    public static final int DEFAULT_CACHED_FRAMES = 8;
+
+    private final FileChannel channel;
+    private final Compressor compressor;
+    private final int frameCount;
+    private final long[] compressedOffsets;
+    private final long[] rawOffsets;
+    private final int[] checksums;
+    private final Map<Integer, byte[]> cache;
+
+    public SeekableReader(Path file, Compressor compressor) throws IOException {
+        this(file, compressor, DEFAULT_CACHED_FRAMES);
+    }
+
+    public SeekableReader(Path file, Compressor compressor, int cachedFrames) throws IOException {
+        if (cachedFrames < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cachedFrames);
+        }
+        this.compressor = compressor;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < SeekableOutputStream.FOOTER_SIZE) {
+                throw new EOFException("Truncated seekable container: " + file);
+            }
+            byte[] footer = readFully(fileSize - SeekableOutputStream.FOOTER_SIZE, SeekableOutputStream.FOOTER_SIZE);
+            for (int i = 0; i < SeekableOutputStream.MAGIC.length; i++) {
+                if (footer[8 + i] != SeekableOutputStream.MAGIC[i]) {
+                    throw new IOException("Not a seekable container: " + file);
+                }
+            }
+            frameCount = SeekableOutputStream.readIntLE(footer, 4);
+            long tableLength = (long) frameCount * SeekableOutputStream.ENTRY_SIZE;
+            if (frameCount < 0 || tableLength > Integer.MAX_VALUE - 8
+                    || tableLength > fileSize - SeekableOutputStream.FOOTER_SIZE) {
+                throw new IOException("Corrupt seek table frame count: " + frameCount);
+            }
+            long tableStart = fileSize - SeekableOutputStream.FOOTER_SIZE - tableLength;
+            byte[] table = readFully(tableStart, (int) tableLength);
+            if (Crc32.compute(table, 0, table.length) != SeekableOutputStream.readIntLE(footer, 0)) {
+                throw new IOException("Seek table CRC mismatch");
+            }
+
+            compressedOffsets = new long[frameCount + 1];
+            rawOffsets = new long[frameCount + 1];
+            checksums = new int[frameCount];
+            for (int i = 0; i < frameCount; i++) {
+                int entry = i * SeekableOutputStream.ENTRY_SIZE;
+                int compressedSize = SeekableOutputStream.readIntLE(table, entry);
+                int rawSize = SeekableOutputStream.readIntLE(table, entry + 4);
+                if (compressedSize < 0 || rawSize < 0) {
+                    throw new IOException("Corrupt seek table entry " + i);
+                }
+                compressedOffsets[i + 1] = compressedOffsets[i] + compressedSize;
+                rawOffsets[i + 1] = rawOffsets[i] + rawSize;
+                checksums[i] = SeekableOutputStream.readIntLE(table, entry + 8);
+            }
+            if (compressedOffsets[frameCount] != tableStart) {
+                throw new IOException("Seek table does not match the frames: " + compressedOffsets[frameCount]
+                        + " bytes of frames, " + tableStart + " in the file");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.cache = new LinkedHashMap<Integer, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return size() > cachedFrames;
+            }
+        };
+    }
+
+    // Размер исходных данных
+    public long size() {
+        return rawOffsets[frameCount];
+    }
+
+    public int frameCount() {
+        return frameCount;
+    }
+
+    // Как FileChannel.read(ByteBuffer, long): меньше len байт только у конца данных, -1 за концом
+    public int read(long position, byte[] b, int off, int len) throws IOException {
+        if (position < 0 || off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size()) {
+            return -1;
+        }
+        int total = 0;
+        for (int frame = frameAt(position); total < len && frame < frameCount; frame++) {
+            byte[] data = frame(frame);
+            int from = (int) (position + total - rawOffsets[frame]);
+            int n = Math.min(len - total, data.length - from);
+            System.arraycopy(data, from, b, off + total, n);
+            total += n;
+        }
+        return total;
+    }
+
+    // Ровно length байт с позиции position; диапазон должен лежать внутри данных
+    public byte[] read(long position, int length) throws IOException {
+        if (length < 0 || position < 0 || position + length > size()) {
+            throw new EOFException("Range " + position + "+" + length + " is outside " + size() + " bytes");
+        }
+        byte[] result = new byte[length];
+        if (length > 0) {
+            read(position, result, 0, length);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    // Последний кадр, начинающийся не дальше position: пустые кадры с тем же смещением пропускаются
+    private int frameAt(long position) {
+        int low = 0;
+        int high = frameCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rawOffsets[mid] <= position) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    // Промах кэша распаковывает кадр без блокировки: два потока могут распаковать один кадр одновременно
+    private byte[] frame(int frame) throws IOException {
+        synchronized (cache) {
+            byte[] cached = cache.get(frame);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long start = compressedOffsets[frame];
+        byte[] compressed = readFully(start, (int) (compressedOffsets[frame + 1] - start));
+        byte[] data = compressor.decompress(compressed, 0, compressed.length);
+        long rawSize = rawOffsets[frame + 1] - rawOffsets[frame];
+        if (data.length != rawSize) {
+            throw new IOException("Frame " + frame + " length mismatch: expected " + rawSize + ", got " + data.length);
+        }
+        if (Crc32.compute(data, 0, data.length) != checksums[frame]) {
+            throw new IOException("Frame " + frame + " CRC mismatch");
+        }
+        synchronized (cache) {
+            cache.put(frame, data);
+        }
+        return data;
+    }
+
+    private byte[] readFully(long position, int length) throws IOException {
+        byte[] data = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of seekable container");
+            }
+        }
+        return data;
+    }
+}
\ No newline at end of file
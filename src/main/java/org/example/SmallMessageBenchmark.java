@@ -0,0 +1,76 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Поток мелких независимых сообщений через один экземпляр кодека: контексты кодеков (таблицы поиска,
+// рабочие массивы суффиксного массива и Хаффмана, выходные буферы) переиспользуются между вызовами, так что
+// gc.alloc.rate.norm из GCProfiler должен быть близок к размеру самого результата
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class SmallMessageBenchmark {
+
+    private static final int MESSAGES = 256;
+
+    @Param({"BZIP2", "GZIP", "ZSTD", "XZ", "PPMD"})
+    private Codec codec;
+
+    @Param({"json", "logs"})
+    private String shape;
+
+    @Param({"1024", "4096", "16384"})
+    private int messageSize;
+
+    private Compressor compressor;
+    private byte[] data;
+    private byte[][] compressed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        compressor = codec.create();
+        data = Corpus.load(shape + ":" + MESSAGES * messageSize);
+        compressed = new byte[MESSAGES][];
+        for (int i = 0; i < MESSAGES; i++) {
+            compressed[i] = compressor.compress(data, i * messageSize, messageSize);
+            RoundTripVerifier.check(shape + " message " + i, Arrays.copyOfRange(data, i * messageSize, (i + 1) * messageSize),
+                    compressor.decompressBytes(compressed[i]));
+        }
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] compress() throws IOException {
+        int i = next++ & (MESSAGES - 1);
+        return compressor.compress(data, i * messageSize, messageSize);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] decompress() throws IOException {
+        byte[] message = compressed[next++ & (MESSAGES - 1)];
+        return compressor.decompress(message, 0, message.length);
+    }
+
+    // Принимает обычные аргументы JMH; GCProfiler включён всегда
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(SmallMessageBenchmark.class.getName() + "\\.");
+        }
+        new Runner(builder.build()).run();
+    }
+}
\ No newline at end of file
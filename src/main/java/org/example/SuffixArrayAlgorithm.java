@@ -0,0 +1,34 @@
+package org.example;
+
+public enum SuffixArrayAlgorithm {
+
+    SAIS {
+        @Override
+        public int[] build(byte[] text, int offset, int length) {
+            return SuffixArrays.sais(text, offset, length);
+        }
+
+        @Override
+        int[] build(byte[] text, int offset, int length, SuffixArrays.Workspace workspace) {
+            return SuffixArrays.sais(text, offset, length, workspace);
+        }
+    },
+
+    PREFIX_DOUBLING {
+        @Override
+        public int[] build(byte[] text, int offset, int length) {
+            return SuffixArrays.prefixDoubling(text, offset, length);
+        }
+    };
+
+    public abstract int[] build(byte[] text, int offset, int length);
+
+    public int[] build(byte[] text) {
+        return build(text, 0, text.length);
+    }
+
+    // Результат может быть длиннее length и принадлежать workspace; алгоритм без рабочих массивов его игнорирует
+    int[] build(byte[] text, int offset, int length, SuffixArrays.Workspace workspace) {
+        return build(text, offset, length);
+    }
+}
\ No newline at end of file
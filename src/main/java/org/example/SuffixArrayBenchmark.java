@@ -0,0 +1,42 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 5, timeUnit = TimeUnit.SECONDS)
+public class SuffixArrayBenchmark {
+
+    @Param({"SAIS", "PREFIX_DOUBLING"})
+    private SuffixArrayAlgorithm algorithm;
+
+    @Param({"test1.txt", "test2.txt", "test3.txt", "test4.txt", "test5.txt"})
+    private String file;
+
+    private byte[] data;
+    private Bzip2Compression bzip2Compressor;
+
+    @Setup
+    public void setup() throws IOException {
+        data = Files.readAllBytes(Paths.get(file));
+        bzip2Compressor = new Bzip2Compression(algorithm);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public int[] benchmarkSuffixArray() {
+        return algorithm.build(data);
+    }
+
+    @org.openjdk.jmh.annotations.Benchmark
+    public byte[] benchmarkBzip2Compression() throws IOException {
+        return bzip2Compressor.compress(data);
+    }
+}
\ No newline at end of file
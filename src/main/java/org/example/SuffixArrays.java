@@ -0,0 +1,251 @@
+package org.example;
+
+import java.util.Arrays;
+
+public final class SuffixArrays {
+
+    private SuffixArrays() {
+    }
+
+    public static int[] sais(byte[] text) {
+        return sais(text, 0, text.length);
+    }
+
+    public static int[] sais(byte[] text, int offset, int length) {
+        return sais(text, offset, length, new Workspace());
+    }
+
+    // Результат - первые length элементов возвращённого массива; он принадлежит workspace
+    static int[] sais(byte[] text, int offset, int length, Workspace workspace) {
+        int[] s = workspace.text = grow(workspace.text, length);
+        for (int i = 0; i < length; i++) {
+            s[i] = text[offset + i] & 0xFF;
+        }
+        return sais(s, length, 255, workspace);
+    }
+
+    public static int[] sais(int[] s, int upper) {
+        return sais(s, s.length, upper, new Workspace());
+    }
+
+    // SA-IS (Nong, Zhang, Chan) без явного сентинела: символы s[0, n) лежат в [0, upper].
+    // Все массивы берутся из workspace (уровень рекурсии - workspace.next), с новым workspace их длины точные
+    static int[] sais(int[] s, int n, int upper, Workspace workspace) {
+        int[] sa = workspace.sa = grow(workspace.sa, n);
+        if (n == 0) {
+            return sa;
+        }
+        if (n == 1) {
+            sa[0] = 0;
+            return sa;
+        }
+        if (n == 2) {
+            sa[0] = s[0] < s[1] ? 0 : 1;
+            sa[1] = 1 - sa[0];
+            return sa;
+        }
+
+        if (workspace.types == null || workspace.types.length < n) {
+            workspace.types = new boolean[n];
+        }
+        boolean[] ls = workspace.types;
+        ls[n - 1] = false;
+        for (int i = n - 2; i >= 0; i--) {
+            ls[i] = s[i] == s[i + 1] ? ls[i + 1] : s[i] < s[i + 1];
+        }
+
+        int[] sumL = workspace.sumL = grow(workspace.sumL, upper + 2);
+        int[] sumS = workspace.sumS = grow(workspace.sumS, upper + 2);
+        Arrays.fill(sumL, 0, upper + 2, 0);
+        Arrays.fill(sumS, 0, upper + 2, 0);
+        for (int i = 0; i < n; i++) {
+            if (!ls[i]) {
+                sumS[s[i]]++;
+            } else {
+                sumL[s[i] + 1]++;
+            }
+        }
+        for (int i = 0; i <= upper; i++) {
+            sumS[i] += sumL[i];
+            if (i < upper) {
+                sumL[i + 1] += sumS[i];
+            }
+        }
+
+        int[] lmsMap = workspace.lmsMap = grow(workspace.lmsMap, n + 1);
+        Arrays.fill(lmsMap, 0, n + 1, -1);
+        int m = 0;
+        for (int i = 1; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lmsMap[i] = m++;
+            }
+        }
+        int[] lms = workspace.lms = grow(workspace.lms, m);
+        for (int i = 1, j = 0; i < n; i++) {
+            if (!ls[i - 1] && ls[i]) {
+                lms[j++] = i;
+            }
+        }
+
+        int[] buf = workspace.buckets = grow(workspace.buckets, upper + 2);
+        induce(s, n, upper, sa, ls, sumL, sumS, buf, lms, m);
+
+        if (m > 0) {
+            int[] sortedLms = workspace.sortedLms = grow(workspace.sortedLms, m);
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                int v = sa[i];
+                if (lmsMap[v] != -1) {
+                    sortedLms[k++] = v;
+                }
+            }
+            int[] recS = workspace.reduced = grow(workspace.reduced, m);
+            int recUpper = 0;
+            recS[lmsMap[sortedLms[0]]] = 0;
+            for (int i = 1; i < m; i++) {
+                int l = sortedLms[i - 1];
+                int r = sortedLms[i];
+                int endL = lmsMap[l] + 1 < m ? lms[lmsMap[l] + 1] : n;
+                int endR = lmsMap[r] + 1 < m ? lms[lmsMap[r] + 1] : n;
+                boolean same = true;
+                if (endL - l != endR - r) {
+                    same = false;
+                } else {
+                    while (l < endL && s[l] == s[r]) {
+                        l++;
+                        r++;
+                    }
+                    if (l == n || s[l] != s[r]) {
+                        same = false;
+                    }
+                }
+                if (!same) {
+                    recUpper++;
+                }
+                recS[lmsMap[sortedLms[i]]] = recUpper;
+            }
+
+            if (workspace.next == null) {
+                workspace.next = new Workspace();
+            }
+            int[] recSa = sais(recS, m, recUpper, workspace.next);
+            for (int i = 0; i < m; i++) {
+                sortedLms[i] = lms[recSa[i]];
+            }
+            induce(s, n, upper, sa, ls, sumL, sumS, buf, sortedLms, m);
+        }
+        return sa;
+    }
+
+    private static void induce(int[] s, int n, int upper, int[] sa, boolean[] ls, int[] sumL, int[] sumS, int[] buf,
+                               int[] lms, int m) {
+        Arrays.fill(sa, 0, n, -1);
+        System.arraycopy(sumS, 0, buf, 0, upper + 2);
+        for (int i = 0; i < m; i++) {
+            int d = lms[i];
+            if (d != n) {
+                sa[buf[s[d]]++] = d;
+            }
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 2);
+        sa[buf[s[n - 1]]++] = n - 1;
+        for (int i = 0; i < n; i++) {
+            int v = sa[i];
+            if (v >= 1 && !ls[v - 1]) {
+                sa[buf[s[v - 1]]++] = v - 1;
+            }
+        }
+        System.arraycopy(sumL, 0, buf, 0, upper + 2);
+        for (int i = n - 1; i >= 0; i--) {
+            int v = sa[i];
+            if (v >= 1 && ls[v - 1]) {
+                sa[--buf[s[v - 1] + 1]] = v - 1;
+            }
+        }
+    }
+
+    private static int[] grow(int[] array, int length) {
+        return array == null || array.length < length ? new int[length] : array;
+    }
+
+    public static int[] prefixDoubling(byte[] text) {
+        return prefixDoubling(text, 0, text.length);
+    }
+
+    // Исходный построитель: удвоение префиксов с сортировкой объектов Suffix на каждом шаге
+    public static int[] prefixDoubling(byte[] text, int offset, int n) {
+        if (n == 0) {
+            return new int[0];
+        }
+        Suffix[] suffixes = new Suffix[n];
+
+        for (int i = 0; i < n; i++) {
+            suffixes[i] = new Suffix();
+            suffixes[i].index = i;
+            suffixes[i].rank = text[offset + i] & 0xFF;
+            suffixes[i].nextRank = (i + 1 < n) ? text[offset + i + 1] & 0xFF : -1;
+        }
+
+        Arrays.sort(suffixes);
+
+        int[] ind = new int[n];
+        for (int length = 4; length < 2 * n; length *= 2) {
+            int rank = 0, prevRank = suffixes[0].rank;
+            suffixes[0].rank = rank;
+            ind[suffixes[0].index] = 0;
+
+            for (int i = 1; i < n; i++) {
+                if (suffixes[i].rank == prevRank && suffixes[i].nextRank == suffixes[i - 1].nextRank) {
+                    prevRank = suffixes[i].rank;
+                    suffixes[i].rank = rank;
+                } else {
+                    prevRank = suffixes[i].rank;
+                    suffixes[i].rank = ++rank;
+                }
+                ind[suffixes[i].index] = i;
+            }
+
+            for (int i = 0; i < n; i++) {
+                int nextIndex = suffixes[i].index + length / 2;
+                suffixes[i].nextRank = (nextIndex < n) ? suffixes[ind[nextIndex]].rank : -1;
+            }
+
+            Arrays.sort(suffixes);
+        }
+
+        int[] suffixArr = new int[n];
+        for (int i = 0; i < n; i++) {
+            suffixArr[i] = suffixes[i].index;
+        }
+
+        return suffixArr;
+    }
+
+    private static class Suffix implements Comparable<Suffix> {
+        int index;
+        int rank;
+        int nextRank;
+
+        public int compareTo(Suffix s) {
+            if (rank != s.rank) {
+                return Integer.compare(rank, s.rank);
+            }
+            return Integer.compare(nextRank, s.nextRank);
+        }
+    }
+
+    // Массивы SA-IS, переиспользуемые между вызовами одним потоком; next - для уровня рекурсии
+    static final class Workspace {
+        private int[] text;
+        private int[] sa;
+        private boolean[] types;
+        private int[] sumL;
+        private int[] sumS;
+        private int[] buckets;
+        private int[] lmsMap;
+        private int[] lms;
+        private int[] sortedLms;
+        private int[] reduced;
+        private Workspace next;
+    }
+}
\ No newline at end of file
@@ -1,61 +1,438 @@
 package org.example;
 
+import java.io.EOFException;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class XzCompression {
+// Контейнер .xz (один поток, один блок, фильтр LZMA2, проверка CRC32) поверх LzmaEncoder/LzmaDecoder.
+// Вывод читается системным `xz -d`; при распаковке принимаются проверки None, CRC32, CRC64 и SHA-256
+public class XzCompression implements Compressor {
+
+    public static final int MIN_PRESET = 0;
+    public static final int MAX_PRESET = 9;
+    public static final int DEFAULT_PRESET = 6;
+    public static final int MIN_DICTIONARY_SIZE = 1 << 12;
+    public static final int MAX_DICTIONARY_SIZE = 1 << 28;
+
+    private static final byte[] HEADER_MAGIC = {(byte) 0xFD, '7', 'z', 'X', 'Z', 0};
+    private static final byte[] FOOTER_MAGIC = {'Y', 'Z'};
+    private static final int CHECK_NONE = 0x00;
+    private static final int CHECK_CRC32 = 0x01;
+    private static final int CHECK_CRC64 = 0x04;
+    private static final int CHECK_SHA256 = 0x0A;
+    private static final int FILTER_LZMA2 = 0x21;
+    // Вероятности LZMA не выше 2017/2048, а совпадение до 273 байт стоит десятка решений: степень сжатия
+    // не дотягивает и до 10000, так что индекс с большим размером - порча
+    private static final int MAX_RATIO = 1 << 16;
+
+    // Пресеты как у xz: log2 словаря, поиск (0 - хеш-цепочки, 1 - двоичное дерево), глубина, nice length,
+    // разбор (0 - быстрый, 1 - оптимальный). Как и у xz, с 4-го пресета разбор оптимальный
+    private static final int[][] PRESETS = {
+            {18, 0, 4, 32, 0},
+            {20, 0, 8, 64, 0},
+            {21, 0, 16, 64, 0},
+            {22, 0, 24, 96, 0},
+            {22, 1, 16, 64, 1},
+            {23, 1, 24, 96, 1},
+            {23, 1, 32, 128, 1},
+            {24, 1, 48, 192, 1},
+            {25, 1, 64, 273, 1},
+            {26, 1, 96, 273, 1},
+    };
+
+    private static final long[] CRC64_TABLE = new long[256];
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            long c = n;
+            for (int k = 0; k < 8; k++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ 0xC96C5795D7870F42L : c >>> 1;
+            }
+            CRC64_TABLE[n] = c;
+        }
+    }
+
+    private final int preset;
+    private final int dictionaryLog;
+    // Кодеры с таблицами поиска и декодеры переиспользуются между вызовами, по одному на одновременный вызов
+    private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<>();
+
+    public XzCompression() {
+        this(DEFAULT_PRESET);
+    }
+
+    public XzCompression(int preset) {
+        this(preset, 1 << presetParameters(preset)[0]);
+    }
+
+    // Размер словаря округляется вверх до степени двойки
+    public XzCompression(int preset, int dictionarySize) {
+        presetParameters(preset);
+        if (dictionarySize < MIN_DICTIONARY_SIZE || dictionarySize > MAX_DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Dictionary size must be between " + MIN_DICTIONARY_SIZE
+                    + " and " + MAX_DICTIONARY_SIZE + ": " + dictionarySize);
+        }
+        this.preset = preset;
+        this.dictionaryLog = 32 - Integer.numberOfLeadingZeros(dictionarySize - 1);
+    }
+
+    private static int[] presetParameters(int preset) {
+        if (preset < MIN_PRESET || preset > MAX_PRESET) {
+            throw new IllegalArgumentException("Preset must be between " + MIN_PRESET + " and " + MAX_PRESET + ": " + preset);
+        }
+        return PRESETS[preset];
+    }
 
     public byte[] compress(String data) {
-        byte[] input = data.getBytes(StandardCharsets.UTF_8);
-        return lzmaCompress(input);
+        return compress(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String decompress(byte[] compressedData) throws IOException {
+        return new String(decompressBytes(compressedData), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        return lzmaCompress(input, offset, length);
     }
 
-    public String decompress(byte[] compressedData) {
-        byte[] decompressedData = lzmaDecompress(compressedData);
-        return new String(decompressedData, StandardCharsets.UTF_8);
+    @Override
+    public byte[] decompress(byte[] compressedData, int offset, int length) throws IOException {
+        return lzmaDecompress(compressedData, offset, length);
     }
 
-    private byte[] lzmaCompress(byte[] input) {
-        // Составление словаря и подсчет частоты символов
-        Map<Byte, Integer> dictionary = new HashMap<>();
-        for (byte b : input) {
-            dictionary.put(b, dictionary.getOrDefault(b, 0) + 1);
+    @Override
+    public byte[] compress(byte[] input) {
+        return compress(input, 0, input.length);
+    }
+
+    private byte[] lzmaCompress(byte[] input, int offset, int length) {
+        // Словарь больше входа бесполезен, а декодеру xz пришлось бы его выделять
+        int windowLog = Math.max(12, Math.min(dictionaryLog, HashChainMatchFinder.tableBits(length)));
+        Context context = acquire();
+        try {
+            return lzmaCompress(input, offset, length, windowLog, context.encoder(windowLog));
+        } finally {
+            contexts.offer(context);
+        }
+    }
+
+    private byte[] lzmaCompress(byte[] input, int offset, int length, int windowLog, LzmaEncoder encoder) {
+        long start = CodecMetrics.start();
+        int lzma2Length = encoder.encodeLzma2(input, offset, length);
+        CodecMetrics.record(CodecMetrics.Stage.LZMA_ENCODE, start, length);
+        byte[] lzma2 = encoder.buffer();
+
+        byte[] blockHeader = new byte[16];
+        int h = 1;
+        blockHeader[h++] = (byte) 0xC0;
+        h = writeVarLong(blockHeader, h, lzma2Length);
+        h = writeVarLong(blockHeader, h, length);
+        blockHeader[h++] = FILTER_LZMA2;
+        blockHeader[h++] = 1;
+        blockHeader[h++] = (byte) ((windowLog - 12) * 2);
+        int blockHeaderSize = (h + 3) & ~3;
+        blockHeader = Arrays.copyOf(blockHeader, blockHeaderSize + 4);
+        blockHeader[0] = (byte) (blockHeader.length / 4 - 1);
+        writeIntLE(blockHeader, blockHeaderSize, Crc32.compute(blockHeader, 0, blockHeaderSize));
+
+        long unpaddedSize = blockHeader.length + lzma2Length + 4;
+        byte[] index = new byte[32];
+        int x = 1;
+        x = writeVarLong(index, x, 1);
+        x = writeVarLong(index, x, unpaddedSize);
+        x = writeVarLong(index, x, length);
+        int indexSize = (x + 3) & ~3;
+        index = Arrays.copyOf(index, indexSize + 4);
+        writeIntLE(index, indexSize, Crc32.compute(index, 0, indexSize));
+
+        int blockPadding = -lzma2Length & 3;
+        byte[] output = new byte[12 + blockHeader.length + lzma2Length + blockPadding + 4 + index.length + 12];
+        int pos = writeStreamHeader(output);
+        System.arraycopy(blockHeader, 0, output, pos, blockHeader.length);
+        pos += blockHeader.length;
+        System.arraycopy(lzma2, 0, output, pos, lzma2Length);
+        pos += lzma2Length + blockPadding;
+        writeIntLE(output, pos, Crc32.compute(input, offset, length));
+        pos += 4;
+        System.arraycopy(index, 0, output, pos, index.length);
+        pos += index.length;
+
+        writeIntLE(output, pos + 4, index.length / 4 - 1);
+        output[pos + 8] = 0;
+        output[pos + 9] = CHECK_CRC32;
+        writeIntLE(output, pos, Crc32.compute(output, pos + 4, 6));
+        output[pos + 10] = FOOTER_MAGIC[0];
+        output[pos + 11] = FOOTER_MAGIC[1];
+        return output;
+    }
+
+    private static int writeStreamHeader(byte[] output) {
+        System.arraycopy(HEADER_MAGIC, 0, output, 0, HEADER_MAGIC.length);
+        output[6] = 0;
+        output[7] = CHECK_CRC32;
+        writeIntLE(output, 8, Crc32.compute(output, 6, 2));
+        return 12;
+    }
+
+    private byte[] lzmaDecompress(byte[] input, int offset, int length) throws IOException {
+        int end = offset + length;
+        if (length < 24 || !startsWith(input, offset, HEADER_MAGIC)) {
+            throw new IOException("Not an .xz stream");
         }
+        if (input[offset + 6] != 0 || Crc32.compute(input, offset + 6, 2) != readIntLE(input, offset + 8)) {
+            throw new IOException("Corrupt .xz stream header");
+        }
+        int checkType = input[offset + 7] & 0xFF;
+        int checkSize = checkSize(checkType);
 
-        // Рассчет размера результирующего массива
-        int outputSize = dictionary.size() * 2; // по 2 байта на каждую пару (символ, частота)
-        byte[] output = new byte[outputSize];
-        int outputIndex = 0;
+        // Потоковое выравнивание (нули кратно 4) допускается только после подвала
+        while (end - offset > 24 && input[end - 1] == 0 && input[end - 2] == 0
+                && input[end - 3] == 0 && input[end - 4] == 0) {
+            end -= 4;
+        }
+        int footer = end - 12;
+        if (input[footer + 10] != FOOTER_MAGIC[0] || input[footer + 11] != FOOTER_MAGIC[1]
+                || Crc32.compute(input, footer + 4, 6) != readIntLE(input, footer)) {
+            throw new IOException("Corrupt .xz stream footer");
+        }
+        if (input[footer + 8] != input[offset + 6] || input[footer + 9] != input[offset + 7]) {
+            throw new IOException("Stream header and footer flags differ");
+        }
+        long indexSize = ((readIntLE(input, footer + 4) & 0xFFFFFFFFL) + 1) * 4;
+        if (indexSize > footer - offset - 12) {
+            throw new IOException("Corrupt .xz index size");
+        }
+        int indexStart = (int) (footer - indexSize);
 
-        // Заполнение выходного массива данными
-        for (Map.Entry<Byte, Integer> entry : dictionary.entrySet()) {
-            output[outputIndex++] = entry.getKey();
-            output[outputIndex++] = entry.getValue().byteValue();
+        // Индекс читается первым: он даёт точный размер результата
+        if (input[indexStart] != 0 || Crc32.compute(input, indexStart, (int) indexSize - 4) != readIntLE(input, footer - 4)) {
+            throw new IOException("Corrupt .xz index");
+        }
+        long[] cursor = {indexStart + 1};
+        long records = readVarLong(input, cursor, footer - 4);
+        if (records > (indexSize / 2)) {
+            throw new IOException("Corrupt .xz index record count");
+        }
+        long[] unpaddedSizes = new long[(int) records];
+        long[] uncompressedSizes = new long[(int) records];
+        long total = 0;
+        for (int i = 0; i < records; i++) {
+            unpaddedSizes[i] = readVarLong(input, cursor, footer - 4);
+            uncompressedSizes[i] = readVarLong(input, cursor, footer - 4);
+            total += uncompressedSizes[i];
+        }
+        if (total > Integer.MAX_VALUE - 8 || total > (long) length * MAX_RATIO) {
+            throw new IOException("Decompressed size too large: " + total + " bytes from " + length);
         }
+        byte[] output = new byte[(int) total];
 
+        Context context = acquire();
+        try {
+            long start = CodecMetrics.start();
+            decodeBlocks(input, offset, indexStart, checkType, checkSize, unpaddedSizes, uncompressedSizes, output,
+                    context.decoder());
+            CodecMetrics.record(CodecMetrics.Stage.LZMA_DECODE, start, output.length);
+        } finally {
+            contexts.offer(context);
+        }
         return output;
     }
 
-    private byte[] lzmaDecompress(byte[] input) {
-        // Рассчет изначального размера массива based on асортимент символов
-        int estimatedSize = 256 * (input.length / 2);  // максимально возможный размер
-        byte[] output = new byte[estimatedSize];
-        int outputIndex = 0;
+    private void decodeBlocks(byte[] input, int offset, int indexStart, int checkType, int checkSize,
+                              long[] unpaddedSizes, long[] uncompressedSizes, byte[] output, LzmaDecoder decoder)
+            throws IOException {
+        int records = unpaddedSizes.length;
+        long[] cursor = new long[1];
+        int pos = offset + 12;
+        int outputPos = 0;
+        for (int i = 0; i < records; i++) {
+            int blockStart = pos;
+            int blockHeaderSize = ((input[pos] & 0xFF) + 1) * 4;
+            if (input[pos] == 0 || pos + blockHeaderSize > indexStart) {
+                throw new IOException("Corrupt .xz block header");
+            }
+            if (Crc32.compute(input, pos, blockHeaderSize - 4) != readIntLE(input, pos + blockHeaderSize - 4)) {
+                throw new IOException("Block header CRC mismatch");
+            }
+            int flags = input[pos + 1] & 0xFF;
+            if ((flags & 0x3C) != 0) {
+                throw new IOException("Unsupported .xz block flags");
+            }
+            if ((flags & 0x03) != 0) {
+                throw new IOException("Only a single LZMA2 filter is supported");
+            }
+            cursor[0] = pos + 2;
+            int headerEnd = pos + blockHeaderSize - 4;
+            long compressedSize = (flags & 0x40) != 0 ? readVarLong(input, cursor, headerEnd) : -1;
+            long uncompressedSize = (flags & 0x80) != 0 ? readVarLong(input, cursor, headerEnd) : -1;
+            if (uncompressedSize != -1 && uncompressedSize != uncompressedSizes[i]) {
+                throw new IOException("Block and index sizes differ");
+            }
+            if (readVarLong(input, cursor, headerEnd) != FILTER_LZMA2 || readVarLong(input, cursor, headerEnd) != 1) {
+                throw new IOException("Only the LZMA2 filter is supported");
+            }
+            int dictionaryBits = input[(int) cursor[0]] & 0xFF;
+            if (dictionaryBits > 40) {
+                throw new IOException("Corrupt LZMA2 dictionary size");
+            }
+            pos = headerEnd + 4;
+
+            int blockOutputSize = (int) uncompressedSizes[i];
+            int consumed = decoder.decodeLzma2(input, pos, indexStart - pos, output, outputPos, blockOutputSize);
+            if (compressedSize != -1 && compressedSize != consumed) {
+                throw new IOException("Block compressed size mismatch");
+            }
+            pos += consumed;
+            while ((pos & 3) != (offset & 3)) {
+                if (input[pos++] != 0) {
+                    throw new IOException("Non-zero block padding");
+                }
+            }
+            if (pos + checkSize > indexStart) {
+                throw new EOFException("Truncated .xz block check");
+            }
+            verifyCheck(checkType, output, outputPos, blockOutputSize, input, pos);
+            pos += checkSize;
+            if (pos - blockStart - (-consumed & 3) != unpaddedSizes[i]) {
+                throw new IOException("Block size does not match the index");
+            }
+            outputPos += blockOutputSize;
+        }
+        if (pos != indexStart) {
+            throw new IOException("Unexpected data before the .xz index");
+        }
+    }
+
+    private Context acquire() {
+        Context context = contexts.poll();
+        return context != null ? context : new Context();
+    }
+
+    private static int checkSize(int checkType) throws IOException {
+        switch (checkType) {
+            case CHECK_NONE:
+                return 0;
+            case CHECK_CRC32:
+                return 4;
+            case CHECK_CRC64:
+                return 8;
+            case CHECK_SHA256:
+                return 32;
+            default:
+                throw new IOException("Unsupported .xz check type: " + checkType);
+        }
+    }
+
+    private static void verifyCheck(int checkType, byte[] data, int offset, int length, byte[] input, int pos)
+            throws IOException {
+        boolean ok;
+        switch (checkType) {
+            case CHECK_NONE:
+                ok = true;
+                break;
+            case CHECK_CRC32:
+                ok = Crc32.compute(data, offset, length) == readIntLE(input, pos);
+                break;
+            case CHECK_CRC64:
+                long crc = crc64(data, offset, length);
+                ok = (int) crc == readIntLE(input, pos) && (int) (crc >>> 32) == readIntLE(input, pos + 4);
+                break;
+            default:
+                try {
+                    MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+                    sha256.update(data, offset, length);
+                    ok = Arrays.equals(sha256.digest(), Arrays.copyOfRange(input, pos, pos + 32));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IOException(e);
+                }
+                break;
+        }
+        if (!ok) {
+            throw new IOException("Block check mismatch");
+        }
+    }
+
+    private static long crc64(byte[] data, int offset, int length) {
+        long crc = -1;
+        for (int i = offset; i < offset + length; i++) {
+            crc = CRC64_TABLE[((int) crc ^ data[i]) & 0xFF] ^ (crc >>> 8);
+        }
+        return ~crc;
+    }
 
-        for (int i = 0; i < input.length; i += 2) {
-            byte b = input[i];
-            int count = input[i + 1] & 0xFF;
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int writeVarLong(byte[] output, int pos, long value) {
+        while (value >= 0x80) {
+            output[pos++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        output[pos++] = (byte) value;
+        return pos;
+    }
 
-            for (int j = 0; j < count; j++) {
-                output[outputIndex++] = b;
+    private static long readVarLong(byte[] input, long[] cursor, int limit) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 9; i++) {
+            if (cursor[0] >= limit) {
+                throw new EOFException("Truncated .xz integer");
+            }
+            int b = input[(int) cursor[0]++];
+            value |= (long) (b & 0x7F) << (7 * i);
+            if (b >= 0) {
+                if (b == 0 && i > 0) {
+                    throw new IOException("Non-minimal .xz integer");
+                }
+                return value;
             }
         }
+        throw new IOException("Corrupt .xz integer");
+    }
 
-        // Сжатие результирующего массива до фактического размера
-        byte[] result = new byte[outputIndex];
-        System.arraycopy(output, 0, result, 0, outputIndex);
+    private static void writeIntLE(byte[] output, int pos, int value) {
+        output[pos] = (byte) value;
+        output[pos + 1] = (byte) (value >>> 8);
+        output[pos + 2] = (byte) (value >>> 16);
+        output[pos + 3] = (byte) (value >>> 24);
+    }
+
+    private static int readIntLE(byte[] data, int pos) {
+        return (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16 | (data[pos + 3] & 0xFF) << 24;
+    }
 
-        return result;
+    private final class Context {
+        private final LzmaDecoder decoder = new LzmaDecoder();
+        private LzmaEncoder encoder;
+        private int encoderWindowLog;
+
+        LzmaDecoder decoder() {
+            return decoder;
+        }
+
+        // Окно зависит от размера входа, поэтому кодер пересоздаётся, когда оно меняется
+        LzmaEncoder encoder(int windowLog) {
+            if (encoder == null || encoderWindowLog != windowLog) {
+                int[] parameters = PRESETS[preset];
+                MatchFinder finder = parameters[1] == 1
+                        ? new BinaryTreeMatchFinder(windowLog, windowLog + 1, parameters[2], parameters[3])
+                        : new HashChainMatchFinder(windowLog, Math.min(windowLog + 1, 20), parameters[2], parameters[3],
+                                LzmaCoder.MATCH_LEN_MAX);
+                encoder = new LzmaEncoder(finder, parameters[3], parameters[4] == 1);
+                encoderWindowLog = windowLog;
+            }
+            return encoder;
+        }
     }
 }
\ No newline at end of file
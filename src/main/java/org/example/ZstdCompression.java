@@ -1,158 +1,322 @@
 package org.example;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class ZstdCompression {
+// LZ77 + канонический Хаффман. Кадр: блок CanonicalHuffman с LZ77-потоком, затем CRC32 исходных данных
+// (4 байта LE); кадр со словарём начинается с id словаря. Собственный формат, несовместимый с zstd
+public class ZstdCompression implements Compressor {
 
-    public byte[] compress(String data) {
-        byte[] input = data.getBytes(StandardCharsets.UTF_8);
-        byte[] lz77Encoded = lz77Encode(input);
-        byte[] huffmanEncoded = huffmanEncode(lz77Encoded);
+    public static final int MIN_LEVEL = 1;
+    public static final int MAX_LEVEL = 19;
+    public static final int DEFAULT_LEVEL = 3;
 
-        return huffmanEncoded;
-    }
+    // Уровни 1-9: хеш-цепочки (жадный и ленивый разбор), 10-12: двоичное дерево с ленивым разбором,
+    // 13-19: двоичное дерево с оптимальным разбором по цене
+    private static final LevelParameters[] LEVELS = {
+            null,
+            new LevelParameters(17, 16, 1, 16, Lz77Encoder.Strategy.GREEDY, false),
+            new LevelParameters(18, 17, 2, 24, Lz77Encoder.Strategy.GREEDY, false),
+            new LevelParameters(19, 17, 4, 32, Lz77Encoder.Strategy.LAZY, false),
+            new LevelParameters(19, 18, 8, 32, Lz77Encoder.Strategy.LAZY, false),
+            new LevelParameters(20, 18, 16, 48, Lz77Encoder.Strategy.LAZY, false),
+            new LevelParameters(20, 19, 32, 64, Lz77Encoder.Strategy.LAZY, false),
+            new LevelParameters(21, 19, 32, 96, Lz77Encoder.Strategy.LAZY, false),
+            new LevelParameters(21, 20, 48, 128, Lz77Encoder.Strategy.LAZY, false),
+            new LevelParameters(22, 20, 64, 128, Lz77Encoder.Strategy.LAZY, false),
+            new LevelParameters(22, 20, 16, 64, Lz77Encoder.Strategy.LAZY, true),
+            new LevelParameters(22, 20, 32, 96, Lz77Encoder.Strategy.LAZY, true),
+            new LevelParameters(22, 20, 48, 128, Lz77Encoder.Strategy.LAZY, true),
+            new LevelParameters(22, 20, 16, 64, Lz77Encoder.Strategy.OPTIMAL, true),
+            new LevelParameters(22, 20, 32, 96, Lz77Encoder.Strategy.OPTIMAL, true),
+            new LevelParameters(22, 21, 48, 128, Lz77Encoder.Strategy.OPTIMAL, true),
+            new LevelParameters(23, 21, 64, 192, Lz77Encoder.Strategy.OPTIMAL, true),
+            new LevelParameters(23, 21, 128, 256, Lz77Encoder.Strategy.OPTIMAL, true),
+            new LevelParameters(23, 22, 256, 256, Lz77Encoder.Strategy.OPTIMAL, true),
+            new LevelParameters(23, 22, 512, 512, Lz77Encoder.Strategy.OPTIMAL, true),
+    };
 
-    public String decompress(byte[] compressedData) {
-        byte[] huffmanDecoded = huffmanDecode(compressedData);
-        byte[] lz77Decoded = lz77Decode(huffmanDecoded);
+    private static final byte[] NO_PREFIX = new byte[0];
+    // Выход LZ77 сначала выделяется на такую степень сжатия и растёт вдвое до размера из заголовка
+    private static final int INITIAL_RATIO = 16;
 
-        return new String(lz77Decoded, StandardCharsets.UTF_8);
-    }
+    private final LevelParameters parameters;
+    // Контексты переиспользуются между вызовами; в пуле не больше, чем было одновременных вызовов
+    private final ConcurrentLinkedQueue<Context> contexts = new ConcurrentLinkedQueue<>();
 
-    private byte[] lz77Encode(byte[] input) {
-        int windowSize = 4096;
-        int maxOutputSize = input.length * 2;
-        byte[] output = new byte[maxOutputSize];
-        int outputIndex = 0;
+    public ZstdCompression() {
+        this(DEFAULT_LEVEL);
+    }
 
-        int pos = 0;
-        while (pos < input.length) {
-            int bestLength = 0;
-            int bestDistance = 0;
-            for (int distance = 1; distance <= windowSize && pos - distance >= 0; distance++) {
-                int length = 0;
+    public ZstdCompression(int level) {
+        if (level < MIN_LEVEL || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Compression level must be between " + MIN_LEVEL
+                    + " and " + MAX_LEVEL + ": " + level);
+        }
+        this.parameters = LEVELS[level];
+    }
 
-                while (length < 258 && pos + length < input.length && input[pos + length] == input[pos - distance + length]) {
-                    length++;
-                }
+    public byte[] compress(String data) {
+        return compress(data.getBytes(StandardCharsets.UTF_8));
+    }
 
-                if (length > bestLength) {
-                    bestLength = length;
-                    bestDistance = distance;
-                }
-            }
+    public String decompress(byte[] compressedData) throws IOException {
+        return new String(decompressBytes(compressedData), StandardCharsets.UTF_8);
+    }
 
-            if (bestLength > 3) {
-                output[outputIndex++] = 1;
-                output[outputIndex++] = (byte) (bestDistance >> 8);
-                output[outputIndex++] = (byte) (bestDistance & 0xFF);
-                output[outputIndex++] = (byte) bestLength;
-                pos += bestLength;
-            } else {
-                output[outputIndex++] = 0;
-                output[outputIndex++] = input[pos++];
-            }
+    // Промежуточный LZ77-поток живёт в буферах контекста: выделяется только результат
+    @Override
+    public byte[] compress(byte[] input, int offset, int length) {
+        Context context = acquire();
+        try {
+            Lz77Encoder encoder = context.encoder(parameters);
+            long start = CodecMetrics.start();
+            int lz77Length = encoder.encode(input, offset, length);
+            CodecMetrics.record(CodecMetrics.Stage.LZ77_PARSE, start, length);
+            start = CodecMetrics.start();
+            BitWriter out = context.huffman.writer(lz77Length / 2 + 64);
+            CanonicalHuffman.encode(encoder.buffer(), 0, lz77Length, null, context.huffman, out);
+            writeChecksum(out, input, offset, length);
+            byte[] result = out.toByteArray();
+            CodecMetrics.record(CodecMetrics.Stage.HUFFMAN_ENCODE, start, length);
+            return result;
+        } finally {
+            contexts.offer(context);
         }
+    }
 
-        return Arrays.copyOf(output, outputIndex);
+    @Override
+    public byte[] decompress(byte[] compressedData, int offset, int length) throws IOException {
+        if (length < 4) {
+            throw new IOException("Truncated Zstd frame");
+        }
+        Context context = acquire();
+        try {
+            long start = CodecMetrics.start();
+            int lz77Length = CanonicalHuffman.decode(compressedData, offset, length - 4, context.huffman);
+            long lz77Start = CodecMetrics.start();
+            byte[] result = lz77Decode(context.huffman.decoded(lz77Length), lz77Length, NO_PREFIX);
+            CodecMetrics.record(CodecMetrics.Stage.HUFFMAN_DECODE, start, lz77Start, result.length);
+            CodecMetrics.record(CodecMetrics.Stage.LZ77_DECODE, lz77Start, result.length);
+            verifyChecksum(compressedData, offset + length - 4, result);
+            return result;
+        } finally {
+            contexts.offer(context);
+        }
     }
 
-    private byte[] lz77Decode(byte[] input) {
-        int maxOutputSize = input.length * 256;
-        byte[] output = new byte[maxOutputSize];
-        int outputIndex = 0;
+    @Override
+    public byte[] compress(byte[] input) {
+        return compress(input, 0, input.length);
+    }
 
-        int pos = 0;
-        while (pos < input.length) {
-            int flag = input[pos++];
-            if (flag == 1) {
-                int distance = ((input[pos++] & 0xFF) << 8) | (input[pos++] & 0xFF);
-                int length = input[pos++];
+    public byte[] compress(byte[] input, ZstdDictionary dictionary) {
+        return compress(input, 0, input.length, dictionary);
+    }
 
-                for (int i = 0; i < length; i++) {
-                    output[outputIndex] = output[outputIndex - distance];
-                    outputIndex++;
-                }
-            } else {
-                output[outputIndex++] = input[pos++];
-            }
+    // Кадр со словарём: id словаря (4 байта BE), затем тот же поток, что и без словаря, но окно LZ77 начинается
+    // с содержимого словаря, а таблица Хаффмана словаря заменяет свою, когда так короче
+    public byte[] compress(byte[] input, int offset, int length, ZstdDictionary dictionary) {
+        Context context = acquire();
+        try {
+            Lz77Encoder encoder = context.encoder(parameters);
+            long start = CodecMetrics.start();
+            int lz77Length = encoder.encode(input, offset, length, dictionary.content);
+            CodecMetrics.record(CodecMetrics.Stage.LZ77_PARSE, start, length);
+            start = CodecMetrics.start();
+            BitWriter out = context.huffman.writer(lz77Length / 2 + 64);
+            out.writeBits(Integer.reverseBytes(dictionary.id()), 32);
+            CanonicalHuffman.encode(encoder.buffer(), 0, lz77Length, dictionary.huffman, context.huffman, out);
+            writeChecksum(out, input, offset, length);
+            byte[] result = out.toByteArray();
+            CodecMetrics.record(CodecMetrics.Stage.HUFFMAN_ENCODE, start, length);
+            return result;
+        } finally {
+            contexts.offer(context);
         }
+    }
 
-        return Arrays.copyOf(output, outputIndex);
+    public byte[] decompress(byte[] compressedData, ZstdDictionary dictionary) throws IOException {
+        return decompress(compressedData, 0, compressedData.length, dictionary);
     }
 
-    private byte[] huffmanEncode(byte[] input) {
-        Map<Byte, Integer> frequencyMap = new HashMap<>();
-        for (byte b : input) {
-            frequencyMap.put(b, frequencyMap.getOrDefault(b, 0) + 1);
+    public byte[] decompress(byte[] compressedData, int offset, int length, ZstdDictionary dictionary)
+            throws IOException {
+        if (length < 8) {
+            throw new IOException("Truncated dictionary frame");
         }
+        int id = (compressedData[offset] & 0xFF) << 24 | (compressedData[offset + 1] & 0xFF) << 16
+                | (compressedData[offset + 2] & 0xFF) << 8 | (compressedData[offset + 3] & 0xFF);
+        if (id != dictionary.id()) {
+            throw new IOException("Frame was compressed with dictionary " + Integer.toHexString(id)
+                    + ", not " + Integer.toHexString(dictionary.id()));
+        }
+        Context context = acquire();
+        try {
+            long start = CodecMetrics.start();
+            int lz77Length = CanonicalHuffman.decode(compressedData, offset + 4, length - 8, dictionary.huffman,
+                    context.huffman);
+            long lz77Start = CodecMetrics.start();
+            byte[] result = lz77Decode(context.huffman.decoded(lz77Length), lz77Length, dictionary.content);
+            CodecMetrics.record(CodecMetrics.Stage.HUFFMAN_DECODE, start, lz77Start, result.length);
+            CodecMetrics.record(CodecMetrics.Stage.LZ77_DECODE, lz77Start, result.length);
+            verifyChecksum(compressedData, offset + length - 4, result);
+            return result;
+        } finally {
+            contexts.offer(context);
+        }
+    }
 
-        PriorityQueue<Node> priorityQueue = new PriorityQueue<>(Comparator.comparingInt(node -> node.frequency));
-        frequencyMap.forEach((key, value) -> {
-            Node node = new Node();
-            node.b = key;
-            node.frequency = value;
-            priorityQueue.add(node);
-        });
-
-        while (priorityQueue.size() > 1) {
-            Node left = priorityQueue.poll();
-            Node right = priorityQueue.poll();
-            Node parent = new Node();
-            parent.left = left;
-            parent.right = right;
-            parent.frequency = left.frequency + right.frequency;
-            priorityQueue.add(parent);
+    // Частоты байтов LZ77-потока со словарём prefix: по ним строится таблица Хаффмана словаря
+    void countLz77Symbols(byte[] input, int offset, int length, byte[] prefix, int[] freq) {
+        Context context = acquire();
+        try {
+            Lz77Encoder encoder = context.encoder(parameters);
+            int lz77Length = encoder.encode(input, offset, length, prefix);
+            ByteKernels.INSTANCE.histogram(encoder.buffer(), 0, lz77Length, freq);
+        } finally {
+            contexts.offer(context);
         }
+    }
+
+    private Context acquire() {
+        Context context = contexts.poll();
+        return context != null ? context : new Context();
+    }
 
-        Node root = priorityQueue.poll();
-        Map<Byte, String> huffmanCodeMap = new HashMap<>();
-        buildHuffmanCode(root, "", huffmanCodeMap);
+    private static void writeChecksum(BitWriter out, byte[] input, int offset, int length) {
+        out.alignToByte();
+        out.writeBits(Crc32.compute(input, offset, length), 32);
+    }
 
-        StringBuilder encodedData = new StringBuilder();
-        for (byte b : input) {
-            encodedData.append(huffmanCodeMap.get(b));
+    // Без контрольной суммы порча, сохранившая структуру LZ77-потока, распаковалась бы в другие данные
+    private static void verifyChecksum(byte[] compressedData, int pos, byte[] result) throws IOException {
+        int expected = (compressedData[pos] & 0xFF) | (compressedData[pos + 1] & 0xFF) << 8
+                | (compressedData[pos + 2] & 0xFF) << 16 | (compressedData[pos + 3] & 0xFF) << 24;
+        if (Crc32.compute(result, 0, result.length) != expected) {
+            throw new IOException("Zstd frame checksum mismatch");
         }
+    }
 
-        int byteLength = (encodedData.length() + 7) / 8;
-        byte[] output = new byte[byteLength];
-        for (int i = 0; i < encodedData.length(); i++) {
-            if (encodedData.charAt(i) == '1') {
-                output[i / 8] |= 1 << (7 - i % 8);
-            }
+    // Дистанции до outputIndex + prefix.length: совпадение может начинаться в словаре и продолжаться в выходе
+    private static byte[] lz77Decode(byte[] input, int inputLength, byte[] prefix) throws IOException {
+        int[] pos = {0};
+        int outputSize = readVarInt(input, inputLength, pos);
+        // Совпадение занимает не меньше двух байт потока и даёт не больше MAX_MATCH байт выхода
+        if (outputSize > (long) inputLength * Lz77Encoder.MAX_MATCH) {
+            throw new IOException("Corrupt LZ77 output size: " + outputSize);
         }
+        byte[] output = new byte[(int) Math.min(outputSize, (long) inputLength * INITIAL_RATIO)];
+        int outputIndex = 0;
 
+        while (true) {
+            int literals = readVarInt(input, inputLength, pos);
+            if (literals > outputSize - outputIndex || literals > inputLength - pos[0]) {
+                throw new IOException("Corrupt LZ77 literal run");
+            }
+            output = grow(output, outputIndex + literals, outputSize);
+            System.arraycopy(input, pos[0], output, outputIndex, literals);
+            pos[0] += literals;
+            outputIndex += literals;
+
+            int lengthCode = readVarInt(input, inputLength, pos);
+            if (lengthCode == 0) {
+                break;
+            }
+            if (lengthCode > Lz77Encoder.MAX_MATCH - MatchFinder.MIN_MATCH + 1) {
+                throw new IOException("Corrupt LZ77 match length");
+            }
+            int length = lengthCode + MatchFinder.MIN_MATCH - 1;
+            int distance = readVarInt(input, inputLength, pos);
+            if (distance <= 0 || distance > outputIndex + prefix.length || length > outputSize - outputIndex) {
+                throw new IOException("Corrupt LZ77 match");
+            }
+            output = grow(output, outputIndex + length, outputSize);
+            int from = outputIndex - distance;
+            if (from < 0) {
+                int fromPrefix = Math.min(length, -from);
+                System.arraycopy(prefix, prefix.length + from, output, outputIndex, fromPrefix);
+                outputIndex += fromPrefix;
+                length -= fromPrefix;
+                from = 0;
+            }
+            if (distance >= length) {
+                System.arraycopy(output, from, output, outputIndex, length);
+                outputIndex += length;
+            } else {
+                for (int i = 0; i < length; i++) {
+                    output[outputIndex++] = output[from + i];
+                }
+            }
+        }
+        if (outputIndex != outputSize) {
+            throw new IOException("LZ77 stream ended early");
+        }
         return output;
     }
 
-    private byte[] huffmanDecode(byte[] input) {
-        // Назначить начальную емкость результата на основе предполагаемого размера
-        int estimatedSize = 256 * (input.length);
-        byte[] output = new byte[estimatedSize];
-        int outputIndex = 0;
-
-        // Примитивный декодировщик, который просто копирует байты (заменить на свой декодер)
-        for (int i = 0; i < input.length; i++) {
-            output[outputIndex++] = input[i];
+    private static byte[] grow(byte[] output, int needed, int outputSize) {
+        if (needed <= output.length) {
+            return output;
         }
+        return Arrays.copyOf(output, (int) Math.min(outputSize, Math.max(needed, 2L * output.length)));
+    }
 
-        // Уменьшить результирующий массив до фактического размера
-        return Arrays.copyOf(output, outputIndex);
+    private static int readVarInt(byte[] input, int inputLength, int[] pos) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (pos[0] >= inputLength) {
+                throw new IOException("Truncated LZ77 stream");
+            }
+            int b = input[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new IOException("LZ77 varint overflow");
+                }
+                return value;
+            }
+        }
+        throw new IOException("LZ77 varint too long");
     }
 
-    private void buildHuffmanCode(Node node, String code, Map<Byte, String> huffmanCodeMap) {
-        if (node.left == null && node.right == null) {
-            huffmanCodeMap.put(node.b, code);
-        } else {
-            buildHuffmanCode(node.left, code + '0', huffmanCodeMap);
-            buildHuffmanCode(node.right, code + '1', huffmanCodeMap);
+    // Кодер LZ77 с таблицами поиска, рабочие массивы Хаффмана и буфер промежуточного потока для одного вызова
+    private static final class Context {
+        final CanonicalHuffman.Workspace huffman = new CanonicalHuffman.Workspace();
+        private Lz77Encoder encoder;
+
+        // Кодер создаётся при первом сжатии: контексту, который только распаковывает, таблицы поиска не нужны
+        Lz77Encoder encoder(LevelParameters parameters) {
+            if (encoder == null) {
+                MatchFinder finder = parameters.binaryTree
+                        ? new BinaryTreeMatchFinder(parameters.windowLog, parameters.hashLog, parameters.searchDepth,
+                                parameters.niceLength)
+                        : new HashChainMatchFinder(parameters.windowLog, parameters.hashLog, parameters.searchDepth,
+                                parameters.niceLength, Lz77Encoder.MAX_MATCH);
+                encoder = new Lz77Encoder(finder, parameters.strategy, parameters.niceLength);
+            }
+            return encoder;
         }
     }
 
-    private static class Node {
-        byte b;
-        int frequency;
-        Node left, right;
+    private static final class LevelParameters {
+        final int windowLog;
+        final int hashLog;
+        final int searchDepth;
+        final int niceLength;
+        final Lz77Encoder.Strategy strategy;
+        final boolean binaryTree;
+
+        LevelParameters(int windowLog, int hashLog, int searchDepth, int niceLength,
+                        Lz77Encoder.Strategy strategy, boolean binaryTree) {
+            this.windowLog = windowLog;
+            this.hashLog = hashLog;
+            this.searchDepth = searchDepth;
+            this.niceLength = niceLength;
+            this.strategy = strategy;
+            this.binaryTree = binaryTree;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package org.example;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+// Словарь для ZstdCompression: содержимое, которое предшествует каждому входу в окне LZ77, и таблица Хаффмана
+// для промежуточного LZ77-потока, обученная на тех же образцах. Формат: "ZDIC", id (4 байта BE),
+// 256 длин кодов по 4 бита (все нули - таблицы нет), длина содержимого (4 байта BE), содержимое.
+// Сжатый со словарём кадр начинается с id словаря, так что распаковка с чужим словарём сразу даёт ошибку
+public final class ZstdDictionary {
+
+    public static final int DEFAULT_CAPACITY = 16 << 10;
+    public static final int MAX_CAPACITY = 1 << 20;
+
+    private static final byte[] MAGIC = {'Z', 'D', 'I', 'C'};
+    private static final int SYMBOLS = 256;
+
+    private final int id;
+    final byte[] content;
+    // null - словарь без таблицы: каждый кадр несёт свою
+    final CanonicalHuffman.Table huffman;
+
+    // Словарь из готового содержимого, например типичной записи; id 0 зарезервирован за "словаря нет"
+    public ZstdDictionary(int id, byte[] content) {
+        this(id, content, null);
+    }
+
+    private ZstdDictionary(int id, byte[] content, CanonicalHuffman.Table huffman) {
+        if (id == 0) {
+            throw new IllegalArgumentException("Dictionary id 0 is reserved");
+        }
+        if (content.length > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Dictionary content must be at most " + MAX_CAPACITY + " bytes: "
+                    + content.length);
+        }
+        this.id = id;
+        this.content = content.clone();
+        this.huffman = huffman;
+    }
+
+    public static ZstdDictionary train(List<byte[]> samples) {
+        return train(samples, DEFAULT_CAPACITY);
+    }
+
+    public static ZstdDictionary train(List<byte[]> samples, int capacity) {
+        return train(samples, capacity, DictionaryTrainer.DEFAULT_SEGMENT_SIZE, DictionaryTrainer.DEFAULT_DMER_SIZE,
+                ZstdCompression.DEFAULT_LEVEL);
+    }
+
+    // segmentSize - длина отрезка, который берётся из образцов целиком (k в COVER), dmerSize - длина d-грамма,
+    // по которому считается частота (d); level - уровень, на котором собирается статистика LZ77-потока
+    public static ZstdDictionary train(List<byte[]> samples, int capacity, int segmentSize, int dmerSize, int level) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Dictionary capacity must be between 1 and " + MAX_CAPACITY + ": "
+                    + capacity);
+        }
+        byte[] content = DictionaryTrainer.selectSegments(samples, capacity, segmentSize, dmerSize);
+
+        // Каждый символ получает ненулевую частоту, чтобы таблица словаря годилась для любого кадра
+        int[] freq = new int[SYMBOLS];
+        Arrays.fill(freq, 1);
+        ZstdCompression compression = new ZstdCompression(level);
+        for (byte[] sample : samples) {
+            compression.countLz77Symbols(sample, 0, sample.length, content, freq);
+        }
+        int[] lengths = new int[SYMBOLS];
+        CanonicalHuffman.buildLengths(freq, SYMBOLS, CanonicalHuffman.MAX_CODE_LENGTH, lengths,
+                new CanonicalHuffman.Workspace());
+
+        int id = Crc32.compute(content, 0, content.length);
+        for (int length : lengths) {
+            id = id * 31 + length;
+        }
+        try {
+            return new ZstdDictionary(id != 0 ? id : 1, content, new CanonicalHuffman.Table(lengths, SYMBOLS));
+        } catch (IOException e) {
+            throw new IllegalStateException("Trained an invalid Huffman table", e);
+        }
+    }
+
+    public static ZstdDictionary fromByteArray(byte[] data) throws IOException {
+        if (data.length < MAGIC.length + 4 + SYMBOLS / 2 + 4) {
+            throw new EOFException("Truncated dictionary header");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                throw new IOException("Not a dictionary: bad magic");
+            }
+        }
+        int pos = MAGIC.length;
+        int id = readInt(data, pos);
+        pos += 4;
+        int[] lengths = new int[SYMBOLS];
+        boolean hasTable = false;
+        for (int i = 0; i < SYMBOLS; i += 2) {
+            lengths[i] = (data[pos] >>> 4) & 0xF;
+            lengths[i + 1] = data[pos] & 0xF;
+            hasTable |= data[pos++] != 0;
+        }
+        int contentLength = readInt(data, pos);
+        pos += 4;
+        if (id == 0 || contentLength < 0 || contentLength > MAX_CAPACITY || contentLength != data.length - pos) {
+            throw new IOException("Corrupt dictionary header");
+        }
+        CanonicalHuffman.Table huffman = hasTable ? new CanonicalHuffman.Table(lengths, SYMBOLS) : null;
+        return new ZstdDictionary(id, Arrays.copyOfRange(data, pos, data.length), huffman);
+    }
+
+    public byte[] toByteArray() {
+        byte[] data = new byte[MAGIC.length + 4 + SYMBOLS / 2 + 4 + content.length];
+        System.arraycopy(MAGIC, 0, data, 0, MAGIC.length);
+        int pos = MAGIC.length;
+        writeInt(data, pos, id);
+        pos += 4;
+        for (int i = 0; i < SYMBOLS; i += 2) {
+            data[pos++] = huffman == null ? 0 : (byte) (huffman.lengths[i] << 4 | huffman.lengths[i + 1]);
+        }
+        writeInt(data, pos, content.length);
+        pos += 4;
+        System.arraycopy(content, 0, data, pos, content.length);
+        return data;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public int size() {
+        return content.length;
+    }
+
+    private static int readInt(byte[] data, int pos) {
+        return (data[pos] & 0xFF) << 24 | (data[pos + 1] & 0xFF) << 16 | (data[pos + 2] & 0xFF) << 8 | (data[pos + 3] & 0xFF);
+    }
+
+    private static void writeInt(byte[] data, int pos, int value) {
+        data[pos] = (byte) (value >>> 24);
+        data[pos + 1] = (byte) (value >>> 16);
+        data[pos + 2] = (byte) (value >>> 8);
+        data[pos + 3] = (byte) value;
+    }
+}
\ No newline at end of file
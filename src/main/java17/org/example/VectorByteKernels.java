@@ -0,0 +1,37 @@
+package org.example;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// jdk.incubator.vector: сравнение по SPECIES.length() байт за шаг, первый отличающийся байт - firstTrue()
+// маски неравенства. Для коротких совпадений (типичных для LZ77) векторный шаг не окупается, поэтому
+// до VECTOR_MIN_LENGTH работает SWAR. Гистограмма остаётся скалярной: в Vector API нет scatter-add
+class VectorByteKernels extends SwarByteKernels {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int VECTOR_MIN_LENGTH = 64;
+
+    @Override
+    String name() {
+        return "vector";
+    }
+
+    @Override
+    int mismatch(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        if (length < VECTOR_MIN_LENGTH) {
+            return super.mismatch(a, aOffset, b, bOffset, length);
+        }
+        int step = SPECIES.length();
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += step) {
+            ByteVector va = ByteVector.fromArray(SPECIES, a, aOffset + i);
+            ByteVector vb = ByteVector.fromArray(SPECIES, b, bOffset + i);
+            int first = va.compare(VectorOperators.NE, vb).firstTrue();
+            if (first < step) {
+                return i + first;
+            }
+        }
+        return i + super.mismatch(a, aOffset + i, b, bOffset + i, length - i);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+// Несжимаемые блоки пишутся как есть, сжимаемые получают кодек; смесь блоков читается целиком
+public class AdaptiveCompressionTest {
+
+    private static final int BLOCK_SIZE = 64 << 10;
+
+    @Test
+    public void incompressibleInputIsStored() throws IOException {
+        byte[] noise = new byte[3 * BLOCK_SIZE + 100];
+        new Random(1).nextBytes(noise);
+        AdaptiveCompression adaptive = new AdaptiveCompression(AdaptiveCompression.Policy.maxRatio(),
+                AdaptiveCompression.defaultCandidates(), BLOCK_SIZE);
+        byte[] compressed = adaptive.compress(noise);
+        // Четыре блока: метод, две varint-длины до трёх байт, данные; CRC32 в конце
+        assertTrue(compressed.length + " bytes", compressed.length <= noise.length + 4 * 7 + 4);
+        assertEquals(AdaptiveCompression.STORED, compressed[0]);
+        assertArrayEquals(noise, adaptive.decompressBytes(compressed));
+    }
+
+    // 220 равновероятных байт - около 7.8 бит/байт: ниже порога энтропии, так что кандидат пробуется,
+    // но выигрывает меньше MIN_RATIO, и блок всё равно пишется как есть
+    @Test
+    public void blockNoCandidateShrinksIsStored() throws IOException {
+        byte[] data = new byte[BLOCK_SIZE];
+        Random random = new Random(2);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) random.nextInt(220);
+        }
+        AdaptiveCompression adaptive = new AdaptiveCompression(AdaptiveCompression.Policy.minLatency(),
+                Collections.singletonList(new AdaptiveCompression.Candidate(Codec.GZIP, Codec.Preset.FASTEST)),
+                BLOCK_SIZE);
+        assertTrue(AdaptiveCompression.entropyBits(data, 0, data.length) < 7.9);
+        byte[] compressed = adaptive.compress(data);
+        assertEquals(AdaptiveCompression.STORED, compressed[0]);
+        assertEquals(data.length + 1 + 3 + 3 + 4, compressed.length);
+        assertArrayEquals(data, adaptive.decompressBytes(compressed));
+    }
+
+    @Test
+    public void mixedBlocksRoundTrip() throws IOException {
+        byte[] text = Corpus.generate(Corpus.Shape.LOGS, 2 * BLOCK_SIZE, 3);
+        byte[] noise = new byte[BLOCK_SIZE];
+        new Random(4).nextBytes(noise);
+        byte[] data = new byte[text.length + noise.length];
+        System.arraycopy(text, 0, data, 0, BLOCK_SIZE);
+        System.arraycopy(noise, 0, data, BLOCK_SIZE, BLOCK_SIZE);
+        System.arraycopy(text, BLOCK_SIZE, data, 2 * BLOCK_SIZE, BLOCK_SIZE);
+        for (AdaptiveCompression.Policy policy : Arrays.asList(AdaptiveCompression.Policy.maxRatio(),
+                AdaptiveCompression.Policy.minLatency())) {
+            AdaptiveCompression adaptive = new AdaptiveCompression(policy, AdaptiveCompression.defaultCandidates(),
+                    BLOCK_SIZE);
+            byte[] compressed = adaptive.compress(data);
+            assertNotEquals(policy.toString(), AdaptiveCompression.STORED, compressed[0]);
+            assertTrue(policy + ": " + compressed.length, compressed.length < data.length - BLOCK_SIZE);
+            assertArrayEquals(data, adaptive.decompressBytes(compressed));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package org.example;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Каждая реализация ByteKernels против скалярной. Недоступные в этой JVM (swar на Java 8, vector без
+// --add-modules jdk.incubator.vector) пропускаются
+@RunWith(Parameterized.class)
+public class ByteKernelsTest {
+
+    private static final ByteKernels SCALAR = new ByteKernels();
+
+    private final ByteKernels kernels;
+
+    public ByteKernelsTest(String name) {
+        this.kernels = ByteKernels.forName(name);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> names() {
+        List<Object[]> names = new ArrayList<>();
+        for (String name : ByteKernels.NAMES) {
+            names.add(new Object[]{name});
+        }
+        return names;
+    }
+
+    @Test
+    public void mismatchAtEveryPosition() {
+        Assume.assumeNotNull(kernels);
+        byte[] a = new byte[300];
+        new Random(1).nextBytes(a);
+        for (int offset = 0; offset < 9; offset++) {
+            for (int length = 0; length <= 200; length += length < 20 ? 1 : 7) {
+                byte[] b = a.clone();
+                assertEquals(length, kernels.mismatch(a, offset, b, offset, length));
+                assertTrue(kernels.equals(a, offset, b, offset, length));
+                for (int at = 0; at < length; at += 3) {
+                    b[offset + at] ^= 0x40;
+                    int expected = SCALAR.mismatch(a, offset, b, offset, length);
+                    assertEquals(offset + "+" + length + " at " + at, expected, kernels.mismatch(a, offset, b, offset, length));
+                    assertFalse(kernels.equals(a, offset, b, offset, length));
+                    b[offset + at] ^= 0x40;
+                }
+            }
+        }
+    }
+
+    // Разные смещения в a и b: совпадения LZ77 сравнивают вход сам с собой со сдвигом
+    @Test
+    public void mismatchOnOverlappingRanges() {
+        Assume.assumeNotNull(kernels);
+        byte[] data = Corpus.generate(Corpus.Shape.LOW_ENTROPY, 10_000, 2);
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            int from = random.nextInt(5000);
+            int to = from + 1 + random.nextInt(4000);
+            int length = random.nextInt(data.length - to + 1);
+            assertEquals(SCALAR.mismatch(data, from, data, to, length), kernels.mismatch(data, from, data, to, length));
+        }
+    }
+
+    @Test
+    public void histogramMatchesScalar() {
+        Assume.assumeNotNull(kernels);
+        for (int length : new int[]{0, 1, 255, ByteKernels.MULTI_TABLE_MIN_LENGTH - 1, ByteKernels.MULTI_TABLE_MIN_LENGTH + 3}) {
+            byte[] data = Corpus.generate(Corpus.Shape.JSON, length + 5, length);
+            int[] expected = new int[256];
+            int[] actual = new int[256];
+            // Счётчики добавляются к уже накопленным
+            Arrays.fill(expected, 2);
+            Arrays.fill(actual, 2);
+            SCALAR.histogram(data, 5, length, expected);
+            kernels.histogram(data, 5, length, actual);
+            assertArrayEquals("length " + length, expected, actual);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Встроенные кодеки и диапазоны id. Провайдеры ServiceLoader проверяются в отдельном загрузчике классов
+// со своим META-INF/services: реестр этой JVM они не трогают
+public class CodecRegistryTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void builtInCodecsByIdAndName() {
+        for (Codec codec : Codec.values()) {
+            assertTrue(codec + " id " + codec.id(), codec.id() >= 1 && codec.id() <= CodecRegistry.MAX_BUILTIN_ID);
+            assertSame(codec, CodecRegistry.forId(codec.id()));
+            assertSame(codec, CodecRegistry.forName(codec.name().toLowerCase(Locale.ROOT)));
+        }
+        assertNull(CodecRegistry.forId(0));
+        assertNull(CodecRegistry.forId(CodecRegistry.MAX_ID + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownNameIsRejected() {
+        CodecRegistry.forName("no-such-codec");
+    }
+
+    @Test
+    public void thirdPartyProviderAboveReservedRange() throws Exception {
+        ClassLoader loader = isolatedLoader(ThirdPartyProvider.class);
+        Object provider = registry(loader).getMethod("forId", int.class).invoke(null, ThirdPartyProvider.ID);
+        assertNotNull(provider);
+        assertEquals(ThirdPartyProvider.class.getName(), provider.getClass().getName());
+    }
+
+    @Test
+    public void thirdPartyProviderWithReservedIdIsRejected() throws Exception {
+        ClassLoader loader = isolatedLoader(ReservedIdProvider.class);
+        try {
+            registry(loader).getMethod("providers").invoke(null);
+            fail("Provider with a built-in id was registered");
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause() instanceof ExceptionInInitializerError ? e.getCause().getCause() : e.getCause();
+            assertTrue(String.valueOf(cause), cause instanceof IllegalStateException
+                    && cause.getMessage().contains("reserved for built-in codecs"));
+        }
+    }
+
+    private static Class<?> registry(ClassLoader loader) throws ClassNotFoundException {
+        return Class.forName(CodecRegistry.class.getName(), true, loader);
+    }
+
+    // Классы проекта и тестов без родительского загрузчика (кроме JDK) плюс файл сервиса с одним провайдером
+    private ClassLoader isolatedLoader(Class<? extends CodecProvider> provider) throws IOException {
+        File services = folder.newFolder();
+        Path file = services.toPath().resolve("META-INF/services/" + CodecProvider.class.getName());
+        Files.createDirectories(file.getParent());
+        Files.write(file, provider.getName().getBytes(StandardCharsets.UTF_8));
+        return new URLClassLoader(new URL[]{
+                CodecRegistry.class.getProtectionDomain().getCodeSource().getLocation(),
+                CodecRegistryTest.class.getProtectionDomain().getCodeSource().getLocation(),
+                services.toURI().toURL()}, null);
+    }
+
+    public static final class ThirdPartyProvider implements CodecProvider {
+        static final int ID = CodecRegistry.MAX_BUILTIN_ID + 1;
+
+        @Override
+        public String name() {
+            return "third-party";
+        }
+
+        @Override
+        public int id() {
+            return ID;
+        }
+
+        @Override
+        public Compressor create(Codec.Preset preset) {
+            return Codec.ZSTD.create(preset);
+        }
+    }
+
+    public static final class ReservedIdProvider implements CodecProvider {
+        @Override
+        public String name() {
+            return "reserved";
+        }
+
+        @Override
+        public int id() {
+            return 7;
+        }
+
+        @Override
+        public Compressor create(Codec.Preset preset) {
+            return Codec.ZSTD.create(preset);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+
+// Все варианты Crc32 против java.util.zip.CRC32: длины вокруг шага slice-by-8, невыровненные смещения,
+// побайтовое и кусочное обновление
+public class Crc32Test {
+
+    private static final byte[] DATA = new byte[1 << 16];
+
+    static {
+        new Random(7).nextBytes(DATA);
+    }
+
+    @Test
+    public void everyVariantMatchesJdk() {
+        for (int offset = 0; offset < 9; offset++) {
+            for (int length = 0; length <= 70; length++) {
+                check(offset, length);
+            }
+        }
+        check(5, DATA.length - 5);
+    }
+
+    @Test
+    public void incrementalUpdates() {
+        Random random = new Random(8);
+        Crc32 crc = new Crc32();
+        CRC32 jdk = new CRC32();
+        int pos = 0;
+        while (pos < DATA.length) {
+            int n = Math.min(DATA.length - pos, random.nextInt(100));
+            if (n == 0) {
+                crc.update(DATA[pos]);
+                jdk.update(DATA[pos]);
+                pos++;
+            } else {
+                crc.update(DATA, pos, n);
+                jdk.update(DATA, pos, n);
+                pos += n;
+            }
+            assertEquals(jdk.getValue(), crc.getValue());
+        }
+        crc.reset();
+        assertEquals(0, crc.getValue());
+    }
+
+    private static void check(int offset, int length) {
+        CRC32 jdk = new CRC32();
+        jdk.update(DATA, offset, length);
+        int expected = (int) jdk.getValue();
+        String range = offset + "+" + length;
+        assertEquals(range, expected, Crc32.compute(DATA, offset, length));
+        assertEquals(range, expected, Crc32.updateBitwise(0, DATA, offset, length));
+        assertEquals(range, expected, Crc32.updateByteTable(0, DATA, offset, length));
+        assertEquals(range, expected, Crc32.updateSliceBy8(0, DATA, offset, length));
+        // Продолжение с готового значения, как crc32(crc, ...) в zlib
+        int half = length / 2;
+        assertEquals(range, expected, Crc32.updateSliceBy8(Crc32.updateByteTable(0, DATA, offset, half),
+                DATA, offset + half, length - half));
+    }
+}
\ No newline at end of file
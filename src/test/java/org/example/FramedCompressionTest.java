@@ -0,0 +1,98 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+// Кадр читается без знания кодека; чужой или испорченный кадр - IOException
+public class FramedCompressionTest {
+
+    private static final byte[] DATA = Corpus.generate(Corpus.Shape.JSON, 50_000, 1);
+
+    @Test
+    public void anyFrameDecodesWithoutKnowingTheCodec() throws IOException {
+        for (CodecProvider provider : CodecRegistry.providers()) {
+            for (Codec.Preset preset : Codec.Preset.values()) {
+                byte[] frame = new FramedCompression(provider, preset).compress(DATA);
+                assertSame(provider, FramedCompression.codecOf(frame, 0, frame.length));
+                assertArrayEquals(provider + " " + preset, DATA, FramedCompression.decompress(frame));
+                // Экземпляр другого кодека тоже принимает кадр
+                assertArrayEquals(DATA, new FramedCompression(Codec.GZIP).decompressBytes(frame));
+            }
+        }
+    }
+
+    @Test
+    public void frameInsideLargerArray() throws IOException {
+        byte[] frame = new FramedCompression(Codec.ZSTD).compress(DATA, 100, 1000);
+        byte[] padded = new byte[frame.length + 10];
+        System.arraycopy(frame, 0, padded, 3, frame.length);
+        byte[] expected = new byte[1000];
+        System.arraycopy(DATA, 100, expected, 0, 1000);
+        assertArrayEquals(expected, FramedCompression.decompressFrame(padded, 3, frame.length));
+    }
+
+    @Test
+    public void corruptFramesAreRejected() throws IOException {
+        byte[] frame = new FramedCompression(Codec.GZIP).compress(DATA);
+        assertFalse(FramedCompression.isFrame(DATA, 0, DATA.length));
+        expectRejected(DATA);
+        expectRejected(new byte[]{'C', 'F', 'R', 'M'});
+
+        byte[] unknownCodec = frame.clone();
+        unknownCodec[4] = (byte) 250;
+        expectRejected(unknownCodec);
+
+        byte[] unknownPreset = frame.clone();
+        unknownPreset[5] = 7;
+        expectRejected(unknownPreset);
+
+        byte[] wrongLength = frame.clone();
+        wrongLength[6]++;
+        expectRejected(wrongLength);
+
+        byte[] wrongCrc = frame.clone();
+        wrongCrc[10]++;
+        expectRejected(wrongCrc);
+    }
+
+    @Test
+    public void unregisteredProviderIsRefused() {
+        CodecProvider unregistered = new CodecProvider() {
+            @Override
+            public String name() {
+                return "unregistered";
+            }
+
+            @Override
+            public int id() {
+                return 200;
+            }
+
+            @Override
+            public Compressor create(Codec.Preset preset) {
+                return Codec.ZSTD.create(preset);
+            }
+        };
+        try {
+            new FramedCompression(unregistered);
+            fail("Frame writer accepted a codec that readers cannot resolve");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+    }
+
+    private static void expectRejected(byte[] frame) {
+        try {
+            FramedCompression.decompress(frame);
+        } catch (IOException expected) {
+            return;
+        }
+        fail("Corrupt frame accepted");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package org.example;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+
+// Совместимость с java.util.zip на каждом уровне: наш вывод читает GZIPInputStream, вывод GZIPOutputStream
+// с тем же уровнем Deflater читает GzipCompression
+@RunWith(Parameterized.class)
+public class GzipCompressionTest {
+
+    private final int level;
+    private final GzipCompression gzip;
+
+    public GzipCompressionTest(int level) {
+        this.level = level;
+        this.gzip = new GzipCompression(level);
+    }
+
+    @Parameterized.Parameters(name = "level {0}")
+    public static List<Object[]> levels() {
+        List<Object[]> levels = new ArrayList<>();
+        for (int level = 0; level <= 9; level++) {
+            levels.add(new Object[]{level});
+        }
+        return levels;
+    }
+
+    @Test
+    public void jdkReadsOurOutput() throws IOException {
+        for (byte[] data : inputs()) {
+            assertArrayEquals(data, gunzip(gzip.compress(data)));
+        }
+    }
+
+    @Test
+    public void weReadJdkOutput() throws IOException {
+        for (byte[] data : inputs()) {
+            assertArrayEquals(data, gzip.decompressBytes(jdkGzip(data)));
+        }
+    }
+
+    private static List<byte[]> inputs() {
+        List<byte[]> inputs = new ArrayList<>();
+        inputs.add(new byte[0]);
+        inputs.add(new byte[]{42});
+        inputs.add(Corpus.generate(Corpus.Shape.LOGS, 200_000, 1));
+        inputs.add(Corpus.generate(Corpus.Shape.JSON, 100_000, 2));
+        byte[] noise = new byte[70_000];
+        new Random(3).nextBytes(noise);
+        inputs.add(noise);
+        inputs.add(new byte[300_000]);
+        return inputs;
+    }
+
+    private byte[] jdkGzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
\ No newline at end of file
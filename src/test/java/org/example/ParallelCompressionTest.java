@@ -0,0 +1,175 @@
+package org.example;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Порядок чанков при любом порядке завершения задач, ограничение окна и ошибки задач
+public class ParallelCompressionTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final int MAX_IN_FLIGHT = 3;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Ранние чанки массива сжимаются дольше поздних, а результат байт в байт совпадает с CompressingOutputStream
+    @Test
+    public void chunksAreWrittenInInputOrder() throws IOException {
+        byte[] data = Corpus.generate(Corpus.Shape.LOGS, 20 * CHUNK_SIZE + 100, 1);
+        Compressor zstd = Codec.ZSTD.create();
+        Compressor slowFirst = new Compressor() {
+            @Override
+            public byte[] compress(byte[] input, int offset, int length) throws IOException {
+                sleep(Math.max(0, 20 - offset / CHUNK_SIZE));
+                return zstd.compress(input, offset, length);
+            }
+
+            @Override
+            public byte[] decompress(byte[] input, int offset, int length) throws IOException {
+                sleep(input.length % 7);
+                return zstd.decompress(input, offset, length);
+            }
+        };
+        ParallelCompression parallel = new ParallelCompression(slowFirst, executor, CHUNK_SIZE, 8);
+
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        try (CompressingOutputStream out = new CompressingOutputStream(sequential, zstd, CHUNK_SIZE)) {
+            out.write(data);
+        }
+        byte[] compressed = parallel.compress(data);
+        assertArrayEquals(sequential.toByteArray(), compressed);
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        parallel.compress(new ByteArrayInputStream(data), streamed);
+        assertArrayEquals(compressed, streamed.toByteArray());
+
+        assertArrayEquals(data, parallel.decompressBytes(compressed));
+    }
+
+    // Пока самый старый чанк не готов, из входа читается не больше MAX_IN_FLIGHT + 1 чанков
+    @Test
+    public void windowLimitsReadAhead() throws Exception {
+        byte[] data = Corpus.generate(Corpus.Shape.JSON, 50 * CHUNK_SIZE, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        Compressor zstd = Codec.ZSTD.create();
+        Compressor blockedFirst = new Compressor() {
+            @Override
+            public byte[] compress(byte[] input, int offset, int length) throws IOException {
+                if (Arrays.equals(Arrays.copyOfRange(input, offset, offset + length), Arrays.copyOf(data, length))) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return zstd.compress(input, offset, length);
+            }
+
+            @Override
+            public byte[] decompress(byte[] input, int offset, int length) throws IOException {
+                return zstd.decompress(input, offset, length);
+            }
+        };
+        AtomicLong read = new AtomicLong();
+        InputStream in = new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    read.addAndGet(n);
+                }
+                return n;
+            }
+        };
+        ParallelCompression parallel = new ParallelCompression(blockedFirst, executor, CHUNK_SIZE, MAX_IN_FLIGHT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                parallel.compress(in, out);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        writer.start();
+
+        long limit = (MAX_IN_FLIGHT + 1L) * CHUNK_SIZE;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (read.get() < limit && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(100);
+        assertEquals(limit, read.get());
+
+        release.countDown();
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        assertNull(String.valueOf(failure.get()), failure.get());
+        assertEquals(data.length, read.get());
+        assertArrayEquals(data, parallel.decompressBytes(out.toByteArray()));
+    }
+
+    @Test
+    public void taskFailureSurfacesAsIOException() {
+        Compressor failing = new Compressor() {
+            @Override
+            public byte[] compress(byte[] input, int offset, int length) throws IOException {
+                if (offset == 3 * CHUNK_SIZE) {
+                    throw new IOException("chunk 3");
+                }
+                return Arrays.copyOfRange(input, offset, offset + length);
+            }
+
+            @Override
+            public byte[] decompress(byte[] input, int offset, int length) {
+                return Arrays.copyOfRange(input, offset, offset + length);
+            }
+        };
+        try {
+            new ParallelCompression(failing, executor, CHUNK_SIZE, MAX_IN_FLIGHT).compress(new byte[10 * CHUNK_SIZE]);
+            fail("Failed chunk was not reported");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("chunk 3"));
+        }
+    }
+
+    @Test
+    public void chunkLimitAboveOneGigabyte() throws IOException {
+        byte[] data = Corpus.generate(Corpus.Shape.LOGS, 5 * CHUNK_SIZE, 3);
+        byte[] compressed = new ParallelCompression(Codec.ZSTD.create(), executor, CHUNK_SIZE, MAX_IN_FLIGHT).compress(data);
+        ParallelCompression reader = new ParallelCompression(Codec.ZSTD.create(), executor, (1 << 30) + (1 << 29),
+                MAX_IN_FLIGHT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reader.decompress(new ByteArrayInputStream(compressed), out);
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    private static void sleep(int millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+}
\ No newline at end of file
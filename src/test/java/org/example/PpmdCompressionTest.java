@@ -0,0 +1,57 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+// Память модели PPMd задаётся заголовком потока и не должна превышать память распаковывающего экземпляра
+public class PpmdCompressionTest {
+
+    private static final int SMALL_MEMORY = PpmdCompression.MIN_MEMORY_SIZE;
+    private static final int LARGE_MEMORY = 1 << 22;
+
+    @Test
+    public void largerModelThanDecoderIsRejected() throws IOException {
+        byte[] data = text(10_000);
+        byte[] compressed = new PpmdCompression(PpmdCompression.DEFAULT_ORDER, LARGE_MEMORY).compress(data);
+        assertArrayEquals(data, new PpmdCompression(PpmdCompression.DEFAULT_ORDER, LARGE_MEMORY).decompressBytes(compressed));
+        expectRejected(new PpmdCompression(PpmdCompression.DEFAULT_ORDER, SMALL_MEMORY), compressed);
+    }
+
+    // 6 байт заголовка с log2 памяти 30 не должны выделять арену на гигабайт
+    @Test
+    public void hugeMemoryHeaderIsRejected() {
+        byte[] forged = {5, 30, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0};
+        expectRejected(new PpmdCompression(), forged);
+    }
+
+    @Test
+    public void smallerModelThanDecoderIsAccepted() throws IOException {
+        byte[] data = text(10_000);
+        byte[] compressed = new PpmdCompression(PpmdCompression.DEFAULT_ORDER, SMALL_MEMORY).compress(data);
+        PpmdCompression decoder = new PpmdCompression(PpmdCompression.DEFAULT_ORDER, LARGE_MEMORY);
+        assertArrayEquals(data, decoder.decompressBytes(compressed));
+        // Модель чужого размера не возвращается в пул: следующий вызов с собственными настройками работает как обычно
+        assertArrayEquals(data, decoder.decompressBytes(decoder.compress(data)));
+    }
+
+    private static void expectRejected(PpmdCompression decoder, byte[] compressed) {
+        try {
+            decoder.decompressBytes(compressed);
+        } catch (IOException expected) {
+            return;
+        }
+        fail("Stream accepted despite model memory limit");
+    }
+
+    private static byte[] text(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) ("the quick brown fox ".charAt(i % 20) + (i % 97 == 0 ? 1 : 0));
+        }
+        return data;
+    }
+}
\ No newline at end of file
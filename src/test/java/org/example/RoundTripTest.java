@@ -0,0 +1,244 @@
+package org.example;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.fail;
+
+// decompress(compress(x)) == x для каждого кодека реестра и каждого пресета. Каждый вход проходит три пути:
+// массив целиком, срез массива со смещением и прямой ByteBuffer. Файлы корпуса, вход на 2 МБ и фаззинг
+// идут в обычной сборке; вход на 16 МБ и файлы корпуса целиком включаются через -Dorg.example.slowTests=true
+@RunWith(Parameterized.class)
+public class RoundTripTest {
+
+    private static final boolean SLOW = Boolean.getBoolean("org.example.slowTests");
+
+    private static final int QUICK_FUZZ_ITERATIONS = 20;
+    private static final int QUICK_FUZZ_MAX_LENGTH = 1 << 14;
+    private static final int FULL_FUZZ_ITERATIONS = 40;
+    private static final int FULL_FUZZ_MAX_LENGTH = 1 << 16;
+    private static final int CORRUPTION_ITERATIONS = 100;
+    private static final int CORPUS_FILE_LIMIT = 1 << 19;
+    private static final int LARGE_INPUT_SIZE = 2 << 20;
+    private static final int HUGE_INPUT_SIZE = 16 << 20;
+    private static final byte[] TEXT_ALPHABET = " etaoinshrdlu\n.,ETAOIN".getBytes(StandardCharsets.US_ASCII);
+
+    private final Compressor compressor;
+    private final long seed;
+
+    public RoundTripTest(String codec, Codec.Preset preset) {
+        CodecProvider provider = CodecRegistry.forName(codec);
+        this.compressor = provider.create(preset);
+        this.seed = provider.id() * 31L + preset.ordinal();
+    }
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static List<Object[]> codecs() {
+        List<Object[]> codecs = new ArrayList<>();
+        for (CodecProvider provider : CodecRegistry.providers()) {
+            for (Codec.Preset preset : Codec.Preset.values()) {
+                codecs.add(new Object[]{provider.name(), preset});
+            }
+        }
+        return codecs;
+    }
+
+    @Test
+    public void emptyInput() throws IOException {
+        verify("empty", new byte[0]);
+    }
+
+    @Test
+    public void tinyInputs() throws IOException {
+        verify("1 byte", new byte[]{42});
+        verify("2 bytes", new byte[]{0, (byte) 0xFF});
+    }
+
+    @Test
+    public void singleByteRuns() throws IOException {
+        byte[] same = new byte[1 << 16];
+        Arrays.fill(same, (byte) 'a');
+        verify("all same", same);
+        verify("all zero 300000 bytes", new byte[300_000]);
+    }
+
+    @Test
+    public void everyByteValue() throws IOException {
+        byte[] alphabet = new byte[256 * 4];
+        for (int i = 0; i < alphabet.length; i++) {
+            alphabet[i] = (byte) i;
+        }
+        verify("every byte value", alphabet);
+    }
+
+    @Test
+    public void randomInput() throws IOException {
+        verify("random", noise());
+    }
+
+    @Test
+    public void periodicInput() throws IOException {
+        verify("periodic", periodic());
+    }
+
+    // Обрезанный поток обязан дать IOException: не зациклиться, не вернуть данные и не упасть другим исключением
+    @Test
+    public void truncatedStreamFails() throws IOException {
+        verifyTruncated("random", noise());
+        verifyTruncated("periodic", periodic());
+    }
+
+    // Испорченный поток должен дать IOException либо исходные данные (порча в неиспользуемых битах), но не другие байты
+    @Test
+    public void corruptedStreamNeverDecodesSilently() throws IOException {
+        byte[] data = fuzzInput(new Random(seed), 20_000);
+        byte[] compressed = compressor.compress(data);
+        Random random = new Random(seed);
+        for (int i = 0; i < CORRUPTION_ITERATIONS; i++) {
+            byte[] corrupted = compressed.clone();
+            int position = random.nextInt(corrupted.length);
+            corrupted[position] ^= (byte) (1 << random.nextInt(8));
+            byte[] restored;
+            try {
+                restored = compressor.decompressBytes(corrupted);
+            } catch (IOException expected) {
+                continue;
+            }
+            if (!Arrays.equals(data, restored)) {
+                fail("Corrupted stream decoded without error: bit flip at byte " + position + " of " + compressed.length);
+            }
+        }
+    }
+
+    @Test
+    public void quickFuzz() throws IOException {
+        fuzz(QUICK_FUZZ_ITERATIONS, QUICK_FUZZ_MAX_LENGTH);
+    }
+
+    // Без -Dorg.example.slowTests=true от каждого файла берутся первые CORPUS_FILE_LIMIT байт
+    @Test
+    public void corpusFiles() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            Path file = Corpus.resolve("test" + i + ".txt");
+            if (Files.exists(file)) {
+                byte[] data = Files.readAllBytes(file);
+                verify(file.toString(), SLOW ? data : Arrays.copyOf(data, Math.min(data.length, CORPUS_FILE_LIMIT)));
+            }
+        }
+    }
+
+    @Test
+    public void largeInput() throws IOException {
+        verify("mixed " + LARGE_INPUT_SIZE + " bytes", fuzzInput(new Random(seed), LARGE_INPUT_SIZE));
+    }
+
+    @Test
+    public void hugeInput() throws IOException {
+        Assume.assumeTrue(SLOW);
+        verify("mixed " + HUGE_INPUT_SIZE + " bytes", fuzzInput(new Random(seed), HUGE_INPUT_SIZE));
+    }
+
+    @Test
+    public void fullFuzz() throws IOException {
+        fuzz(FULL_FUZZ_ITERATIONS, FULL_FUZZ_MAX_LENGTH);
+    }
+
+    private void verify(String name, byte[] data) throws IOException {
+        RoundTripVerifier.check(name, data, compressor.decompressBytes(compressor.compress(data)));
+
+        // Тот же вход внутри большего массива: кодек обязан уважать offset/length
+        byte[] padded = new byte[data.length + 19];
+        Arrays.fill(padded, (byte) 0x5A);
+        System.arraycopy(data, 0, padded, 7, data.length);
+        byte[] compressed = compressor.compress(padded, 7, data.length);
+        byte[] paddedCompressed = new byte[compressed.length + 11];
+        System.arraycopy(compressed, 0, paddedCompressed, 5, compressed.length);
+        RoundTripVerifier.check(name + " [slice]", data, compressor.decompress(paddedCompressed, 5, compressed.length));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        ByteBuffer restored = compressor.decompress(compressor.compress(direct));
+        RoundTripVerifier.check(name + " [direct buffer]", data, ByteBuffers.toArray(restored));
+    }
+
+    private void verifyTruncated(String name, byte[] data) throws IOException {
+        byte[] compressed = compressor.compress(data);
+        for (int cut : new int[]{compressed.length - 1, compressed.length / 2, 1}) {
+            try {
+                compressor.decompress(compressed, 0, cut);
+            } catch (IOException expected) {
+                continue;
+            }
+            fail("Truncated stream accepted on " + name + ": " + cut + " of " + compressed.length + " bytes");
+        }
+    }
+
+    private void fuzz(int iterations, int maxLength) throws IOException {
+        Random random = new Random(seed);
+        for (int i = 0; i < iterations; i++) {
+            int length = random.nextInt(4) == 0 ? random.nextInt(64) : random.nextInt(maxLength + 1);
+            verify("fuzz #" + i + " (seed " + seed + ")", fuzzInput(random, length));
+        }
+    }
+
+    private byte[] noise() {
+        byte[] noise = new byte[1 << 16];
+        new Random(seed).nextBytes(noise);
+        return noise;
+    }
+
+    private static byte[] periodic() {
+        byte[] period = new byte[200_000];
+        for (int i = 0; i < period.length; i++) {
+            period[i] = (byte) (i % 7 == 0 ? 'x' : 'a' + i % 3);
+        }
+        return period;
+    }
+
+    // Смесь фрагментов: шум, серии одного байта, текст из малого алфавита и копии уже записанных участков
+    private static byte[] fuzzInput(Random random, int length) {
+        byte[] data = new byte[length];
+        int pos = 0;
+        while (pos < length) {
+            int run = Math.min(length - pos, 1 + random.nextInt(random.nextBoolean() ? 32 : 4096));
+            switch (random.nextInt(4)) {
+                case 0:
+                    for (int i = 0; i < run; i++) {
+                        data[pos + i] = (byte) random.nextInt(256);
+                    }
+                    break;
+                case 1:
+                    Arrays.fill(data, pos, pos + run, (byte) random.nextInt(256));
+                    break;
+                case 2:
+                    for (int i = 0; i < run; i++) {
+                        data[pos + i] = TEXT_ALPHABET[random.nextInt(TEXT_ALPHABET.length)];
+                    }
+                    break;
+                default:
+                    if (pos == 0) {
+                        continue;
+                    }
+                    int from = random.nextInt(pos);
+                    for (int i = 0; i < run; i++) {
+                        data[pos + i] = data[from + i];
+                    }
+                    break;
+            }
+            pos += run;
+        }
+        return data;
+    }
+}
\ No newline at end of file
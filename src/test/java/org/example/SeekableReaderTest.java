@@ -0,0 +1,150 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+// Диапазоны через границы кадров, LRU-кэш распакованных кадров и порча таблицы поиска
+public class SeekableReaderTest {
+
+    private static final int FRAME_SIZE = 4096;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger decompressions = new AtomicInteger();
+    private final Compressor zstd = Codec.ZSTD.create();
+    private final Compressor counting = new Compressor() {
+        @Override
+        public byte[] compress(byte[] input, int offset, int length) throws IOException {
+            return zstd.compress(input, offset, length);
+        }
+
+        @Override
+        public byte[] decompress(byte[] input, int offset, int length) throws IOException {
+            decompressions.incrementAndGet();
+            return zstd.decompress(input, offset, length);
+        }
+    };
+
+    @Test
+    public void randomRangesMatchInput() throws IOException {
+        byte[] data = Corpus.generate(Corpus.Shape.LOGS, 10 * FRAME_SIZE + 123, 1);
+        Path file = write(data);
+        try (SeekableReader reader = new SeekableReader(file, counting)) {
+            assertEquals(data.length, reader.size());
+            assertEquals(11, reader.frameCount());
+            Random random = new Random(2);
+            for (int i = 0; i < 500; i++) {
+                int position = random.nextInt(data.length);
+                int length = random.nextInt(Math.min(3 * FRAME_SIZE, data.length - position) + 1);
+                assertArrayEquals(position + "+" + length, Arrays.copyOfRange(data, position, position + length),
+                        reader.read(position, length));
+            }
+            assertArrayEquals(data, reader.read(0, data.length));
+
+            byte[] tail = new byte[1000];
+            assertEquals(100, reader.read(data.length - 100, tail, 0, tail.length));
+            assertEquals(-1, reader.read(data.length, tail, 0, tail.length));
+        }
+    }
+
+    // flush() закрывает кадр досрочно: границы кадров можно выровнять по записям
+    @Test
+    public void flushEndsFrame() throws IOException {
+        Path file = folder.newFile().toPath();
+        try (OutputStream out = new SeekableOutputStream(Files.newOutputStream(file), counting, FRAME_SIZE)) {
+            out.write(new byte[10]);
+            out.flush();
+            out.write(new byte[FRAME_SIZE + 1]);
+        }
+        try (SeekableReader reader = new SeekableReader(file, counting)) {
+            assertEquals(3, reader.frameCount());
+            assertEquals(FRAME_SIZE + 11, reader.size());
+        }
+    }
+
+    @Test
+    public void recentlyUsedFramesStayCached() throws IOException {
+        Path file = write(Corpus.generate(Corpus.Shape.JSON, 4 * FRAME_SIZE, 3));
+        try (SeekableReader reader = new SeekableReader(file, counting, 2)) {
+            readFrame(reader, 0);
+            readFrame(reader, 1);
+            readFrame(reader, 0);
+            assertEquals(2, decompressions.get());
+            // Кэш на два кадра: третий вытесняет самый давний - кадр 1, кадр 0 остаётся
+            readFrame(reader, 2);
+            readFrame(reader, 0);
+            assertEquals(3, decompressions.get());
+            readFrame(reader, 1);
+            assertEquals(4, decompressions.get());
+        }
+        decompressions.set(0);
+        try (SeekableReader reader = new SeekableReader(file, counting, 0)) {
+            readFrame(reader, 0);
+            readFrame(reader, 0);
+            assertEquals(2, decompressions.get());
+        }
+    }
+
+    @Test
+    public void corruptContainerIsRejected() throws IOException {
+        byte[] data = Corpus.generate(Corpus.Shape.LOGS, 3 * FRAME_SIZE, 4);
+        byte[] container = Files.readAllBytes(write(data));
+
+        byte[] table = container.clone();
+        table[container.length - SeekableOutputStream.FOOTER_SIZE - 2]++;
+        expectRejected(table);
+
+        byte[] magic = container.clone();
+        magic[container.length - 1]++;
+        expectRejected(magic);
+
+        expectRejected(Arrays.copyOfRange(container, 1, container.length));
+
+        byte[] frame = container.clone();
+        frame[frame.length / 3]++;
+        Path file = folder.newFile().toPath();
+        Files.write(file, frame);
+        try (SeekableReader reader = new SeekableReader(file, counting)) {
+            reader.read(0, data.length);
+            fail("Corrupt frame accepted");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+
+    private void readFrame(SeekableReader reader, int frame) throws IOException {
+        reader.read((long) frame * FRAME_SIZE + 10, 100);
+    }
+
+    private Path write(byte[] data) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (OutputStream out = new SeekableOutputStream(Files.newOutputStream(file), counting, FRAME_SIZE)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private void expectRejected(byte[] container) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, container);
+        try (SeekableReader reader = new SeekableReader(file, counting)) {
+            fail("Corrupt container opened with " + reader.frameCount() + " frames");
+        } catch (IOException expected) {
+            // ok
+        }
+    }
+}
\ No newline at end of file
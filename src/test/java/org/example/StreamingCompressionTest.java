@@ -0,0 +1,139 @@
+package org.example;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+// CompressingOutputStream/DecompressingInputStream и CompressionTool: один формат чанков, пределы длин из заголовков
+public class StreamingCompressionTest {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Compressor compressor = Codec.ZSTD.create();
+
+    @Test
+    public void roundTripAcrossChunkBoundaries() throws IOException {
+        for (int length : new int[]{0, 1, CHUNK_SIZE - 1, CHUNK_SIZE, CHUNK_SIZE + 1, 5 * CHUNK_SIZE + 17}) {
+            byte[] data = Corpus.generate(Corpus.Shape.LOGS, length, length);
+            byte[] compressed = compress(data, CHUNK_SIZE);
+            assertArrayEquals("length " + length, data, readAll(
+                    new DecompressingInputStream(new ByteArrayInputStream(compressed), compressor, CHUNK_SIZE)));
+        }
+    }
+
+    @Test
+    public void singleByteWritesAndReads() throws IOException {
+        byte[] data = Corpus.generate(Corpus.Shape.JSON, 3 * CHUNK_SIZE + 5, 1);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (CompressingOutputStream out = new CompressingOutputStream(buffer, compressor, CHUNK_SIZE)) {
+            for (byte b : data) {
+                out.write(b);
+            }
+        }
+        byte[] restored = new byte[data.length];
+        try (InputStream in = new DecompressingInputStream(new ByteArrayInputStream(buffer.toByteArray()), compressor,
+                CHUNK_SIZE)) {
+            for (int i = 0; i < restored.length; i++) {
+                restored[i] = (byte) in.read();
+            }
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(data, restored);
+    }
+
+    @Test
+    public void chunkLargerThanLimitIsRejected() throws IOException {
+        byte[] compressed = compress(new byte[2 * CHUNK_SIZE], 2 * CHUNK_SIZE);
+        expectIOException(new DecompressingInputStream(new ByteArrayInputStream(compressed), compressor, CHUNK_SIZE));
+    }
+
+    // 2 * предел + 4096 не помещается в int: раньше переполнение отвергало любой чанк
+    @Test
+    public void limitAboveOneGigabyteDoesNotOverflow() throws IOException {
+        byte[] data = Corpus.generate(Corpus.Shape.LOGS, 3 * CHUNK_SIZE, 2);
+        byte[] compressed = compress(data, CHUNK_SIZE);
+        assertArrayEquals(data, readAll(new DecompressingInputStream(new ByteArrayInputStream(compressed), compressor,
+                (1 << 30) + (1 << 29))));
+    }
+
+    @Test
+    public void truncatedStreamIsRejected() throws IOException {
+        byte[] compressed = compress(Corpus.generate(Corpus.Shape.LOGS, 3 * CHUNK_SIZE, 3), CHUNK_SIZE);
+        for (int cut : new int[]{compressed.length - 1, compressed.length / 2, 1}) {
+            expectIOException(new DecompressingInputStream(
+                    new ByteArrayInputStream(Arrays.copyOf(compressed, cut)), compressor, CHUNK_SIZE));
+        }
+    }
+
+    @Test
+    public void toolOutputReadsAsStream() throws IOException {
+        byte[] data = Corpus.generate(Corpus.Shape.JSON, 5 * CHUNK_SIZE + 3, 4);
+        Path input = folder.newFile("input").toPath();
+        Path compressed = folder.newFile("input.z").toPath();
+        Path restored = folder.newFile("restored").toPath();
+        Files.write(input, data);
+        new CompressionTool(compressor, CHUNK_SIZE).compress(input, compressed);
+        assertArrayEquals(data, readAll(new DecompressingInputStream(
+                new ByteArrayInputStream(Files.readAllBytes(compressed)), compressor, CHUNK_SIZE)));
+        new CompressionTool(compressor, CHUNK_SIZE).decompress(compressed, restored);
+        assertArrayEquals(data, Files.readAllBytes(restored));
+    }
+
+    // Заголовок обещает блок длиннее остатка файла: ошибка до выделения буфера под блок
+    @Test
+    public void toolRejectsBlockPastEndOfFile() throws IOException {
+        Path compressed = folder.newFile("forged.z").toPath();
+        Path restored = folder.newFile("restored").toPath();
+        Files.write(compressed, new byte[]{(byte) 0x80, 0x20, (byte) 0x80, 0x20, 1, 2, 3});
+        try {
+            new CompressionTool(compressor, CHUNK_SIZE).decompress(compressed, restored);
+            fail("Block past end of file accepted");
+        } catch (EOFException expected) {
+            // ok
+        }
+    }
+
+    private byte[] compress(byte[] data, int chunkSize) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (CompressingOutputStream out = new CompressingOutputStream(buffer, compressor, chunkSize)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static void expectIOException(InputStream in) {
+        try {
+            readAll(in);
+        } catch (IOException expected) {
+            return;
+        }
+        fail("Corrupt stream accepted");
+    }
+}
\ No newline at end of file
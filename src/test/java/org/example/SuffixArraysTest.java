@@ -0,0 +1,66 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+// SA-IS против исходного удвоения префиксов на входах, где SA-IS чаще всего ошибается: пустой вход, серии,
+// малые алфавиты (глубокая рекурсия LMS-подстрок) и срезы со смещением
+public class SuffixArraysTest {
+
+    @Test
+    public void edgeCases() {
+        check(new byte[0]);
+        check(new byte[]{7});
+        check(new byte[]{(byte) 0xFF, 0, (byte) 0xFF});
+        check(new byte[1000]);
+        check("mississippi".getBytes());
+        check("abracadabra abracadabra".getBytes());
+    }
+
+    @Test
+    public void smallAlphabets() {
+        Random random = new Random(1);
+        for (int alphabet : new int[]{2, 3, 4, 26, 256}) {
+            for (int i = 0; i < 20; i++) {
+                byte[] text = new byte[1 + random.nextInt(5000)];
+                for (int k = 0; k < text.length; k++) {
+                    text[k] = (byte) random.nextInt(alphabet);
+                }
+                check(text);
+            }
+        }
+    }
+
+    @Test
+    public void periodicText() {
+        for (int period = 1; period <= 9; period++) {
+            byte[] text = new byte[4096 + period];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = (byte) ('a' + i % period);
+            }
+            check(text);
+        }
+    }
+
+    @Test
+    public void sliceAndReusedWorkspace() {
+        byte[] text = Corpus.generate(Corpus.Shape.LOGS, 50_000, 5);
+        SuffixArrays.Workspace workspace = new SuffixArrays.Workspace();
+        // Сначала длинный вход, затем короткие: массивы workspace длиннее нужного и хранят старые данные
+        for (int length : new int[]{40_000, 1000, 17, 25_000}) {
+            int offset = 3 * length % 7919;
+            int[] expected = SuffixArrays.prefixDoubling(text, offset, length);
+            int[] actual = SuffixArrays.sais(text, offset, length, workspace);
+            assertArrayEquals("length " + length, expected, Arrays.copyOf(actual, length));
+            assertArrayEquals(expected, SuffixArrayAlgorithm.SAIS.build(text, offset, length));
+        }
+    }
+
+    private static void check(byte[] text) {
+        assertArrayEquals("length " + text.length, SuffixArrays.prefixDoubling(text), SuffixArrays.sais(text));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package org.example;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Обучение, сериализация и распаковка только тем словарём, которым сжимали
+public class ZstdDictionaryTest {
+
+    private static final int RECORD_SIZE = 512;
+
+    private final ZstdCompression zstd = new ZstdCompression();
+
+    @Test
+    public void trainedDictionaryShrinksSmallRecords() throws IOException {
+        ZstdDictionary dictionary = ZstdDictionary.train(records(1, 400), 8192);
+        assertTrue(dictionary.size() > 0 && dictionary.size() <= 8192);
+        long plain = 0;
+        long withDictionary = 0;
+        for (byte[] record : records(2, 50)) {
+            byte[] compressed = zstd.compress(record, dictionary);
+            assertArrayEquals(record, zstd.decompress(compressed, dictionary));
+            plain += zstd.compress(record).length;
+            withDictionary += compressed.length;
+        }
+        assertTrue(withDictionary + " vs " + plain, withDictionary < plain);
+    }
+
+    @Test
+    public void serializedDictionaryRoundTrips() throws IOException {
+        ZstdDictionary dictionary = ZstdDictionary.train(records(3, 200), 4096);
+        ZstdDictionary restored = ZstdDictionary.fromByteArray(dictionary.toByteArray());
+        assertEquals(dictionary.id(), restored.id());
+        assertArrayEquals(dictionary.toByteArray(), restored.toByteArray());
+        byte[] record = records(4, 1).get(0);
+        // Кадр, сжатый исходным словарём, читается восстановленным и наоборот
+        assertArrayEquals(record, zstd.decompress(zstd.compress(record, dictionary), restored));
+        assertArrayEquals(record, zstd.decompress(zstd.compress(record, restored), dictionary));
+    }
+
+    @Test
+    public void rawContentDictionary() throws IOException {
+        byte[] record = records(5, 1).get(0);
+        ZstdDictionary dictionary = new ZstdDictionary(42, record);
+        byte[] compressed = zstd.compress(record, dictionary);
+        assertArrayEquals(record, zstd.decompress(compressed, dictionary));
+        assertEquals(42, ZstdDictionary.fromByteArray(dictionary.toByteArray()).id());
+    }
+
+    @Test
+    public void wrongDictionaryIsRejected() throws IOException {
+        ZstdDictionary dictionary = ZstdDictionary.train(records(6, 200), 4096);
+        ZstdDictionary other = new ZstdDictionary(dictionary.id() + 1, records(7, 1).get(0));
+        byte[] compressed = zstd.compress(records(8, 1).get(0), dictionary);
+        try {
+            zstd.decompress(compressed, other);
+            fail("Frame decoded with a different dictionary");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains(Integer.toHexString(dictionary.id())));
+        }
+    }
+
+    @Test
+    public void corruptSerializedDictionaryIsRejected() {
+        byte[] data = new ZstdDictionary(7, new byte[100]).toByteArray();
+        expectRejected(Arrays.copyOf(data, 10));
+        expectRejected(Arrays.copyOf(data, data.length - 1));
+        byte[] magic = data.clone();
+        magic[0] = 'X';
+        expectRejected(magic);
+        byte[] zeroId = data.clone();
+        zeroId[4] = zeroId[5] = zeroId[6] = zeroId[7] = 0;
+        expectRejected(zeroId);
+    }
+
+    private static List<byte[]> records(long seed, int count) {
+        byte[] data = Corpus.generate(Corpus.Shape.JSON, count * RECORD_SIZE, seed);
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(Arrays.copyOfRange(data, i * RECORD_SIZE, (i + 1) * RECORD_SIZE));
+        }
+        return records;
+    }
+
+    private static void expectRejected(byte[] data) {
+        try {
+            ZstdDictionary.fromByteArray(data);
+        } catch (IOException expected) {
+            return;
+        }
+        fail("Corrupt dictionary accepted");
+    }
+}
\ No newline at end of file